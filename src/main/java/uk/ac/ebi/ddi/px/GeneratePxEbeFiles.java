@@ -1,22 +1,44 @@
 package uk.ac.ebi.ddi.px;
 
+import org.apache.commons.io.input.CountingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.utils.AsyncProjectHandler;
+import uk.ac.ebi.ddi.px.utils.CrawlStatistics;
+import uk.ac.ebi.ddi.px.utils.DatasetTrace;
+import uk.ac.ebi.ddi.px.utils.EBeyeCompression;
+import uk.ac.ebi.ddi.px.utils.EBeyeLayout;
+import uk.ac.ebi.ddi.px.utils.EBeyeSink;
+import uk.ac.ebi.ddi.px.utils.FanOutSink;
+import uk.ac.ebi.ddi.px.utils.JsonLinesSink;
+import uk.ac.ebi.ddi.px.utils.PipelineMetrics;
+import uk.ac.ebi.ddi.px.utils.PrometheusEndpoint;
+import uk.ac.ebi.ddi.px.utils.ProjectHandler;
+import uk.ac.ebi.ddi.px.utils.ProjectSink;
+import uk.ac.ebi.ddi.px.utils.ProjectSummary;
 import uk.ac.ebi.ddi.px.utils.ReadProperties;
 import uk.ac.ebi.ddi.px.utils.ReaderPxXML;
-import uk.ac.ebi.ddi.px.utils.WriterEBeyeXML;
+import uk.ac.ebi.ddi.px.utils.SummaryCsvSink;
+import uk.ac.ebi.ddi.px.utils.WorkerPool;
+import uk.ac.ebi.ddi.px.xml.px.io.PxUnmarshallerType;
 
+import javax.management.JMException;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 /**
@@ -26,18 +48,65 @@ import java.util.List;
  */
 public class GeneratePxEbeFiles {
 
-
-    private static HashMap<String, String> pageBuffer = new HashMap<String, String>();
-
     private static final Logger logger = LoggerFactory.getLogger(GeneratePxEbeFiles.class);
 
     private static final String PXSUBMISSION_PATTERN = "<ProteomeXchangeDataset";
 
-    private static List<String> databases = Arrays.asList("PRIDE", "MassIVE", "PeptideAtlas");
+    static final List<String> databases = Arrays.asList("PRIDE", "MassIVE", "PeptideAtlas");
+
+    /**
+     * Format of the dates in the log, SimpleDateFormat is not thread safe
+     */
+    private static final ThreadLocal<SimpleDateFormat> LOG_DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("dd/MM/yyyy");
+        }
+    };
+
+    /**
+     * Outputs of the exported projects, all of them are written from the same read of the projects.
+     * When it is not configured the EB-eye files are written one per project.
+     */
+    private static ProjectSink outputSink = null;
+
+    /**
+     * Threads and queue size of the write stage of the web crawl
+     */
+    private static int writerThreads = 2;
+
+    private static int writerQueueSize = 64;
+
+    /**
+     * Threads of the fetch, parse and transform stages of the web crawl (0 for one per core), size of
+     * their queues, and maximum number of accessions in the crawl at the same time
+     */
+    private static int fetchThreads = 8;
+
+    private static int parseThreads = 0;
+
+    private static int transformThreads = 0;
+
+    private static int stageQueueSize = 64;
+
+    private static int crawlWindow = 256;
+
+    /**
+     * Statistics of the exported datasets, written to statisticsFile (JSON, or CSV for a .csv file)
+     * every statisticsInterval datasets and at the end of the run
+     */
+    private static final CrawlStatistics statistics = new CrawlStatistics();
+
+    private static File statisticsFile = null;
+
+    private static int statisticsInterval = 0;
+
+    private static final PipelineMetrics metrics = PipelineMetrics.getInstance();
 
     /**
      * This program take an output folder as a parameter an create different EBE eyes files for
-     * all the project in ProteomeXchange. It loop all the project in ProteomeCentral and print them to the give output
+     * all the project in ProteomeXchange. It loop all the project in ProteomeCentral and print them to the give output.
+     * If a bulk PX dump is given as second parameter the projects are read from the dump instead of ProteomeCentral.
      *
      * @param args
      */
@@ -59,7 +128,30 @@ public class GeneratePxEbeFiles {
 
             Integer loopGap = Integer.valueOf(ReadProperties.getInstance().getProperty("loopGap"));
 
-            searchFilesWeb(loopGap, endPoint, pxPrefix, pxURL, outputFolder, databases);
+            loadCrawlSettings();
+
+            String statisticsName = ReadProperties.getInstance().getProperty("crawlStatistics");
+            if(statisticsName != null && !statisticsName.trim().isEmpty())
+                statisticsFile = new File(outputFolder, statisticsName.trim());
+            String interval = ReadProperties.getInstance().getProperty("crawlStatisticsInterval");
+            if(interval != null)
+                statisticsInterval = Integer.valueOf(interval.trim());
+
+            PrometheusEndpoint prometheus = startMetrics();
+
+            outputSink = createSink(new File(outputFolder));
+
+            try {
+                if(args.length > 1 && args[1] != null)
+                    searchFilesBulk(new File(args[1]), outputFolder, databases, Runtime.getRuntime().availableProcessors());
+                else
+                    searchFilesWeb(loopGap, endPoint, pxPrefix, pxURL, outputFolder, databases);
+            } finally {
+                outputSink.close();
+                writeStatistics();
+                if(prometheus != null)
+                    prometheus.close();
+            }
 
         } catch (IOException e) {
             logger.error(e.getMessage());
@@ -71,109 +163,280 @@ public class GeneratePxEbeFiles {
 
     }
 
-    public static void searchFilesWeb(int loopGap, int endPoint, String pxPrefix, String pxURL, String outputFolder, List<String> databases) throws Exception {
+    /**
+     * Create the sinks listed in the outputSinks property (EBEYE, JSONL and CSV)
+     * @param outputFolder folder of the output files
+     * @return the sink sending the projects to all of them
+     */
+    private static ProjectSink createSink(File outputFolder) throws IOException {
+        ReadProperties properties = ReadProperties.getInstance();
+
+        EBeyeCompression compression = ebeyeCompression();
+
+        String sinkNames = properties.getProperty("outputSinks");
+        if(sinkNames == null)
+            sinkNames = "EBEYE";
+
+        List<ProjectSink> sinks = new ArrayList<ProjectSink>();
+        for(String sinkName: sinkNames.split(",")){
+            sinkName = sinkName.trim().toUpperCase();
+            if(sinkName.equals("EBEYE")){
+                String batchEntries = properties.getProperty("ebeyeBatchEntries");
+                String batchBytes = properties.getProperty("ebeyeBatchBytes");
+                int entries = (batchEntries == null)? 0: Integer.valueOf(batchEntries.trim());
+                long bytes = (batchBytes == null || batchBytes.trim().isEmpty())? 0: Long.valueOf(batchBytes.trim());
+                // no limit on the size of the files
+                if(bytes <= 0)
+                    bytes = Long.MAX_VALUE;
+                EBeyeSink ebeyeSink = new EBeyeSink(outputFolder, compression, entries, bytes);
+                ebeyeSink.setLayout(ebeyeLayout());
+                String manifest = properties.getProperty("ebeyeManifest");
+                ebeyeSink.setManifest(manifest != null && Boolean.valueOf(manifest.trim()));
+                sinks.add(ebeyeSink);
+            }else if(sinkName.equals("JSONL")){
+                sinks.add(new JsonLinesSink(new File(outputFolder, "px_projects.jsonl"), compression));
+            }else if(sinkName.equals("CSV")){
+                sinks.add(new SummaryCsvSink(new File(outputFolder, "px_summary.csv"), EBeyeCompression.NONE));
+            }else if(!sinkName.isEmpty()){
+                throw new IllegalArgumentException("Unknown output sink " + sinkName);
+            }
+        }
+        return new FanOutSink(sinks);
+    }
+
+    /**
+     * @return the compression of the output files in the ebeyeCompression property, NONE if it is not set
+     */
+    static EBeyeCompression ebeyeCompression() throws IOException {
+        String compression = ReadProperties.getInstance().getProperty("ebeyeCompression");
+        return (compression == null)? EBeyeCompression.NONE: EBeyeCompression.valueOf(compression.trim().toUpperCase());
+    }
+
+    /**
+     * @return the folders of the EB-eye files in the ebeyeLayout property, FLAT if it is not set
+     */
+    static EBeyeLayout ebeyeLayout() throws IOException {
+        String layout = ReadProperties.getInstance().getProperty("ebeyeLayout");
+        return (layout == null)? EBeyeLayout.FLAT: EBeyeLayout.valueOf(layout.trim().toUpperCase());
+    }
+
+    /**
+     * Loop the projects of ProteomeCentral and generate their EB-eye files. The crawl is a pipeline of
+     * stages joined by bounded queues: fetch (I/O, fetchThreads), parse (validation and unmarshalling,
+     * parseThreads), transform (transformThreads) and write (writerThreads). Up to crawlWindow accessions
+     * are in the pipeline at the same time, the results are taken back in the order of the accessions,
+     * so the crawl stops after loopGap missing accessions as a sequential loop does.
+     */
+    public static void searchFilesWeb(int loopGap, int endPoint, String pxPrefix, String pxURL, final String outputFolder, List<String> databases) throws Exception {
+
+        AsyncProjectHandler writeStage = createWriteStage(new ProjectHandler() {
+            @Override
+            public void handle(Project proj) throws Exception {
+                writeProject(proj, outputFolder);
+            }
+        });
+        metrics.setWriteQueue(writeStage);
 
-        int initialGap = loopGap;
+        PxWebCrawl crawl = createCrawl(loopGap, endPoint, pxPrefix, pxURL, databases);
 
-        for(int i = 0; i < endPoint && loopGap > 0; i ++){
+        try {
+            Project proj;
+            while((proj = crawl.next(crawlWindow)) != null){
 
-            String pxID = (pxPrefix + String.valueOf(i));
+                writeStage.handle(proj);
 
-            pxID = pxID.substring( pxID.length() - 6, pxID.length());
+                recordProject(proj);
 
-            String pxURLProject = String.format(pxURL, pxID);
+                logger.info(crawl.getFoundGap() + "|" + proj.getAccession() + "|" + proj.getRepositoryName() + "|" + LOG_DATE_FORMAT.get().format(proj.getPublicationDate()) + "|" + ProjectSummary.getType(proj) + "|" + ProjectSummary.getFileType(proj) + "|" + ProjectSummary.getNumberFiles(proj) + "|" + ProjectSummary.getNumberPeakFiles(proj));
+            }
+        } finally {
+            // drain the accessions fetched ahead, then flush the projects still in the write queue
+            crawl.close();
+            writeStage.close();
+            metrics.setWriteQueue(null);
+        }
+        logger.info("Search for Files has been FINISHED!!");
+    }
 
-            String page = getPage(pxURLProject);
+    /**
+     * Read the unmarshaller and the settings of the crawl and write stages from the properties
+     */
+    static void loadCrawlSettings() throws IOException {
+        String unmarshaller = ReadProperties.getInstance().getProperty("pxUnmarshaller");
+        if(unmarshaller != null)
+            ReaderPxXML.setUnmarshallerType(PxUnmarshallerType.valueOf(unmarshaller.trim().toUpperCase()));
+
+        String threads = ReadProperties.getInstance().getProperty("writerThreads");
+        if(threads != null)
+            writerThreads = Integer.valueOf(threads.trim());
+        String queueSize = ReadProperties.getInstance().getProperty("writerQueueSize");
+        if(queueSize != null)
+            writerQueueSize = Integer.valueOf(queueSize.trim());
+
+        fetchThreads = intProperty("fetchThreads", fetchThreads);
+        parseThreads = intProperty("parseThreads", parseThreads);
+        transformThreads = intProperty("transformThreads", transformThreads);
+        stageQueueSize = intProperty("stageQueueSize", stageQueueSize);
+        crawlWindow = intProperty("crawlWindow", crawlWindow);
+    }
 
-            if (page != null && isDataset(page)){
+    /**
+     * Publish the metrics of the crawl over JMX and Prometheus, as configured in the properties
+     * @return the Prometheus endpoint, null if it is not configured
+     */
+    static PrometheusEndpoint startMetrics() throws IOException, JMException {
+        String jmx = ReadProperties.getInstance().getProperty("metricsJmx");
+        if(jmx != null && Boolean.valueOf(jmx.trim()))
+            metrics.registerMBeans();
+        PrometheusEndpoint prometheus = null;
+        String prometheusPort = ReadProperties.getInstance().getProperty("metricsPrometheusPort");
+        if(prometheusPort != null && Integer.valueOf(prometheusPort.trim()) > 0){
+            prometheus = new PrometheusEndpoint(metrics, Integer.valueOf(prometheusPort.trim()));
+            logger.info("Prometheus metrics at http://localhost:" + prometheus.getPort() + "/metrics");
+        }
+        return prometheus;
+    }
 
+    /**
+     * Start a web crawl with the stage settings of the properties
+     */
+    static PxWebCrawl createCrawl(int loopGap, int endPoint, String pxPrefix, String pxURL, List<String> databases) {
+        return new PxWebCrawl(loopGap, endPoint, pxPrefix, pxURL, databases, stageThreads(fetchThreads),
+                stageThreads(parseThreads), stageThreads(transformThreads), stageQueueSize, crawlWindow);
+    }
 
-                Project proj = ReaderPxXML.readProject(page);
+    /**
+     * Start a web crawl on stages shared with other crawls, with the window of the properties
+     */
+    static PxWebCrawl createCrawl(PxWebCrawl.Pipeline pipeline, int loopGap, int endPoint, String pxPrefix, String pxURL, List<String> databases) {
+        return new PxWebCrawl(pipeline, loopGap, endPoint, pxPrefix, pxURL, databases, crawlWindow);
+    }
 
-                if(proj != null && databases.contains(proj.getRepositoryName())){
-                    //Sometimes PeptideAtlas change the original identifier for that reason we need to override this value
-                    proj.setAccession("PXD" + pxID);
+    /**
+     * Start the fetch, parse and transform stages of the properties, to be shared by several crawls
+     */
+    static PxWebCrawl.Pipeline createPipeline() {
+        return new PxWebCrawl.Pipeline(stageThreads(fetchThreads), stageThreads(parseThreads),
+                stageThreads(transformThreads), stageQueueSize);
+    }
 
-                    WriterEBeyeXML writer = new WriterEBeyeXML(proj,new File(outputFolder),null);
+    /**
+     * Start a write stage with the writer threads and queue size of the properties
+     */
+    static AsyncProjectHandler createWriteStage(ProjectHandler writer) {
+        return new AsyncProjectHandler(writer, writerQueueSize, writerThreads, 16);
+    }
 
-                    writer.generate();
+    /**
+     * Start writer threads with the writer threads and queue size of the properties, for the callers
+     * writing more than a project per item
+     */
+    static <T> WorkerPool<T> createWritePool(WorkerPool.Handler<T> writer) {
+        return new WorkerPool<T>("writer", writerQueueSize, writerThreads, 16, false, writer);
+    }
 
-                    SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+    /**
+     * Generate the EB-eye files of all the projects in a bulk PX dump. The dump is streamed and the projects
+     * are written by a pool of threads.
+     * @param bulkFile concatenated or wrapped PX XML files
+     * @param outputFolder output folder
+     * @param databases repositories to be exported
+     * @param threads number of threads writing the EB-eye files
+     */
+    public static void searchFilesBulk(File bulkFile, final String outputFolder, final List<String> databases, int threads) throws Exception {
 
-                    logger.info(loopGap + "|" + proj.getAccession() + "|" + proj.getRepositoryName() + "|" + dateFormat.format(proj.getPublicationDate()) + "|" + getType(proj) + "|" + getFileType(proj) + "|" + getNumberFiles(proj) + "|" + getNumberPeakFile(proj));
-                }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        InputStream in = new BufferedInputStream(new FileInputStream(bulkFile));
 
-                logger.debug(proj.getAccession()  + "|PX PROJECT FOUND IT|");
+        try {
+            int count = ReaderPxXML.parseBulkDocument(in, executor, threads * 4, new ProjectHandler() {
+                @Override
+                public void handle(Project proj) throws Exception {
+                    if(databases.contains(proj.getRepositoryName())){
 
+                        writeProject(proj, outputFolder);
 
-                loopGap = initialGap;
+                        recordProject(proj);
 
-            }else{
-                loopGap--;
-                logger.debug(loopGap + "| LOGGER GAP CHANGE|");
-            }
+                        logger.info(proj.getAccession() + "|" + proj.getRepositoryName() + "|" + LOG_DATE_FORMAT.get().format(proj.getPublicationDate()) + "|" + ProjectSummary.getType(proj) + "|" + ProjectSummary.getFileType(proj) + "|" + ProjectSummary.getNumberFiles(proj) + "|" + ProjectSummary.getNumberPeakFiles(proj));
+                    }
+                }
+            });
+            logger.info("Bulk file has been FINISHED!! " + count + " datasets");
+        } finally {
+            in.close();
+            executor.shutdown();
         }
-        logger.info("Search for Files has been FINISHED!!");
     }
 
-    private static String getNumberPeakFile(Project proj) {
-        if(proj != null && proj.getDataFiles()!=null && !proj.getDataFiles().isEmpty()){
-            Integer count = 0;
-            for(String file: proj.getDataFiles()){
-                file = file.toLowerCase();
-                if(file.endsWith("mgf") || file.endsWith("pkl") || file.endsWith("mzml") || file.endsWith("ms2") || file.endsWith("dta") || file.endsWith("apl")
-                        || file.endsWith("mgf.gz") || file.endsWith("pkl.gz") || file.endsWith("mzml.gz") || file.endsWith("ms2.gz") || file.endsWith("dta.gz") || file.endsWith("apl.gz"))
-                    count++;
-            }
-            return count.toString();
-        }
-        return null;
+    /**
+     * Send the project to all the output sinks
+     * @param proj project
+     * @param outputFolder output folder, used when no sink has been configured
+     */
+    private static void writeProject(Project proj, String outputFolder) throws Exception {
+        writeProject(proj, getSink(outputFolder));
     }
 
-    private static String getNumberFiles(Project proj) {
-        if(proj != null && proj.getDataFiles()!=null && !proj.getDataFiles().isEmpty()){
-            Integer count = 0;
-            for(String file: proj.getDataFiles()){
-                file = file.toLowerCase();
-                if(file.endsWith("xml") || file.endsWith("xml.gz") && file.contains("pride")){
-                    count++;
-                }else if(file.endsWith("mzid") || file.endsWith("mzid.gz")){
-                    count++;
-                }
-            }
-            return count.toString();
+    /**
+     * Send the project to a sink, timing the write in the metrics and the JFR events
+     */
+    static void writeProject(Project proj, ProjectSink sink) throws Exception {
+        DatasetTrace trace = DatasetTrace.start();
+        trace.setAccession(proj.getAccession());
+        trace.setProject(proj);
+        trace.begin(DatasetTrace.Stage.WRITE);
+        long start = System.nanoTime();
+        try {
+            sink.write(proj);
+        } catch (Exception e) {
+            trace.end(DatasetTrace.Stage.WRITE);
+            trace.commit(DatasetTrace.Outcome.FAILED);
+            throw e;
         }
-        return null;
+        metrics.record(PipelineMetrics.Stage.WRITE, start);
+        trace.end(DatasetTrace.Stage.WRITE);
+        trace.commit(DatasetTrace.Outcome.WRITTEN);
     }
 
-    private static String getFileType(Project proj) {
-        String type = "PARTIAL";
-        if(proj != null && proj.getDataFiles()!=null && !proj.getDataFiles().isEmpty()){
-            for(String file: proj.getDataFiles()){
-                file = file.toLowerCase();
-                if(file.endsWith("xml") || file.endsWith("xml.gz") && file.contains("pride")){
-                    type = "PRIDE XML";
-                }else if(file.endsWith("mzid") || file.endsWith("mzid.gz")){
-                    type = "MZIDENTML";
-                }
-            }
-        }
-        return type;
-    }
-
-    private static String getType(Project proj) {
-        String type = "PARTIAL";
-        if(proj != null && proj.getDataFiles()!=null && !proj.getDataFiles().isEmpty()){
-            for(String file: proj.getDataFiles()) {
-                file = file.toLowerCase();
-                if (file.endsWith("xml") || file.endsWith("xml.gz") && file.contains("pride")) {
-                    type = "COMPLETE";
-                } else if (file.endsWith("mzid") || file.endsWith("mzid.gz")) {
-                    type = "COMPLETE";
-                }
-            }
+    /**
+     * Add the project to the crawl statistics, and write the report every statisticsInterval datasets
+     */
+    private static void recordProject(Project proj) throws IOException {
+        statistics.record(proj);
+        if(statisticsInterval > 0 && statistics.getDatasets() % statisticsInterval == 0)
+            writeStatistics();
+    }
+
+    /**
+     * Write the report of the crawl statistics, if it has been configured
+     */
+    private static synchronized void writeStatistics() throws IOException {
+        if(statisticsFile != null){
+            statistics.write(statisticsFile);
+            logger.info("Crawl statistics written to " + statisticsFile + "|" + statistics.getDatasets() + " datasets");
         }
-        return type;
+    }
+
+    /**
+     * @return the integer value of the property, the default value if it is not set
+     */
+    static int intProperty(String name, int defaultValue) throws IOException {
+        String value = ReadProperties.getInstance().getProperty(name);
+        return (value == null || value.trim().isEmpty())? defaultValue: Integer.valueOf(value.trim());
+    }
+
+    /**
+     * @return the number of threads of a crawl stage, one per core when it is not positive
+     */
+    private static int stageThreads(int threads) {
+        return (threads > 0)? threads: Runtime.getRuntime().availableProcessors();
+    }
+
+    private static synchronized ProjectSink getSink(String outputFolder) {
+        if(outputSink == null)
+            outputSink = new EBeyeSink(new File(outputFolder), EBeyeCompression.NONE);
+        return outputSink;
     }
 
     /**
@@ -184,12 +447,9 @@ public class GeneratePxEbeFiles {
      * @return The page as a String
      * @throws Exception Thrown on any problem.
      */
-    private static String getPage(String urlString) throws Exception {
-        // check if the page is cached
-
+    static String getPage(String urlString) throws Exception {
         try{
-            if (pageBuffer.containsKey(urlString))
-                return pageBuffer.get(urlString);
+            long start = System.nanoTime();
 
             // create the url
             URL url = new URL(urlString);
@@ -207,7 +467,8 @@ public class GeneratePxEbeFiles {
             BufferedReader in = null;
             StringBuilder page = new StringBuilder();
 
-            in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+            CountingInputStream counter = new CountingInputStream(connection.getInputStream());
+            in = new BufferedReader(new InputStreamReader(counter));
 
             String line;
 
@@ -215,9 +476,13 @@ public class GeneratePxEbeFiles {
                 page.append(line);
                 page.append("\n");
             }
+            in.close();
 
+            metrics.pageFetched(counter.getByteCount());
+            metrics.record(PipelineMetrics.Stage.FETCH, start);
             return page.toString();
         }catch (Exception ioe) {
+            metrics.fetchFailed();
             logger.warn("Failed to read web page");
         }
         logger.debug(urlString);
@@ -229,7 +494,7 @@ public class GeneratePxEbeFiles {
         return pxSubmission.contains(PRIDE_PATTERN);
     }
 
-    private static boolean isDataset(String pxSubmission){
+    static boolean isDataset(String pxSubmission){
             return pxSubmission.contains(PXSUBMISSION_PATTERN);
     }
 }
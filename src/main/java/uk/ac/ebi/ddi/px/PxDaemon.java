@@ -0,0 +1,545 @@
+package uk.ac.ebi.ddi.px;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.utils.EBeyeSink;
+import uk.ac.ebi.ddi.px.utils.JsonWriter;
+import uk.ac.ebi.ddi.px.utils.PrometheusEndpoint;
+import uk.ac.ebi.ddi.px.utils.ProjectSink;
+import uk.ac.ebi.ddi.px.utils.ReadProperties;
+import uk.ac.ebi.ddi.px.utils.ReaderPxXML;
+import uk.ac.ebi.ddi.px.utils.WorkerPool;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resident service reindexing datasets on demand, so a curator gets a dataset refreshed in seconds
+ * instead of at the next nightly run. The JVM stays warm between the requests: the JAXB context, the
+ * parsers and the compiled code of the crawl are ready, and the EB-eye sink stays open.
+ *
+ * The requests are taken on the loopback interface:
+ * <ul>
+ *     <li>POST /reindex?accession=PXD000001,PXD000002 reindexes the given accessions</li>
+ *     <li>POST /reindex?from=PXD000100&amp;to=PXD000200 reindexes a range of accessions</li>
+ *     <li>POST /reindex?repository=PRIDE crawls ProteomeCentral for the datasets of a repository</li>
+ *     <li>GET /jobs and GET /jobs/{id} report the state and progress of the jobs</li>
+ *     <li>DELETE /jobs/{id} cancels a job</li>
+ * </ul>
+ * The jobs run in daemonJobs threads, each one with its own crawl, and share the fetch, parse,
+ * transform and write threads of the service. They write one EB-eye file per project in the output
+ * folder, replacing the previous file of the dataset; the files of the whole release (manifest,
+ * batched EB-eye files, JSON Lines and CSV) are left to the batch runs. When the service is closed
+ * the running jobs are cancelled.
+ */
+public class PxDaemon implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PxDaemon.class);
+
+    /**
+     * Finished jobs kept for the reports
+     */
+    private static final int MAX_JOBS = 1000;
+
+    /**
+     * Time given to the cancelled jobs to stop when the service is closed
+     */
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final String pxURL;
+
+    private final String pxPrefix;
+
+    private final int endPoint;
+
+    private final int loopGap;
+
+    private final ProjectSink sink;
+
+    private final PxWebCrawl.Pipeline pipeline;
+
+    private final WorkerPool<JobProject> writer;
+
+    private final ExecutorService executor;
+
+    private final HttpServer server;
+
+    private final AtomicInteger jobIds = new AtomicInteger();
+
+    private final Map<Integer, ReindexJob> jobs = new LinkedHashMap<Integer, ReindexJob>();
+
+    /**
+     * Start the service
+     * @param sink output of the reindexed projects, closed with the service
+     * @param pxURL URL of a dataset with %s in place of the six digits of the accession
+     * @param pxPrefix zeros padding the number of the accessions
+     * @param endPoint number of accessions crawled at most by the repository jobs
+     * @param loopGap missing accessions after which the repository jobs stop
+     * @param port local port, 0 for any free port
+     * @param jobThreads number of jobs running at the same time
+     * @throws IOException if the port can not be bound
+     */
+    public PxDaemon(ProjectSink sink, String pxURL, String pxPrefix, int endPoint, int loopGap, int port, int jobThreads) throws IOException {
+        this.sink = sink;
+        this.pxURL = pxURL;
+        this.pxPrefix = pxPrefix;
+        this.endPoint = endPoint;
+        this.loopGap = loopGap;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.pipeline = GeneratePxEbeFiles.createPipeline();
+        this.writer = GeneratePxEbeFiles.createWritePool(new WorkerPool.Handler<JobProject>() {
+            @Override
+            public void handle(JobProject item) {
+                write(item.job, item.project);
+            }
+        });
+        this.executor = Executors.newFixedThreadPool(jobThreads, new ThreadFactory() {
+            private final AtomicInteger threads = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "px-reindex-" + threads.getAndIncrement());
+            }
+        });
+        server.createContext("/reindex", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serveReindex(exchange);
+            }
+        });
+        server.createContext("/jobs", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serveJobs(exchange);
+            }
+        });
+        server.setExecutor(null);
+        server.start();
+    }
+
+    /**
+     * Run the service until the process is stopped
+     * @param args output folder of the EB-eye files
+     */
+    public static void main(String[] args) throws Exception {
+        if(args == null || args.length < 1 || args[0] == null){
+            System.err.println("Usage: PxDaemon <output folder>");
+            System.exit(-1);
+        }
+        ReadProperties properties = ReadProperties.getInstance();
+        GeneratePxEbeFiles.loadCrawlSettings();
+        final PrometheusEndpoint prometheus = GeneratePxEbeFiles.startMetrics();
+
+        warmUp(GeneratePxEbeFiles.intProperty("daemonWarmup", 20));
+
+        EBeyeSink sink = new EBeyeSink(new File(args[0]), GeneratePxEbeFiles.ebeyeCompression());
+        sink.setLayout(GeneratePxEbeFiles.ebeyeLayout());
+
+        final PxDaemon daemon = new PxDaemon(sink, properties.getProperty("pxURL"), properties.getProperty("pxPrefix"),
+                Integer.valueOf(properties.getProperty("pxEnd").trim()), Integer.valueOf(properties.getProperty("loopGap").trim()),
+                GeneratePxEbeFiles.intProperty("daemonPort", 8095), GeneratePxEbeFiles.intProperty("daemonJobs", 2));
+        logger.info("Reindex service at http://localhost:" + daemon.getPort() + "/reindex");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.close();
+                    if(prometheus != null)
+                        prometheus.close();
+                } catch (IOException e) {
+                    logger.error("Error stopping the reindex service|" + e.getMessage());
+                }
+            }
+        }, "px-daemon-shutdown"));
+    }
+
+    /**
+     * Read and map synthetic datasets, so the first requests do not pay for the JAXB context,
+     * the parsers and the compilation of the crawl
+     * @param datasets number of datasets
+     */
+    static void warmUp(int datasets) throws Exception {
+        long start = System.currentTimeMillis();
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        for(int i = 1; i <= datasets; i++){
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            generator.write(PxCorpusGenerator.accession(i), out);
+            ReaderPxXML.readProject(out.toString("UTF-8"));
+        }
+        logger.info("Warm up|" + datasets + " datasets|" + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * @return the port the service listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Queue a reindex job
+     * @param request description of the request
+     * @param numbers numbers of the accessions, null to crawl all of them
+     * @param databases repositories of the projects written
+     * @return the job
+     */
+    ReindexJob submit(String request, int[] numbers, List<String> databases) {
+        final ReindexJob job = new ReindexJob(jobIds.incrementAndGet(), request, numbers, databases);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            if(jobs.size() > MAX_JOBS)
+                removeFinishedJob();
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                runJob(job);
+            }
+        });
+        logger.info("Reindex job " + job.getId() + " queued|" + request);
+        return job;
+    }
+
+    /**
+     * @return the job, null if it does not exist
+     */
+    ReindexJob getJob(int id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    /**
+     * Cancel a job
+     * @return false if the job has already ended
+     */
+    boolean cancel(ReindexJob job) {
+        boolean cancelled = job.cancel();
+        if(cancelled)
+            logger.info("Reindex job " + job.getId() + " cancelled");
+        return cancelled;
+    }
+
+    /**
+     * Stop taking requests, cancel the jobs, wait for the projects already crawled to be written and close the sink
+     */
+    @Override
+    public void close() throws IOException {
+        server.stop(0);
+        synchronized (jobs) {
+            for(ReindexJob job: jobs.values())
+                job.cancel();
+        }
+        executor.shutdown();
+        try {
+            if(!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)){
+                logger.warn("Reindex jobs still running after " + CLOSE_TIMEOUT_SECONDS + " s, they are abandoned");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            pipeline.close();
+            writer.close();
+        } finally {
+            sink.close();
+        }
+    }
+
+    private void runJob(ReindexJob job) {
+        int[] numbers = job.getNumbers();
+        Exception error = null;
+        PxWebCrawl crawl = null;
+        try {
+            // the requested accessions are all crawled, the gap only stops the repository crawls
+            crawl = GeneratePxEbeFiles.createCrawl(pipeline, (numbers == null)? loopGap: Integer.MAX_VALUE, endPoint,
+                    pxPrefix, pxURL, job.getDatabases());
+            if(numbers != null)
+                crawl.setAccessions(numbers);
+            if(job.start(crawl)){
+                Project proj;
+                while(!job.isCancelled() && (proj = crawl.next(Integer.MAX_VALUE)) != null){
+                    // counted before put, the writer threads may write the project before put returns
+                    job.queued();
+                    try {
+                        writer.put(new JobProject(job, proj));
+                    } catch (InterruptedException | RuntimeException e) {
+                        job.unqueued();
+                        throw e;
+                    }
+                }
+            }
+        } catch (InterruptedException | InterruptedIOException e) {
+            // cancelled
+        } catch (Exception e) {
+            error = e;
+            logger.error("Reindex job " + job.getId() + " failed|" + e.getMessage(), e);
+        } finally {
+            try {
+                if(crawl != null)
+                    crawl.close();
+                job.awaitWrites();
+            } catch (InterruptedException | InterruptedIOException e) {
+                // cancelled, the projects already queued are still written
+            } catch (IOException e) {
+                if(error == null)
+                    error = e;
+            }
+        }
+        job.finish(error);
+        // a cancel racing with the end of the job must not interrupt the next one
+        Thread.interrupted();
+        logger.info("Reindex job " + job.getId() + " " + job.getStatus().name().toLowerCase());
+    }
+
+    /**
+     * Write a project of a job, from the writer threads
+     */
+    private void write(ReindexJob job, Project proj) {
+        Throwable error = null;
+        try {
+            GeneratePxEbeFiles.writeProject(proj, sink);
+            logger.info("Reindex job " + job.getId() + "|" + proj.getAccession() + "|" + proj.getRepositoryName());
+        } catch (Throwable e) {
+            error = e;
+            logger.error("ERROR WRITING THE PROJECT|" + proj.getAccession() + "|" + e.getMessage(), e);
+        }
+        job.written(error);
+    }
+
+    private void removeFinishedJob() {
+        for(Map.Entry<Integer, ReindexJob> entry: jobs.entrySet()){
+            if(entry.getValue().isEnded()){
+                jobs.remove(entry.getKey());
+                return;
+            }
+        }
+    }
+
+    private void serveReindex(HttpExchange exchange) throws IOException {
+        try {
+            if(!"POST".equals(exchange.getRequestMethod())){
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respondError(exchange, 405, "Use POST to request a reindex");
+                return;
+            }
+            Map<String, List<String>> parameters = parameters(exchange.getRequestURI().getRawQuery());
+            ReindexJob job;
+            try {
+                job = submit(parameters);
+            } catch (IllegalArgumentException e) {
+                respondError(exchange, 400, e.getMessage());
+                return;
+            }
+            exchange.getResponseHeaders().set("Location", "/jobs/" + job.getId());
+            respond(exchange, 202, toJson(Collections.singletonList(job), false));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serveJobs(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if(!"GET".equals(method) && !"DELETE".equals(method)){
+                exchange.getResponseHeaders().set("Allow", "GET, DELETE");
+                respondError(exchange, 405, "Use GET to read the jobs and DELETE to cancel one");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if(path.equals("/jobs") || path.equals("/jobs/")){
+                if("DELETE".equals(method)){
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    respondError(exchange, 405, "Cancel the jobs one by one");
+                    return;
+                }
+                List<ReindexJob> all;
+                synchronized (jobs) {
+                    all = new ArrayList<ReindexJob>(jobs.values());
+                }
+                respond(exchange, 200, toJson(all, true));
+                return;
+            }
+            ReindexJob job = null;
+            try {
+                job = getJob(Integer.parseInt(path.substring("/jobs/".length())));
+            } catch (NumberFormatException e) {
+                // unknown job
+            }
+            if(job == null)
+                respondError(exchange, 404, "Unknown job " + path.substring("/jobs/".length()));
+            else if("DELETE".equals(method) && !cancel(job))
+                respondError(exchange, 409, "The job " + job.getId() + " has already ended");
+            else
+                respond(exchange, "DELETE".equals(method)? 202: 200, toJson(Collections.singletonList(job), false));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Create the job of the parameters of a reindex request
+     * @throws IllegalArgumentException if the request is not valid
+     */
+    private ReindexJob submit(Map<String, List<String>> parameters) {
+        List<String> accessions = parameters.get("accession");
+        List<String> from = parameters.get("from");
+        List<String> to = parameters.get("to");
+        List<String> repository = parameters.get("repository");
+        int kinds = (accessions == null? 0: 1) + (from == null && to == null? 0: 1) + (repository == null? 0: 1);
+        if(kinds != 1)
+            throw new IllegalArgumentException("Give one of accession, from and to, or repository");
+
+        if(accessions != null){
+            List<Integer> numbers = new ArrayList<Integer>();
+            for(String value: accessions)
+                for(String accession: value.split(","))
+                    if(!accession.trim().isEmpty())
+                        numbers.add(accessionNumber(accession.trim()));
+            if(numbers.isEmpty())
+                throw new IllegalArgumentException("No accession given");
+            int[] array = new int[numbers.size()];
+            for(int i = 0; i < array.length; i++)
+                array[i] = numbers.get(i);
+            return submit("accession=" + join(accessions), array, GeneratePxEbeFiles.databases);
+        }
+
+        if(repository == null){
+            if(from == null || to == null || from.size() != 1 || to.size() != 1)
+                throw new IllegalArgumentException("Give one from and one to accession");
+            int first = accessionNumber(from.get(0).trim());
+            int last = accessionNumber(to.get(0).trim());
+            if(first > last)
+                throw new IllegalArgumentException("The range " + from.get(0) + " to " + to.get(0) + " is empty");
+            int[] array = new int[last - first + 1];
+            for(int i = 0; i < array.length; i++)
+                array[i] = first + i;
+            return submit("from=" + from.get(0) + "&to=" + to.get(0), array, GeneratePxEbeFiles.databases);
+        }
+
+        if(repository.size() != 1)
+            throw new IllegalArgumentException("Give one repository");
+        for(String database: GeneratePxEbeFiles.databases)
+            if(database.equalsIgnoreCase(repository.get(0).trim()))
+                return submit("repository=" + database, null, Collections.singletonList(database));
+        throw new IllegalArgumentException("Unknown repository " + repository.get(0) + ", use one of " + GeneratePxEbeFiles.databases);
+    }
+
+    /**
+     * @return the number of an accession given as PXD000123 or 123
+     * @throws IllegalArgumentException if it is not an accession of ProteomeCentral
+     */
+    private static int accessionNumber(String accession) {
+        String digits = accession.toUpperCase().startsWith("PXD")? accession.substring(3): accession;
+        if(digits.isEmpty() || digits.length() > 6)
+            throw new IllegalArgumentException("Invalid accession " + accession);
+        for(int i = 0; i < digits.length(); i++)
+            if(digits.charAt(i) < '0' || digits.charAt(i) > '9')
+                throw new IllegalArgumentException("Invalid accession " + accession);
+        return Integer.parseInt(digits);
+    }
+
+    private static Map<String, List<String>> parameters(String query) throws IOException {
+        Map<String, List<String>> parameters = new LinkedHashMap<String, List<String>>();
+        if(query == null)
+            return parameters;
+        for(String parameter: query.split("&")){
+            if(parameter.isEmpty())
+                continue;
+            int equals = parameter.indexOf('=');
+            String name = URLDecoder.decode((equals < 0)? parameter: parameter.substring(0, equals), "UTF-8");
+            String value = (equals < 0)? "": URLDecoder.decode(parameter.substring(equals + 1), "UTF-8");
+            List<String> values = parameters.get(name);
+            if(values == null){
+                values = new ArrayList<String>();
+                parameters.put(name, values);
+            }
+            values.add(value);
+        }
+        return parameters;
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for(String value: values){
+            if(joined.length() > 0)
+                joined.append(',');
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    private static String toJson(List<ReindexJob> jobs, boolean list) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        if(list){
+            json.startObject();
+            json.startArray("jobs");
+        }
+        for(ReindexJob job: jobs)
+            job.write(json);
+        if(list){
+            json.endArray();
+            json.endObject();
+        }
+        return out.toString();
+    }
+
+    private static void respondError(HttpExchange exchange, int code, String message) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.startObject();
+        json.field("error", message);
+        json.endObject();
+        respond(exchange, code, out.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    /**
+     * Project crawled by a job, queued for the writer threads
+     */
+    private static class JobProject {
+
+        private final ReindexJob job;
+
+        private final Project project;
+
+        private JobProject(ReindexJob job, Project project) {
+            this.job = job;
+            this.project = project;
+        }
+    }
+}
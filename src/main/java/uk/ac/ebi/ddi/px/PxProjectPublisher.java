@@ -0,0 +1,190 @@
+package uk.ac.ebi.ddi.px;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.utils.ReadProperties;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reactive Streams publisher of the ProteomeCentral projects, for the services embedding the reader
+ * instead of reading the EB-eye files back from disk. Every subscription runs its own web crawl (the
+ * fetch, parse and transform stages of {@link GeneratePxEbeFiles#searchFilesWeb}) and gets the projects
+ * of the databases in the order of the accessions. The demand drives the crawl: no more accessions than
+ * the projects requested and not delivered yet are fetched ahead, up to the crawlWindow, so a slow
+ * subscriber slows the requests sent to ProteomeCentral. On Java 9 or later it can be adapted to a
+ * java.util.concurrent.Flow.Publisher with org.reactivestreams.FlowAdapters.
+ */
+public class PxProjectPublisher implements Publisher<Project> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PxProjectPublisher.class);
+
+    private final String pxURL;
+
+    private final String pxPrefix;
+
+    private final int endPoint;
+
+    private final int loopGap;
+
+    private final List<String> databases;
+
+    /**
+     * @param pxURL URL of a dataset with %s in place of the six digits of the accession
+     * @param pxPrefix zeros padding the number of the accessions
+     * @param endPoint number of accessions to crawl at most
+     * @param loopGap missing accessions after which the crawl completes
+     * @param databases repositories of the projects published
+     */
+    public PxProjectPublisher(String pxURL, String pxPrefix, int endPoint, int loopGap, List<String> databases) {
+        this.pxURL = pxURL;
+        this.pxPrefix = pxPrefix;
+        this.endPoint = endPoint;
+        this.loopGap = loopGap;
+        this.databases = databases;
+    }
+
+    /**
+     * Create the publisher of the crawl configured in px.properties, with the unmarshaller and the
+     * stage settings of the properties
+     */
+    public static PxProjectPublisher fromProperties() throws IOException {
+        ReadProperties properties = ReadProperties.getInstance();
+        GeneratePxEbeFiles.loadCrawlSettings();
+        return new PxProjectPublisher(properties.getProperty("pxURL"), properties.getProperty("pxPrefix"),
+                Integer.valueOf(properties.getProperty("pxEnd").trim()),
+                Integer.valueOf(properties.getProperty("loopGap").trim()), GeneratePxEbeFiles.databases);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Project> subscriber) {
+        if(subscriber == null)
+            throw new NullPointerException("The subscriber must not be null");
+        CrawlSubscription subscription = new CrawlSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        Thread thread = new Thread(subscription, "px-publisher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Subscription running the crawl in its own thread, the only one signalling the subscriber
+     */
+    private class CrawlSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super Project> subscriber;
+
+        private long demand = 0;
+
+        private boolean cancelled = false;
+
+        private Throwable requestError = null;
+
+        private CrawlSubscription(Subscriber<? super Project> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if(n <= 0)
+                requestError = new IllegalArgumentException("The number of projects requested must be positive (rule 3.9), got " + n);
+            else
+                demand = (demand + n < 0)? Long.MAX_VALUE: demand + n;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        private synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Wait until projects are requested
+         * @return the projects requested and not delivered yet, 0 if the subscription has ended
+         */
+        private synchronized long awaitDemand() throws InterruptedException {
+            while(demand == 0 && !cancelled && requestError == null)
+                wait();
+            return (cancelled || requestError != null)? 0: demand;
+        }
+
+        private synchronized void delivered() {
+            if(demand != Long.MAX_VALUE)
+                demand--;
+        }
+
+        @Override
+        public void run() {
+            PxWebCrawl crawl = null;
+            try {
+                // a crawl that can not start fails the subscription, requested or not
+                try {
+                    crawl = GeneratePxEbeFiles.createCrawl(loopGap, endPoint, pxPrefix, pxURL, databases);
+                } catch (Throwable e) {
+                    cancel();
+                    subscriber.onError(e);
+                    return;
+                }
+
+                while(true){
+                    long requested = awaitDemand();
+                    if(requested == 0){
+                        Throwable error;
+                        synchronized (this) {
+                            error = cancelled? null: requestError;
+                            cancelled = true;
+                        }
+                        if(error != null)
+                            subscriber.onError(error);
+                        return;
+                    }
+
+                    Project project;
+                    try {
+                        project = crawl.next((int) Math.min(requested, Integer.MAX_VALUE));
+                    } catch (Throwable e) {
+                        if(!isCancelled()){
+                            cancel();
+                            subscriber.onError(e);
+                        }
+                        return;
+                    }
+
+                    if(isCancelled())
+                        return;
+                    if(project == null){
+                        cancel();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    delivered();
+                    subscriber.onNext(project);
+                }
+            } catch (InterruptedException e) {
+                logger.debug("Publisher interrupted");
+            } catch (Throwable e) {
+                // the subscriber failed (rule 2.13), the subscription is considered cancelled
+                cancel();
+                logger.error("ERROR IN THE SUBSCRIBER|" + e.getMessage(), e);
+            } finally {
+                if(crawl != null){
+                    try {
+                        crawl.close();
+                    } catch (IOException e) {
+                        logger.warn("Failed to stop the crawl|" + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package uk.ac.ebi.ddi.px;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.utils.DatasetTrace;
+import uk.ac.ebi.ddi.px.utils.OrderedCompletion;
+import uk.ac.ebi.ddi.px.utils.PipelineItem;
+import uk.ac.ebi.ddi.px.utils.PipelineMetrics;
+import uk.ac.ebi.ddi.px.utils.PipelineSink;
+import uk.ac.ebi.ddi.px.utils.PipelineStage;
+import uk.ac.ebi.ddi.px.utils.ReaderPxXML;
+import uk.ac.ebi.ddi.px.utils.TransformContext;
+import uk.ac.ebi.ddi.px.xml.px.io.PxReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Crawl of the ProteomeCentral datasets as a pipeline of stages joined by bounded queues: fetch (I/O),
+ * parse (validation and unmarshalling) and transform. Up to window accessions are in the pipeline at the
+ * same time, the results are taken back in the order of the accessions, so the crawl stops after loopGap
+ * missing accessions as a sequential loop does. The projects are pulled with {@link #next(int)}, the
+ * caller decides how many accessions are fetched ahead. The stages can be shared by several crawls
+ * running at the same time, see {@link Pipeline}.
+ */
+class PxWebCrawl implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PxWebCrawl.class);
+
+    private static final PipelineMetrics metrics = PipelineMetrics.getInstance();
+
+    private final int initialGap;
+
+    private int endPoint;
+
+    private final String pxPrefix;
+
+    private final String pxURL;
+
+    private final List<String> databases;
+
+    // set when the crawl ends, the accessions fetched ahead are then skipped
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+
+    private final OrderedCompletion<CrawlItem> completion;
+
+    private final Pipeline pipeline;
+
+    /**
+     * True if the stages were started for this crawl only, they are then stopped with it
+     */
+    private final boolean ownPipeline;
+
+    private int loopGap;
+
+    private int foundGap;
+
+    /**
+     * Numbers of the accessions crawled, null for 0 to endPoint - 1
+     */
+    private int[] numbers = null;
+
+    private int next = 0;
+
+    private volatile int completed = 0;
+
+    private volatile String currentAccession = null;
+
+    /**
+     * Start the stages of the crawl
+     * @param loopGap missing accessions after which the crawl stops, positive
+     * @param endPoint number of accessions to crawl at most
+     * @param pxPrefix zeros padding the number of the accessions
+     * @param pxURL URL of a dataset with %s in place of the six digits of the accession
+     * @param databases repositories of the projects returned
+     * @param fetchThreads threads of the fetch stage
+     * @param parseThreads threads of the parse stage
+     * @param transformThreads threads of the transform stage
+     * @param queueSize maximum items waiting in the queue of every stage
+     * @param window maximum accessions in the pipeline at the same time
+     */
+    PxWebCrawl(int loopGap, int endPoint, String pxPrefix, String pxURL, List<String> databases,
+               int fetchThreads, int parseThreads, int transformThreads, int queueSize, int window) {
+        this(startPipeline(loopGap, endPoint, window, fetchThreads, parseThreads, transformThreads, queueSize),
+                true, loopGap, endPoint, pxPrefix, pxURL, databases, window);
+    }
+
+    /**
+     * Start a crawl on stages shared with other crawls, they are not stopped with it
+     * @param pipeline the stages of the crawl
+     * @param loopGap missing accessions after which the crawl stops, positive
+     * @param endPoint number of accessions to crawl at most
+     * @param pxPrefix zeros padding the number of the accessions
+     * @param pxURL URL of a dataset with %s in place of the six digits of the accession
+     * @param databases repositories of the projects returned
+     * @param window maximum accessions of this crawl in the pipeline at the same time
+     */
+    PxWebCrawl(Pipeline pipeline, int loopGap, int endPoint, String pxPrefix, String pxURL, List<String> databases, int window) {
+        this(pipeline, false, loopGap, endPoint, pxPrefix, pxURL, databases, window);
+    }
+
+    private PxWebCrawl(Pipeline pipeline, boolean ownPipeline, int loopGap, int endPoint, String pxPrefix, String pxURL,
+                       List<String> databases, int window) {
+        checkSettings(loopGap, endPoint, window);
+        this.pipeline = pipeline;
+        this.ownPipeline = ownPipeline;
+        this.initialGap = loopGap;
+        this.loopGap = loopGap;
+        this.endPoint = endPoint;
+        this.pxPrefix = pxPrefix;
+        this.pxURL = pxURL;
+        this.databases = databases;
+        this.completion = new OrderedCompletion<CrawlItem>(window);
+    }
+
+    /**
+     * Start the stages of a crawl once its settings are checked, so no thread is left behind by a crawl that can not start
+     */
+    private static Pipeline startPipeline(int loopGap, int endPoint, int window, int fetchThreads, int parseThreads,
+                                          int transformThreads, int queueSize) {
+        checkSettings(loopGap, endPoint, window);
+        return new Pipeline(fetchThreads, parseThreads, transformThreads, queueSize);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the settings of the crawl are not valid
+     */
+    private static void checkSettings(int loopGap, int endPoint, int window) {
+        if(loopGap < 1 || endPoint < 0 || window < 1)
+            throw new IllegalArgumentException("The loop gap and the window must be positive and the end point not negative");
+    }
+
+    /**
+     * Crawl only the given accessions, instead of 0 to endPoint - 1. It must be called before the first project is taken.
+     * @param numbers numbers of the accessions, in the order they are crawled
+     */
+    void setAccessions(int[] numbers) {
+        if(next > 0)
+            throw new IllegalStateException("The crawl has already started");
+        this.numbers = numbers;
+        this.endPoint = numbers.length;
+    }
+
+    /**
+     * Take the next project of the databases, in the order of the accessions
+     * @param maxInFlight maximum accessions in the pipeline, limited by the window of the crawl
+     * @return the project, with the accession of the crawl, null when the crawl has finished
+     * @throws Exception the error of the stage that failed to process an accession
+     */
+    Project next(int maxInFlight) throws Exception {
+
+        while(completed < endPoint && loopGap > 0){
+
+            // keep the pipeline full with the accessions following the current one
+            long sequence;
+            while(next < endPoint && completion.getPending() < Math.max(maxInFlight, 1) && (sequence = completion.reserve()) >= 0){
+                int number = (numbers == null)? next: numbers[next];
+                next++;
+                String pxID = (pxPrefix + String.valueOf(number));
+                pxID = pxID.substring( pxID.length() - 6, pxID.length());
+                try {
+                    pipeline.submit(new CrawlItem(pxID, String.format(pxURL, pxID), finished), sequence, completion);
+                } catch (Throwable e) {
+                    // the reserved sequence is completed, a later take() must not wait for it
+                    completion.accept(PipelineItem.<CrawlItem>failed(sequence, e));
+                    throw e;
+                }
+            }
+
+            PipelineItem<CrawlItem> result = completion.take();
+            completed++;
+            CrawlItem item = result.get();
+
+            currentAccession = "PXD" + item.pxID;
+            metrics.setCrawlPosition(currentAccession, loopGap);
+
+            if (item.dataset){
+
+                Project proj = item.project;
+
+                item.trace.setProject(proj);
+
+                foundGap = loopGap;
+                loopGap = initialGap;
+
+                if(proj != null)
+                    logger.debug(proj.getAccession()  + "|PX PROJECT FOUND IT|");
+
+                if(proj != null && databases.contains(proj.getRepositoryName())){
+                    //Sometimes PeptideAtlas change the original identifier for that reason we need to override this value
+                    proj.setAccession("PXD" + item.pxID);
+                    item.trace.commit(DatasetTrace.Outcome.DELIVERED);
+                    return proj;
+                }
+
+                item.trace.commit((proj == null)? DatasetTrace.Outcome.FAILED: DatasetTrace.Outcome.SKIPPED_REPO);
+
+            }else{
+                item.trace.commit(DatasetTrace.Outcome.MISSING);
+                loopGap--;
+                logger.debug(loopGap + "| LOGGER GAP CHANGE|");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of accessions completed, found or not
+     */
+    int getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the last accession completed, null before the first one
+     */
+    String getCurrentAccession() {
+        return currentAccession;
+    }
+
+    /**
+     * @return the loop gap left when the last project was found
+     */
+    int getFoundGap() {
+        return foundGap;
+    }
+
+    /**
+     * Skip the accessions fetched ahead, wait until they have left the stages, and stop the stages if
+     * they are not shared
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    @Override
+    public void close() throws IOException {
+        finished.set(true);
+        try {
+            while(completion.getPending() > 0)
+                completion.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while skipping the accessions fetched ahead");
+        } finally {
+            if(ownPipeline)
+                pipeline.close();
+        }
+    }
+
+    /**
+     * Fetch, parse and transform stages of the crawls. Several crawls can share them, e.g. the jobs of
+     * the {@link PxDaemon}: every accession is handed back to its crawl with the sequence number the
+     * crawl gave it, with its result or the error of the stage that failed.
+     */
+    static class Pipeline implements Closeable {
+
+        private final PipelineStage<CrawlItem, CrawlItem> fetchStage;
+
+        private final PipelineStage<CrawlItem, CrawlItem> parseStage;
+
+        private final PipelineStage<CrawlItem, CrawlItem> transformStage;
+
+        private final AtomicLong sequences = new AtomicLong();
+
+        /**
+         * Crawl and sequence number of the accessions in the stages, by their sequence number in the stages
+         */
+        private final ConcurrentMap<Long, Route> routes = new ConcurrentHashMap<Long, Route>();
+
+        /**
+         * Start the stages
+         * @param fetchThreads threads of the fetch stage
+         * @param parseThreads threads of the parse stage
+         * @param transformThreads threads of the transform stage
+         * @param queueSize maximum items waiting in the queue of every stage
+         */
+        Pipeline(int fetchThreads, int parseThreads, int transformThreads, int queueSize) {
+
+            transformStage = new PipelineStage<CrawlItem, CrawlItem>("transform", transformThreads, queueSize,
+                    new PipelineStage.Task<CrawlItem, CrawlItem>() {
+                @Override
+                public CrawlItem process(CrawlItem item) {
+                    if(item.reader != null){
+                        item.trace.begin(DatasetTrace.Stage.TRANSFORM);
+                        try {
+                            item.project = ReaderPxXML.transformDataset(item.reader, TransformContext.get());
+                        } catch (Throwable e) {
+                            item.trace.end(DatasetTrace.Stage.TRANSFORM);
+                            item.trace.commit(DatasetTrace.Outcome.FAILED);
+                            throw e;
+                        }
+                        item.trace.end(DatasetTrace.Stage.TRANSFORM);
+                    }
+                    item.reader = null;
+                    return item;
+                }
+            }, new PipelineSink<CrawlItem>() {
+                @Override
+                public void accept(PipelineItem<CrawlItem> item) {
+                    Route route = routes.remove(item.getSequence());
+                    route.completion.accept(item.withSequence(route.sequence));
+                }
+            });
+
+            parseStage = new PipelineStage<CrawlItem, CrawlItem>("parse", parseThreads, queueSize,
+                    new PipelineStage.Task<CrawlItem, CrawlItem>() {
+                @Override
+                public CrawlItem process(CrawlItem item) throws Exception {
+                    item.dataset = item.page != null && GeneratePxEbeFiles.isDataset(item.page);
+                    if(item.dataset){
+                        item.trace.begin(DatasetTrace.Stage.PARSE);
+                        try {
+                            item.reader = ReaderPxXML.readDataset(item.page);
+                        } catch (Throwable e) {
+                            item.trace.end(DatasetTrace.Stage.PARSE);
+                            item.trace.commit(DatasetTrace.Outcome.FAILED);
+                            throw e;
+                        }
+                        item.trace.end(DatasetTrace.Stage.PARSE);
+                    }
+                    item.page = null;
+                    return item;
+                }
+            }, transformStage);
+
+            fetchStage = new PipelineStage<CrawlItem, CrawlItem>("fetch", fetchThreads, queueSize,
+                    new PipelineStage.Task<CrawlItem, CrawlItem>() {
+                @Override
+                public CrawlItem process(CrawlItem item) throws Exception {
+                    if(!item.skip.get()){
+                        item.trace.begin(DatasetTrace.Stage.FETCH);
+                        item.page = GeneratePxEbeFiles.getPage(item.url);
+                        item.trace.end(DatasetTrace.Stage.FETCH);
+                        item.trace.setPage(item.page);
+                    }
+                    return item;
+                }
+            }, parseStage);
+
+            metrics.setCrawlStages(fetchStage, parseStage, transformStage);
+        }
+
+        /**
+         * Queue an accession in the fetch stage, waiting while the queue is full
+         * @param item the accession
+         * @param sequence sequence number of the accession in its crawl
+         * @param completion end of the pipeline of the crawl
+         */
+        private void submit(CrawlItem item, long sequence, OrderedCompletion<CrawlItem> completion) throws InterruptedException {
+            long id = sequences.getAndIncrement();
+            routes.put(id, new Route(completion, sequence));
+            try {
+                fetchStage.accept(new PipelineItem<CrawlItem>(id, item));
+            } catch (InterruptedException | RuntimeException e) {
+                routes.remove(id);
+                throw e;
+            }
+        }
+
+        /**
+         * Stop the stages once the queued accessions have passed through them
+         */
+        @Override
+        public void close() throws IOException {
+            fetchStage.close();
+            parseStage.close();
+            transformStage.close();
+        }
+    }
+
+    /**
+     * End of the pipeline of a crawl and sequence number of an accession in this crawl
+     */
+    private static class Route {
+
+        private final OrderedCompletion<CrawlItem> completion;
+
+        private final long sequence;
+
+        private Route(OrderedCompletion<CrawlItem> completion, long sequence) {
+            this.completion = completion;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Accession going through the stages of the crawl, every stage replaces the output of the
+     * previous one so the memory of the page and the reader is released as soon as possible
+     */
+    private static class CrawlItem {
+
+        private final String pxID;
+
+        private final String url;
+
+        // set when the crawl of the accession has ended, it is then not fetched
+        private final AtomicBoolean skip;
+
+        private String page;
+
+        private boolean dataset;
+
+        private PxReader reader;
+
+        private Project project;
+
+        private final DatasetTrace trace = DatasetTrace.start();
+
+        private CrawlItem(String pxID, String url, AtomicBoolean skip) {
+            this.pxID = pxID;
+            this.url = url;
+            this.skip = skip;
+            trace.setAccession("PXD" + pxID);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package uk.ac.ebi.ddi.px;
+
+import uk.ac.ebi.ddi.px.utils.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reindex request of the {@link PxDaemon}: a list of accessions, a range of accessions or all the
+ * datasets of a repository. It keeps the state and progress of the request, read from the HTTP
+ * threads while the job runs, and the thread running it, interrupted when the job is cancelled.
+ */
+class ReindexJob {
+
+    enum Status {QUEUED, RUNNING, FINISHED, FAILED, CANCELLED}
+
+    private final int id;
+
+    private final String request;
+
+    private final int[] numbers;
+
+    private final List<String> databases;
+
+    private final Date submitted = new Date();
+
+    private volatile Status status = Status.QUEUED;
+
+    private volatile Date started = null;
+
+    private volatile Date finished = null;
+
+    private volatile String error = null;
+
+    private volatile PxWebCrawl crawl = null;
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Projects queued for writing and not written yet
+     */
+    private int pending = 0;
+
+    private boolean cancelled = false;
+
+    private Thread runner = null;
+
+    /**
+     * @param id number of the job
+     * @param request description of the request
+     * @param numbers numbers of the accessions to reindex, null to crawl all the accessions
+     * @param databases repositories of the projects written
+     */
+    ReindexJob(int id, String request, int[] numbers, List<String> databases) {
+        this.id = id;
+        this.request = request;
+        this.numbers = numbers;
+        this.databases = databases;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int[] getNumbers() {
+        return numbers;
+    }
+
+    List<String> getDatabases() {
+        return databases;
+    }
+
+    Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if the job has finished, failed or been cancelled
+     */
+    boolean isEnded() {
+        return status == Status.FINISHED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    /**
+     * Start the job in the current thread
+     * @return false if the job has been cancelled while it was queued
+     */
+    synchronized boolean start(PxWebCrawl crawl) {
+        if (cancelled)
+            return false;
+        this.crawl = crawl;
+        this.runner = Thread.currentThread();
+        this.started = new Date();
+        this.status = Status.RUNNING;
+        return true;
+    }
+
+    /**
+     * Cancel the job, the thread running it is interrupted
+     * @return false if the job has already ended
+     */
+    synchronized boolean cancel() {
+        if (isEnded())
+            return false;
+        cancelled = true;
+        if (runner != null)
+            runner.interrupt();
+        return true;
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Count a project queued for writing
+     */
+    synchronized void queued() {
+        pending++;
+    }
+
+    /**
+     * Undo {@link #queued()} for a project the writer has refused
+     */
+    synchronized void unqueued() {
+        pending--;
+        notifyAll();
+    }
+
+    /**
+     * Count a project written
+     * @param e the error of the writer, null if it succeeded
+     */
+    synchronized void written(Throwable e) {
+        if (e == null)
+            written.incrementAndGet();
+        else
+            failed.incrementAndGet();
+        pending--;
+        notifyAll();
+    }
+
+    /**
+     * Wait until the projects queued for writing have been written
+     */
+    synchronized void awaitWrites() throws InterruptedException {
+        while (pending > 0)
+            wait();
+    }
+
+    /**
+     * @param e the error of the job, null if it succeeded or has been cancelled
+     */
+    synchronized void finish(Exception e) {
+        this.runner = null;
+        this.finished = new Date();
+        if (e != null)
+            this.error = (e.getMessage() == null)? e.getClass().getName(): e.getMessage();
+        this.status = cancelled? Status.CANCELLED: (e == null)? Status.FINISHED: Status.FAILED;
+    }
+
+    /**
+     * Write the state and progress of the job as a JSON object
+     */
+    void write(JsonWriter json) throws IOException {
+        PxWebCrawl crawl = this.crawl;
+        json.startObject();
+        json.number("id", id);
+        json.field("request", request);
+        json.field("status", status.name().toLowerCase());
+        if (numbers != null)
+            json.number("accessions", numbers.length);
+        json.number("completed", (crawl == null)? 0: crawl.getCompleted());
+        json.field("current", (crawl == null)? null: crawl.getCurrentAccession());
+        json.number("written", written.get());
+        json.number("failed", failed.get());
+        json.field("submitted", submitted.toInstant().toString());
+        json.field("started", (started == null)? null: started.toInstant().toString());
+        json.field("finished", (finished == null)? null: finished.toInstant().toString());
+        json.field("error", error);
+        json.endObject();
+    }
+}
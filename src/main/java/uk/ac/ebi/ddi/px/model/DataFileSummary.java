@@ -0,0 +1,62 @@
+package uk.ac.ebi.ddi.px.model;
+
+/**
+ * Number of data files of a project of every kind (peak lists, results, raw files and search
+ * engine outputs), counted in a single pass over the file names. The summary is immutable, so
+ * it can be shared by the threads that read the project.
+ */
+public class DataFileSummary {
+
+    private final int files;
+
+    private final int peakFiles;
+
+    private final int resultFiles;
+
+    private final int rawFiles;
+
+    private final int searchEngineFiles;
+
+    private final String resultFileType;
+
+    /**
+     * @param files total number of data files
+     * @param peakFiles number of peak list files (mgf, mzML, ...)
+     * @param resultFiles number of result files (PRIDE XML and mzIdentML)
+     * @param rawFiles number of raw files of the instruments
+     * @param searchEngineFiles number of output files of the search engines
+     * @param resultFileType type of the last result file, null if there is none
+     */
+    public DataFileSummary(int files, int peakFiles, int resultFiles, int rawFiles, int searchEngineFiles, String resultFileType) {
+        this.files = files;
+        this.peakFiles = peakFiles;
+        this.resultFiles = resultFiles;
+        this.rawFiles = rawFiles;
+        this.searchEngineFiles = searchEngineFiles;
+        this.resultFileType = resultFileType;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public int getPeakFiles() {
+        return peakFiles;
+    }
+
+    public int getResultFiles() {
+        return resultFiles;
+    }
+
+    public int getRawFiles() {
+        return rawFiles;
+    }
+
+    public int getSearchEngineFiles() {
+        return searchEngineFiles;
+    }
+
+    public String getResultFileType() {
+        return resultFileType;
+    }
+}
@@ -61,6 +61,11 @@ public class Project {
     private List<String> dataFiles;
     private String datasetLink;
 
+    /**
+     * Classification of the data files, computed once from dataFiles
+     */
+    private DataFileSummary dataFileSummary;
+
     /**
      * Default constructor create a List of every list-based attribute
      */
@@ -284,6 +289,7 @@ public class Project {
 
     public void setDataFiles(List<String> dataFiles) {
         this.dataFiles = dataFiles;
+        this.dataFileSummary = null;
     }
 
     public void addCuratorKey(String reviewLevel) {
@@ -298,4 +304,15 @@ public class Project {
     public void setDatasetLink(String datasetLink) {
         this.datasetLink = datasetLink;
     }
+
+    /**
+     * @return classification of the data files, null if it has not been computed yet
+     */
+    public DataFileSummary getDataFileSummary() {
+        return dataFileSummary;
+    }
+
+    public void setDataFileSummary(DataFileSummary dataFileSummary) {
+        this.dataFileSummary = dataFileSummary;
+    }
 }
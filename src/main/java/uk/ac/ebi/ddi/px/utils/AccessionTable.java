@@ -0,0 +1,123 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.pride.utilities.term.CvTermReference;
+
+/**
+ * Precomputed lookup table from CV accessions to the Project fields (sinks) they feed.
+ * Lookups are case insensitive, so they keep the old equalsIgnoreCase semantics, but
+ * they are resolved with a single hash probe and do not allocate a normalized copy of
+ * the accession.
+ */
+public final class AccessionTable {
+
+    /**
+     * Field sinks. An accession can feed more than one sink, so they are bit flags.
+     */
+    public static final int NONE           = 0;
+    public static final int TAXONOMY       = 1;
+    public static final int SUBMITTER      = 1 << 1;
+    public static final int LABHEAD        = 1 << 2;
+    public static final int SUBMITTER_KEY  = 1 << 3;
+    public static final int CURATOR_KEY    = 1 << 4;
+    public static final int DATASET_LINK   = 1 << 5;
+    public static final int PUBMED         = 1 << 6;
+    public static final int CONTACT_NAME   = 1 << 7;
+    public static final int CONTACT_EMAIL  = 1 << 8;
+    public static final int CONTACT_ORG    = 1 << 9;
+
+    /**
+     * Table used by the PX reader, built once when the class is loaded.
+     */
+    private static final AccessionTable PX_TABLE = new AccessionTable(new String[]{
+            Constants.TAXONOMY_ACCESSION,
+            Constants.SUBMITTER_ACCESSION,
+            Constants.LABHEAD_ACCESSION,
+            Constants.SUBMITTERKEY_ACCESSION,
+            Constants.CURATORKEY_ACCESSION,
+            Constants.MASSIVEURL_ACCESSION,
+            Constants.PASSELURL_ACCESSION,
+            Constants.PUBMED_ACCESSION,
+            CvTermReference.CONTACT_NAME.getAccession(),
+            CvTermReference.CONTACT_EMAIL.getAccession(),
+            CvTermReference.CONTACT_ORG.getAccession()
+    }, new int[]{
+            TAXONOMY,
+            SUBMITTER,
+            LABHEAD,
+            SUBMITTER_KEY,
+            CURATOR_KEY,
+            DATASET_LINK,
+            DATASET_LINK,
+            PUBMED,
+            CONTACT_NAME,
+            CONTACT_EMAIL,
+            CONTACT_ORG
+    });
+
+    private final String[] keys;
+
+    private final int[] sinks;
+
+    private final int mask;
+
+    /**
+     * Build an open-addressing table for the given accessions.
+     * @param accessions accessions to be registered
+     * @param accessionSinks sink flags for every accession, in the same order
+     */
+    public AccessionTable(String[] accessions, int[] accessionSinks) {
+        if (accessions.length != accessionSinks.length)
+            throw new IllegalArgumentException("Every accession needs its sink flags");
+
+        int capacity = 16;
+        while (capacity < accessions.length * 4)
+            capacity <<= 1;
+
+        keys  = new String[capacity];
+        sinks = new int[capacity];
+        mask  = capacity - 1;
+
+        for (int i = 0; i < accessions.length; i++) {
+            int slot = hash(accessions[i]) & mask;
+            while (keys[slot] != null && !keys[slot].equalsIgnoreCase(accessions[i]))
+                slot = (slot + 1) & mask;
+            keys[slot] = accessions[i];
+            sinks[slot] |= accessionSinks[i];
+        }
+    }
+
+    /**
+     * @return the table with the accessions handled by the PX reader
+     */
+    public static AccessionTable getPxTable() {
+        return PX_TABLE;
+    }
+
+    /**
+     * Retrieve the sink flags of an accession
+     * @param accession CV accession, in any case
+     * @return the sink flags or {@link #NONE} if the accession is not handled
+     */
+    public int lookup(String accession) {
+        if (accession == null)
+            return NONE;
+        int slot = hash(accession) & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (key.length() == accession.length() && key.regionMatches(true, 0, accession, 0, accession.length()))
+                return sinks[slot];
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Case insensitive hash, equal for all the strings that are equalsIgnoreCase
+     */
+    private static int hash(String accession) {
+        int h = 0;
+        for (int i = 0; i < accession.length(); i++)
+            h = 31 * h + Character.toUpperCase(accession.charAt(i));
+        return h ^ (h >>> 16);
+    }
+}
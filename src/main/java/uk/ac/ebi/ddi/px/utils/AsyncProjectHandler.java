@@ -0,0 +1,103 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a ProjectHandler (e.g. the EB-eye writer) in its own threads, so the thread producing
+ * the projects does not wait for the disk. The projects are passed through the bounded queue of
+ * a {@link WorkerPool}: when the writers fall behind, {@link #handle(Project)} blocks until there
+ * is room again, and close() waits until all the queued projects have been handled. A project is
+ * either queued before close() or refused, and an error of the handler, even an Error, only fails
+ * its project.
+ */
+public class AsyncProjectHandler implements ProjectHandler, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncProjectHandler.class);
+
+    private final ProjectHandler handler;
+
+    private final WorkerPool<Project> workers;
+
+    private final AtomicLong handled = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @param handler handler called from the writer threads, it must be thread safe if threads > 1
+     * @param capacity maximum number of projects waiting in the queue
+     * @param threads number of writer threads
+     * @param batchSize maximum number of projects taken from the queue at once by a writer thread
+     */
+    public AsyncProjectHandler(ProjectHandler handler, int capacity, int threads, int batchSize) {
+        this.handler = handler;
+        this.workers = new WorkerPool<Project>("writer", capacity, threads, batchSize, false, new WorkerPool.Handler<Project>() {
+            @Override
+            public void handle(Project project) {
+                handleProject(project);
+            }
+        });
+    }
+
+    /**
+     * Queue the project, waiting while the queue is full
+     * @param project the project
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     * @throws IllegalStateException if the writer has been closed
+     */
+    @Override
+    public void handle(Project project) throws InterruptedIOException {
+        try {
+            workers.put(project);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing " + project.getAccession());
+        }
+    }
+
+    /**
+     * Stop accepting projects and wait until the queued ones have been handled
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    @Override
+    public void close() throws InterruptedIOException {
+        workers.close();
+        logger.info("Writer queue drained|" + handled.get() + " projects|" + failed.get() + " errors");
+    }
+
+    /**
+     * @return number of projects handled without errors
+     */
+    public long getHandled() {
+        return handled.get();
+    }
+
+    /**
+     * @return number of projects whose handler failed
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of projects waiting in the queue
+     */
+    public int getQueueSize() {
+        return workers.getQueueSize();
+    }
+
+    private void handleProject(Project project) {
+        try {
+            handler.handle(project);
+            handled.incrementAndGet();
+        } catch (Throwable e) {
+            failed.incrementAndGet();
+            logger.error("ERROR WRITING THE PROJECT|" + project.getAccession() + "|" + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Output stream that cuts the data in blocks and compresses every block as an independent
+ * member in the executor. The compressed blocks are written in order, and at most a few blocks
+ * per thread of the executor are waiting, so the memory used is bounded. When the whole output
+ * fits in one block (e.g. the file of one project) it is compressed in the calling thread.
+ *
+ * flush() does not cut the current block, so small writes do not degrade the compression.
+ */
+class BlockCompressorOutputStream extends OutputStream {
+
+    private static final int INITIAL_BLOCK_SIZE = 16 * 1024;
+
+    private final OutputStream out;
+
+    private final EBeyeCompression compression;
+
+    private final ExecutorService executor;
+
+    private final int blockSize;
+
+    private final int maxPending;
+
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+
+    private byte[] block;
+
+    private int count = 0;
+
+    private boolean closed = false;
+
+    /**
+     * @param out compressed output, it is closed with this stream
+     * @param compression compression of the blocks
+     * @param blockSize size of the uncompressed blocks
+     * @param executor pool compressing the blocks
+     */
+    BlockCompressorOutputStream(OutputStream out, EBeyeCompression compression, int blockSize, ExecutorService executor) {
+        this.out = out;
+        this.compression = compression;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxPending = 2 * Math.max(1, Runtime.getRuntime().availableProcessors());
+        this.block = new byte[Math.min(blockSize, INITIAL_BLOCK_SIZE)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureSpace();
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            ensureSpace();
+            int chunk = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, chunk);
+            count += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Write the blocks already compressed, the current block is kept
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pending.isEmpty() && pending.peekFirst().isDone())
+            writeFirst();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            if (pending.isEmpty()) {
+                out.write(compression.compress(block, count));
+            } else {
+                submit();
+                while (!pending.isEmpty())
+                    writeFirst();
+            }
+            block = null;
+        } finally {
+            for (Future<byte[]> future : pending)
+                future.cancel(true);
+            out.close();
+        }
+    }
+
+    /**
+     * The first block grows on demand, so small files do not allocate a whole block
+     */
+    private void ensureSpace() throws IOException {
+        if (count < block.length)
+            return;
+        if (block.length < blockSize)
+            block = Arrays.copyOf(block, Math.min(blockSize, block.length * 2));
+        else
+            submit();
+    }
+
+    private void submit() throws IOException {
+        final byte[] data = block;
+        final int length = count;
+        pending.addLast(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return compression.compress(data, length);
+            }
+        }));
+        block = new byte[blockSize];
+        count = 0;
+        while (pending.size() > maxPending)
+            writeFirst();
+    }
+
+    private void writeFirst() throws IOException {
+        try {
+            out.write(pending.peekFirst().get());
+            pending.removeFirst();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Error compressing a block", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.DataFileSummary;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a crawl: number of datasets and of their data files in total, per repository,
+ * per submission type, per result file type and per month of the announce date. The counters
+ * are LongAdders, so the projects can be recorded from many threads, and a report can be
+ * written at any time while the crawl goes on, as JSON or CSV.
+ */
+public class CrawlStatistics {
+
+    private static final String CSV_HEADER = "group,key,datasets,files,result_files,peak_files,raw_files,search_engine_files";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final Counters total = new Counters();
+
+    private final Group repositories = new Group("repository");
+
+    private final Group types = new Group("type");
+
+    private final Group fileTypes = new Group("file_type");
+
+    private final Group announceMonths = new Group("announce_month");
+
+    private final Group[] groups = {repositories, types, fileTypes, announceMonths};
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * Add a dataset to the statistics
+     * @param project the dataset
+     */
+    public void record(Project project) {
+        DataFileSummary summary = ProjectSummary.getDataFileSummary(project);
+        total.add(summary);
+        repositories.add(project.getRepositoryName(), summary);
+        types.add(ProjectSummary.getType(project), summary);
+        fileTypes.add(ProjectSummary.getFileType(project), summary);
+        String month = null;
+        if (project.getPublicationDate() != null)
+            month = YearMonth.from(project.getPublicationDate().toInstant().atZone(zone)).toString();
+        announceMonths.add(month, summary);
+    }
+
+    /**
+     * @return number of datasets recorded
+     */
+    public long getDatasets() {
+        return total.datasets.sum();
+    }
+
+    /**
+     * Write the report in the file, replacing it atomically. The format is CSV when the name
+     * of the file ends with .csv, JSON otherwise.
+     * @param file the report
+     * @throws IOException if the file can not be written
+     */
+    public void write(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer out = new OutputStreamWriter(new FileOutputStream(tmp), EBeyeWriterContext.UTF8);
+        try {
+            if (file.getName().toLowerCase().endsWith(".csv"))
+                writeCsv(out);
+            else
+                writeJson(out);
+        } finally {
+            out.close();
+        }
+        WriterEBeyeXML.replace(tmp, file);
+    }
+
+    /**
+     * Write the report as a JSON object, with the totals and one object per group
+     * @param out output, it is flushed but not closed
+     */
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.startObject();
+        json.name("total");
+        total.writeJson(json);
+        for (Group group : groups) {
+            json.name(group.name);
+            json.startObject();
+            for (Map.Entry<String, Counters> entry : group.sorted().entrySet()) {
+                json.name(entry.getKey());
+                entry.getValue().writeJson(json);
+            }
+            json.endObject();
+        }
+        json.endObject();
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Write the report as CSV, one row for the totals and one per key of every group
+     * @param out output, it is flushed but not closed
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write(CSV_HEADER);
+        out.write('\n');
+        total.writeCsv(out, "total", "all");
+        for (Group group : groups)
+            for (Map.Entry<String, Counters> entry : group.sorted().entrySet())
+                entry.getValue().writeCsv(out, group.name, entry.getKey());
+        out.flush();
+    }
+
+    /**
+     * Counters of the datasets sharing a key
+     */
+    private static class Group {
+
+        private final String name;
+
+        private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<String, Counters>();
+
+        private Group(String name) {
+            this.name = name;
+        }
+
+        private void add(String key, DataFileSummary summary) {
+            if (key == null)
+                key = UNKNOWN;
+            Counters keyCounters = counters.get(key);
+            if (keyCounters == null) {
+                Counters created = new Counters();
+                keyCounters = counters.putIfAbsent(key, created);
+                if (keyCounters == null)
+                    keyCounters = created;
+            }
+            keyCounters.add(summary);
+        }
+
+        private Map<String, Counters> sorted() {
+            return new TreeMap<String, Counters>(counters);
+        }
+    }
+
+    /**
+     * Number of datasets and of their data files of every kind
+     */
+    private static class Counters {
+
+        private final LongAdder datasets = new LongAdder();
+
+        private final LongAdder files = new LongAdder();
+
+        private final LongAdder resultFiles = new LongAdder();
+
+        private final LongAdder peakFiles = new LongAdder();
+
+        private final LongAdder rawFiles = new LongAdder();
+
+        private final LongAdder searchEngineFiles = new LongAdder();
+
+        private void add(DataFileSummary summary) {
+            datasets.increment();
+            files.add(summary.getFiles());
+            resultFiles.add(summary.getResultFiles());
+            peakFiles.add(summary.getPeakFiles());
+            rawFiles.add(summary.getRawFiles());
+            searchEngineFiles.add(summary.getSearchEngineFiles());
+        }
+
+        private void writeJson(JsonWriter json) throws IOException {
+            json.startObject();
+            json.number("datasets", datasets.sum());
+            json.number("files", files.sum());
+            json.number("resultFiles", resultFiles.sum());
+            json.number("peakFiles", peakFiles.sum());
+            json.number("rawFiles", rawFiles.sum());
+            json.number("searchEngineFiles", searchEngineFiles.sum());
+            json.endObject();
+        }
+
+        private void writeCsv(Writer out, String group, String key) throws IOException {
+            out.write(group);
+            out.write(',');
+            SummaryCsvSink.cell(out, key);
+            for (LongAdder counter : new LongAdder[]{datasets, files, resultFiles, peakFiles, rawFiles, searchEngineFiles}) {
+                out.write(',');
+                out.write(Long.toString(counter.sum()));
+            }
+            out.write('\n');
+        }
+    }
+}
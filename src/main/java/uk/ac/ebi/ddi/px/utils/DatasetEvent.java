@@ -0,0 +1,36 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Fields of the Java Flight Recorder events of the processing of a dataset, the event types of the
+ * stages are in {@link DatasetEvents}.
+ */
+@Category({"ProteomeXchange", "Dataset"})
+@StackTrace(false)
+abstract class DatasetEvent extends Event {
+
+    @Label("Accession")
+    String accession;
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Size")
+    @Description("Size of the PX XML file of the dataset")
+    @DataAmount
+    long bytes;
+
+    @Label("Files")
+    @Description("Number of data files of the dataset")
+    int files;
+
+    @Label("Outcome")
+    @Description("delivered, written, skipped-repo, missing or failed")
+    String outcome;
+}
@@ -0,0 +1,65 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import jdk.jfr.Description;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event types of the stages of the processing of a dataset. They are only used
+ * through {@link DatasetTrace}, which does not load this class when the JVM has no Flight Recorder.
+ * The event classes must not be referenced from {@link DatasetEvent}: loading them while the base
+ * class is being instrumented by a running recording fails with a duplicate class definition.
+ */
+final class DatasetEvents {
+
+    private DatasetEvents() {
+    }
+
+    /**
+     * @return true once a recording has been started in the JVM
+     */
+    static boolean isRecording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * @return a new event of the stage
+     */
+    static DatasetEvent create(DatasetTrace.Stage stage) {
+        switch (stage) {
+            case FETCH:
+                return new Fetch();
+            case PARSE:
+                return new Parse();
+            case TRANSFORM:
+                return new Transform();
+            default:
+                return new Write();
+        }
+    }
+
+    @Name("uk.ac.ebi.ddi.px.Fetch")
+    @Label("Dataset Fetch")
+    @Description("Download of the PX XML file of a dataset")
+    static final class Fetch extends DatasetEvent {
+    }
+
+    @Name("uk.ac.ebi.ddi.px.Parse")
+    @Label("Dataset Parse")
+    @Description("Validation and unmarshalling of the PX XML file of a dataset")
+    static final class Parse extends DatasetEvent {
+    }
+
+    @Name("uk.ac.ebi.ddi.px.Transform")
+    @Label("Dataset Transform")
+    @Description("Mapping of a dataset into the project exported")
+    static final class Transform extends DatasetEvent {
+    }
+
+    @Name("uk.ac.ebi.ddi.px.Write")
+    @Label("Dataset Write")
+    @Description("Write of a project to the output sinks")
+    static final class Write extends DatasetEvent {
+    }
+}
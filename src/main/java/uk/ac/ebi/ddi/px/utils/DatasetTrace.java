@@ -0,0 +1,197 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.Project;
+
+/**
+ * Java Flight Recorder events of the processing of one dataset: fetch, parse, transform and write.
+ * The events of a dataset are committed with its accession, repository, size, number of files and
+ * outcome, so the GC and allocation spikes of a recording can be matched with the datasets processed
+ * at that time. The crawl commits the fetch, parse and transform events once, when it hands the
+ * project over (delivered) or drops it, and the output commits the write event once it has written
+ * the project (written or failed). The start time and duration of every event are
+ * those of its stage, its thread is the one completing the dataset. The events are enabled in any
+ * recording, they can be selected with the uk.ac.ebi.ddi.px.* event names.
+ *
+ * When no recording has been started, or the JVM has no Flight Recorder, {@link #start()} returns
+ * a shared trace doing nothing, so the cost is a few field reads per dataset.
+ */
+public class DatasetTrace {
+
+    /**
+     * Stages of the processing of a dataset, one event type for every one
+     */
+    public enum Stage {FETCH, PARSE, TRANSFORM, WRITE}
+
+    /**
+     * Outcome of a dataset
+     */
+    public enum Outcome {
+
+        /**
+         * Handed over by the crawl, the write event tells if it has been written
+         */
+        DELIVERED("delivered"),
+
+        /**
+         * Written by the output
+         */
+        WRITTEN("written"),
+
+        /**
+         * Dataset of a repository not exported
+         */
+        SKIPPED_REPO("skipped-repo"),
+
+        /**
+         * Accession without dataset
+         */
+        MISSING("missing"),
+
+        FAILED("failed");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+    private static final DatasetTrace DISABLED = new DatasetTrace(false);
+
+    private final DatasetEvent[] events;
+
+    private String accession;
+
+    private String repository;
+
+    private long bytes;
+
+    private int files;
+
+    private DatasetTrace(boolean enabled) {
+        this.events = enabled ? new DatasetEvent[Stage.values().length] : null;
+    }
+
+    /**
+     * @return a new trace if the Flight Recorder has been started, a shared trace doing nothing otherwise
+     */
+    public static DatasetTrace start() {
+        if (AVAILABLE && DatasetEvents.isRecording())
+            return new DatasetTrace(true);
+        return DISABLED;
+    }
+
+    /**
+     * @return true if the events of the trace may be recorded
+     */
+    public boolean isEnabled() {
+        return events != null;
+    }
+
+    /**
+     * Start the event of a stage, if its event type is enabled
+     */
+    public void begin(Stage stage) {
+        if (events == null)
+            return;
+        DatasetEvent event = DatasetEvents.create(stage);
+        if (event.isEnabled()) {
+            event.begin();
+            events[stage.ordinal()] = event;
+        }
+    }
+
+    /**
+     * End the event of a stage, it is committed with the outcome of the dataset
+     */
+    public void end(Stage stage) {
+        if (events == null)
+            return;
+        DatasetEvent event = events[stage.ordinal()];
+        if (event != null)
+            event.end();
+    }
+
+    public void setAccession(String accession) {
+        if (events != null)
+            this.accession = accession;
+    }
+
+    /**
+     * Take the size of the dataset from its PX XML file
+     */
+    public void setPage(String page) {
+        if (events != null && page != null)
+            this.bytes = utf8Length(page);
+    }
+
+    /**
+     * Take the repository and number of files of the dataset from its project
+     */
+    public void setProject(Project project) {
+        if (events == null || project == null)
+            return;
+        repository = project.getRepositoryName();
+        files = (project.getDataFiles() == null) ? 0 : project.getDataFiles().size();
+    }
+
+    /**
+     * Commit the events of the stages started so far
+     * @param outcome outcome of the dataset
+     */
+    public void commit(Outcome outcome) {
+        if (events == null)
+            return;
+        for (int i = 0; i < events.length; i++) {
+            DatasetEvent event = events[i];
+            if (event == null)
+                continue;
+            events[i] = null;
+            if (event.shouldCommit()) {
+                event.accession = accession;
+                event.repository = repository;
+                event.bytes = bytes;
+                event.files = files;
+                event.outcome = outcome.getLabel();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes of the string in UTF-8, without encoding it
+     */
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80)
+                length++;
+            else if (c < 0x800)
+                length += 2;
+            else if (Character.isHighSurrogate(c))
+                length += 4;
+            else if (!Character.isLowSurrogate(c))
+                length += 3;
+        }
+        return length;
+    }
+
+    /**
+     * @return false if the JVM has no Flight Recorder
+     */
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Writes many projects in the same EB-eye file, one file per repository. The entries of the
+ * current file of every repository are kept in memory until the file rolls over (maximum number
+ * of entries or bytes reached, or close()), so the entry_count of the header is always right.
+ * Projects can be added from several threads, the files are compressed and written out of the
+ * lock of their repository. Every file is written to a temporary file and moved in place, and
+ * close() deletes the numbered files left by a previous run that this run has not written, so
+ * the indexer never reads a partial file or the entries of an old release twice. A file that
+ * could not be written keeps its previous version.
+ */
+public class EBeyeBatchWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EBeyeBatchWriter.class);
+
+    /**
+     * Depth of the entry elements in the EB-eye file (database/entries/entry)
+     */
+    private static final int ENTRY_DEPTH = 2;
+
+    /**
+     * Names of the multi-entry files and of their temporary files
+     */
+    private static final Pattern BATCH_FILE = Pattern.compile(".+_EBEYE_[0-9]{5}\\.xml(\\.gz|\\.zst)?([0-9]*\\.tmp)?");
+
+    private final File outputDirectory;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private boolean indent = true;
+
+    private EBeyeCompression compression = EBeyeCompression.NONE;
+
+    private EBeyeLayout layout = EBeyeLayout.FLAT;
+
+    private EBeyeManifest manifest = null;
+
+    private final Map<String, Batch> batches = new HashMap<String, Batch>();
+
+    private final List<File> files = new ArrayList<File>();
+
+    /**
+     * Files that could not be written, their version of a previous run is not deleted
+     */
+    private final Set<File> failedFiles = new HashSet<File>();
+
+    /**
+     * @param outputDirectory target output directory
+     * @param maxEntries maximum number of entries of a file
+     * @param maxBytes maximum size in bytes of the entries of a file, a file always holds at least one entry
+     */
+    public EBeyeBatchWriter(File outputDirectory, int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1)
+            throw new IllegalArgumentException("The maximum number of entries and bytes must be positive");
+        this.outputDirectory = outputDirectory;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Indent the output as the DOM writer did, the default
+     * @param indent false to write the files without new lines and indentation
+     */
+    public void setIndent(boolean indent) {
+        this.indent = indent;
+    }
+
+    /**
+     * Compress the output files, the blocks of big files are compressed in parallel
+     * @param compression NONE (the default), GZIP or ZSTD
+     */
+    public void setCompression(EBeyeCompression compression) {
+        this.compression = (compression == null)? EBeyeCompression.NONE: compression;
+    }
+
+    /**
+     * Folder of the files under the output directory, the files of a repository are never hashed
+     * @param layout FLAT (the default), REPOSITORY or HASHED
+     */
+    public void setLayout(EBeyeLayout layout) {
+        this.layout = (layout == null)? EBeyeLayout.FLAT: layout;
+    }
+
+    /**
+     * Add the files to a manifest
+     * @param manifest manifest of the output directory, null for none
+     */
+    public void setManifest(EBeyeManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Add the entry of a project to the current file of its repository
+     * @param project project to be exported
+     * @param proteins protein cross references of the project, can be null
+     * @return false if the project is private and has not been added
+     * @throws IOException if a file rolls over and can not be written
+     */
+    public boolean add(Project project, Map<String, String> proteins) throws IOException {
+        return addProject(project, (proteins == null)? null: new MapProteinReferenceSource(proteins));
+    }
+
+    /**
+     * Add the entry of a project to the current file of its repository. The entries are kept in
+     * memory until their file is written, so very big entries are better written in their own
+     * file with {@link WriterEBeyeXML}.
+     * @param project project to be exported
+     * @param proteins protein cross references of the project, can be null
+     * @return false if the project is private and has not been added
+     * @throws IOException if a file rolls over and can not be written
+     */
+    public boolean addProject(Project project, ProteinReferenceSource proteins) throws IOException {
+        if (!project.isPublicProject()) {
+            logger.error("Project " + project.getAccession() + " is still private, not generating EB-eye XML.");
+            return false;
+        }
+
+        // the entry is rendered out of the lock, only the copy is serialized
+        EBeyeWriterContext context = EBeyeWriterContext.get();
+        EBeyeOutputBuffer entry = context.renderBuffer();
+        EBeyeXmlWriter xml = new EBeyeXmlWriter(entry, indent, ENTRY_DEPTH);
+        WriterEBeyeXML.writeEntry(xml, project, proteins, context);
+
+        Batch batch = getBatch(project.getRepositoryName().trim());
+        BatchFile full = null;
+        BatchFile last = null;
+        synchronized (batch) {
+            if (batch.count > 0 && batch.entries.size() + entry.size() > maxBytes)
+                full = batch.roll();
+            batch.entries.write(entry);
+            batch.count++;
+            if (batch.count >= maxEntries)
+                last = batch.roll();
+        }
+        try {
+            if (full != null)
+                write(full);
+        } finally {
+            if (last != null)
+                write(last);
+        }
+        return true;
+    }
+
+    /**
+     * Write the files of all the repositories that have pending entries
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        List<Batch> current;
+        synchronized (batches) {
+            current = new ArrayList<Batch>(batches.values());
+        }
+        for (Batch batch : current) {
+            BatchFile file = null;
+            synchronized (batch) {
+                if (batch.count > 0)
+                    file = batch.roll();
+            }
+            if (file != null)
+                write(file);
+        }
+    }
+
+    /**
+     * Write the pending entries and delete the multi-entry files of previous runs that have not
+     * been written again, e.g. PRIDE_EBEYE_00012.xml when this release only needs 11 files
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        deleteStaleFiles();
+    }
+
+    /**
+     * @return the files written so far
+     */
+    public List<File> getFiles() {
+        synchronized (files) {
+            return new ArrayList<File>(files);
+        }
+    }
+
+    private Batch getBatch(String repositoryName) {
+        synchronized (batches) {
+            Batch batch = batches.get(repositoryName);
+            if (batch == null) {
+                batch = new Batch(repositoryName);
+                batches.put(repositoryName, batch);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Write the entries of a file rolled over, to a temporary file moved in place at the end
+     */
+    private void write(BatchFile file) throws IOException {
+        File directory = layout.directory(outputDirectory, file.repositoryName, null);
+        File outputXML = new File(directory, file.repositoryName + "_EBEYE_" + String.format("%05d", file.fileIndex) + ".xml" + compression.getSuffix());
+        EBeyeOutputBuffer header = new EBeyeOutputBuffer();
+        EBeyeOutputBuffer footer = new EBeyeOutputBuffer();
+        File temp = null;
+        try {
+            EBeyeWriterContext context = EBeyeWriterContext.get();
+            EBeyeXmlWriter xml = new EBeyeXmlWriter(header, indent);
+            WriterEBeyeXML.writeDatabaseStart(xml, file.repositoryName, file.count, context);
+            xml.startContent(footer);
+            WriterEBeyeXML.writeDatabaseEnd(xml);
+            MessageDigest digest = (manifest == null)? null: context.digest();
+            temp = File.createTempFile(outputXML.getName(), ".tmp", directory);
+            long size = compression.write(temp, digest, header, file.entries, footer);
+            WriterEBeyeXML.replace(temp, outputXML);
+            if (manifest != null)
+                manifest.add(outputXML, size, file.count, digest.digest());
+        } catch (IOException | RuntimeException e) {
+            synchronized (files) {
+                failedFiles.add(outputXML);
+            }
+            throw e;
+        } finally {
+            header.release();
+            footer.release();
+            file.entries.release();
+            if (temp != null && temp.exists() && !temp.delete())
+                logger.warn("The temporary file " + temp + " could not be deleted");
+        }
+        logger.info("Finished generating EB-eye XML file " + outputXML + " with " + file.count + " entries");
+        synchronized (files) {
+            files.add(outputXML);
+        }
+    }
+
+    /**
+     * Delete the multi-entry files that have not been written by this writer, in the folders it
+     * writes: the output folder for the FLAT layout, else the folders of the repositories it has
+     * written entries of
+     */
+    private void deleteStaleFiles() {
+        Set<File> kept;
+        synchronized (files) {
+            kept = new HashSet<File>(files);
+            kept.addAll(failedFiles);
+        }
+        List<File> directories = new ArrayList<File>();
+        if (layout == EBeyeLayout.FLAT) {
+            directories.add(outputDirectory);
+        } else {
+            synchronized (batches) {
+                for (String repositoryName : batches.keySet())
+                    directories.add(new File(outputDirectory, repositoryName));
+            }
+        }
+        for (File directory : directories) {
+            File[] candidates = directory.listFiles();
+            if (candidates == null)
+                continue;
+            for (File candidate : candidates) {
+                if (!candidate.isFile() || !BATCH_FILE.matcher(candidate.getName()).matches() || kept.contains(candidate))
+                    continue;
+                if (candidate.delete())
+                    logger.info("Deleted the EB-eye XML file " + candidate + " of a previous run");
+                else
+                    logger.warn("The EB-eye XML file " + candidate + " of a previous run could not be deleted");
+            }
+        }
+    }
+
+    /**
+     * Pending entries of the current file of a repository
+     */
+    private static class Batch {
+
+        private final String repositoryName;
+
+        private EBeyeOutputBuffer entries = new EBeyeOutputBuffer();
+
+        private int count = 0;
+
+        private int fileIndex = 0;
+
+        private Batch(String repositoryName) {
+            this.repositoryName = repositoryName;
+        }
+
+        /**
+         * Take the pending entries as the next file and start a new one, the caller holds the lock
+         */
+        private BatchFile roll() {
+            BatchFile file = new BatchFile(repositoryName, ++fileIndex, entries, count);
+            entries = new EBeyeOutputBuffer();
+            count = 0;
+            return file;
+        }
+    }
+
+    /**
+     * Entries of a file rolled over, waiting to be written
+     */
+    private static class BatchFile {
+
+        private final String repositoryName;
+
+        private final int fileIndex;
+
+        private final EBeyeOutputBuffer entries;
+
+        private final int count;
+
+        private BatchFile(String repositoryName, int fileIndex, EBeyeOutputBuffer entries, int count) {
+            this.repositoryName = repositoryName;
+            this.fileIndex = fileIndex;
+            this.entries = entries;
+            this.count = count;
+        }
+    }
+}
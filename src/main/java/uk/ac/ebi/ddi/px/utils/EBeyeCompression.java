@@ -0,0 +1,171 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of the EB-eye files. The compressed files are made of independent blocks (gzip
+ * members or zstd frames, as pigz does) that are compressed in parallel, gunzip, zstd and the
+ * JDK GZIPInputStream read them as a single stream.
+ */
+public enum EBeyeCompression {
+
+    NONE(""),
+
+    GZIP(".gz") {
+        @Override
+        InputStream openInput(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+
+        @Override
+        byte[] compress(byte[] block, int length) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+            GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+            gzip.write(block, 0, length);
+            gzip.close();
+            return out.toByteArray();
+        }
+    },
+
+    ZSTD(".zst") {
+        @Override
+        InputStream openInput(InputStream in) throws IOException {
+            return new ZstdInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        }
+
+        @Override
+        byte[] compress(byte[] block, int length) throws IOException {
+            byte[] data = (length == block.length) ? block : Arrays.copyOf(block, length);
+            return Zstd.compress(data, ZSTD_LEVEL);
+        }
+    };
+
+    private static final int ZSTD_LEVEL = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Size of the uncompressed blocks, big enough to keep the ratio of a single stream
+     */
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private final String suffix;
+
+    EBeyeCompression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * @return suffix added to the name of the compressed files
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Open the file for writing, the blocks are compressed in the common ForkJoinPool
+     * @param file output file
+     * @return the stream, it must be closed to write the last block
+     * @throws IOException if the file can not be created
+     */
+    public OutputStream open(File file) throws IOException {
+        return open(new FileOutputStream(file));
+    }
+
+    /**
+     * Open the file for writing, the digest is updated with the bytes written in the file
+     * @param file output file
+     * @param digest digest of the file, null for none
+     */
+    OutputStream open(File file, MessageDigest digest) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        return open((digest == null)? out: new DigestOutputStream(out, digest));
+    }
+
+    private OutputStream open(OutputStream out) {
+        if (this == NONE)
+            return new BufferedOutputStream(out, BUFFER_SIZE);
+        return new BlockCompressorOutputStream(out, this, BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Write the buffers in the file, one after the other. The uncompressed files are written
+     * from the direct buffers to the file channel with gathering writes.
+     * @param file output file
+     * @param digest digest updated with the bytes written in the file, null for none
+     * @param parts content of the file
+     * @return size of the file
+     * @throws IOException if the file can not be written
+     */
+    long write(File file, MessageDigest digest, EBeyeOutputBuffer... parts) throws IOException {
+        if (this == NONE) {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                FileChannel channel = out.getChannel();
+                for (EBeyeOutputBuffer part : parts) {
+                    if (digest != null)
+                        part.update(digest);
+                    part.writeTo(channel);
+                }
+            } finally {
+                out.close();
+            }
+        } else {
+            OutputStream out = open(file, digest);
+            try {
+                for (EBeyeOutputBuffer part : parts)
+                    part.writeTo(out);
+            } finally {
+                out.close();
+            }
+        }
+        return file.length();
+    }
+
+    /**
+     * Open a file written with this compression for reading
+     * @param file compressed file
+     * @return the uncompressed content
+     * @throws IOException if the file can not be opened
+     */
+    public InputStream openInput(File file) throws IOException {
+        return openInput(new FileInputStream(file));
+    }
+
+    /**
+     * Uncompress a stream written with this compression
+     * @param in compressed content, it is closed with the returned stream
+     * @return the uncompressed content
+     */
+    InputStream openInput(InputStream in) throws IOException {
+        return new BufferedInputStream(in, BUFFER_SIZE);
+    }
+
+    /**
+     * Compress one block as an independent gzip member or zstd frame
+     * @param block the data
+     * @param length number of bytes of the block to compress
+     * @return the compressed block
+     */
+    byte[] compress(byte[] block, int length) throws IOException {
+        return Arrays.copyOf(block, length);
+    }
+}
@@ -0,0 +1,186 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.CvParam;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.model.Reference;
+import uk.ac.ebi.ddi.px.model.Submitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Mapping of the Project properties to the additional fields of the EB-eye entries. Every line of
+ * {@link #ADDITIONAL_FIELDS} adds one field (or a group of fields of the same object), in the
+ * order they are written. The table is compiled once into rules that hold the tags of their
+ * field already encoded, so writing an entry is a loop over the rules.
+ */
+final class EBeyeFieldPlan {
+
+    private static final String NOT_AVAILABLE = "Not available";
+
+    private static final String OMICS_TYPE    = "Proteomics";
+
+    private static final String DEFAULT_EXPERIMENT_TYPE = "Mass Spectrometry";
+
+    /**
+     * When a single value is written
+     */
+    enum Presence {
+        /** always, null values give an empty field */
+        ALWAYS,
+        /** when the value is not null */
+        NOT_NULL,
+        /** when the value is not null or empty */
+        NOT_EMPTY
+    }
+
+    /**
+     * The additional fields of the EB-eye entries
+     */
+    static final Rule<Project> ADDITIONAL_FIELDS = all(
+            constant("omics_type", OMICS_TYPE),
+            text("full_dataset_link", Project::getDatasetLink, Presence.NOT_NULL),
+            text("repository", Project::getRepositoryName, Presence.ALWAYS),
+            text("sample_protocol", Project::getSampleProcessingProtocol, Presence.NOT_EMPTY),
+            text("data_protocol", Project::getDataProcessingProtocol, Presence.NOT_EMPTY),
+            values("instrument_platform", Project::getInstruments, CvParam::getName, NOT_AVAILABLE),
+            values("species", Project::getSpecies, CvParam::getValue, NOT_AVAILABLE),
+            values("cell_type", Project::getCellTypes, CvParam::getName, NOT_AVAILABLE),
+            values("disease", Project::getDiseases, CvParam::getName, NOT_AVAILABLE),
+            values("tissue", Project::getTissues, CvParam::getName, NOT_AVAILABLE),
+            values("modification", Project::getPtms, CvParam::getName, NOT_AVAILABLE),
+            values("technology_type", Project::getExperimentTypes, CvParam::getName, DEFAULT_EXPERIMENT_TYPE),
+            values("curator_keywords", Project::getProjectTags, Function.<String>identity(), null),
+            values("submitter_keywords", Project::getKeywords, Function.<String>identity(), null),
+            values("quantification_method", Project::getQuantificationMethods, CvParam::getName, NOT_AVAILABLE),
+            values("software", Project::getSoftware, CvParam::getValue, NOT_AVAILABLE),
+            text("doi", Project::getDoi, Presence.NOT_EMPTY),
+            each(Project::getReferences, text("publication", Reference::getReferenceLine, Presence.NOT_NULL)),
+            one(Project::getSubmitter,
+                    text("submitter", Submitter::getName, Presence.NOT_NULL),
+                    text("submitter_mail", Submitter::getEmail, Presence.NOT_NULL),
+                    text("submitter_affiliation", Submitter::getAffiliation, Presence.NOT_NULL)),
+            each(Project::getLabHeads,
+                    text("labhead", Submitter::getName, Presence.NOT_NULL),
+                    text("labhead_mail", Submitter::getEmail, Presence.NOT_NULL),
+                    text("labhead_affiliation", Submitter::getAffiliation, Presence.NOT_NULL)),
+            values("dataset_file", Project::getDataFiles, Function.<String>identity(), null)
+    );
+
+    private EBeyeFieldPlan() {
+    }
+
+    /**
+     * Compiled rule writing the fields of an object
+     * @param <T> type of the object
+     */
+    abstract static class Rule<T> {
+
+        /**
+         * Write the fields of the source
+         * @param source object holding the values, not null
+         * @param xml XML output
+         */
+        abstract void emit(T source, EBeyeXmlWriter xml) throws IOException;
+    }
+
+    /**
+     * Field with a fixed value
+     */
+    static <T> Rule<T> constant(String name, final String value) {
+        final EBeyeXmlWriter.Tag tag = EBeyeXmlWriter.tag("field", "name", name);
+        return new Rule<T>() {
+            @Override
+            void emit(T source, EBeyeXmlWriter xml) throws IOException {
+                xml.element(tag, value);
+            }
+        };
+    }
+
+    /**
+     * Field with a single value
+     */
+    static <T> Rule<T> text(String name, final Function<T, String> value, final Presence presence) {
+        final EBeyeXmlWriter.Tag tag = EBeyeXmlWriter.tag("field", "name", name);
+        return new Rule<T>() {
+            @Override
+            void emit(T source, EBeyeXmlWriter xml) throws IOException {
+                String text = value.apply(source);
+                if (presence == Presence.ALWAYS || (text != null && (presence == Presence.NOT_NULL || !text.isEmpty())))
+                    xml.element(tag, text);
+            }
+        };
+    }
+
+    /**
+     * One field per element of a list, or one field with the default value if the list is empty
+     * @param defaultValue value used when the list is null or empty, null to write nothing
+     */
+    static <T, E> Rule<T> values(String name, final Function<T, List<E>> list, final Function<E, String> value, final String defaultValue) {
+        final EBeyeXmlWriter.Tag tag = EBeyeXmlWriter.tag("field", "name", name);
+        return new Rule<T>() {
+            @Override
+            void emit(T source, EBeyeXmlWriter xml) throws IOException {
+                List<E> elements = list.apply(source);
+                if (elements != null && !elements.isEmpty()) {
+                    for (int i = 0; i < elements.size(); i++)
+                        xml.element(tag, value.apply(elements.get(i)));
+                } else if (defaultValue != null) {
+                    xml.element(tag, defaultValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * Apply the rules to every element of a list, in turn
+     */
+    @SafeVarargs
+    static <T, E> Rule<T> each(final Function<T, List<E>> list, final Rule<E>... rules) {
+        return new Rule<T>() {
+            @Override
+            void emit(T source, EBeyeXmlWriter xml) throws IOException {
+                List<E> elements = list.apply(source);
+                if (elements == null)
+                    return;
+                for (int i = 0; i < elements.size(); i++) {
+                    E element = elements.get(i);
+                    for (Rule<E> rule : rules)
+                        rule.emit(element, xml);
+                }
+            }
+        };
+    }
+
+    /**
+     * Apply the rules to a property, when it is not null
+     */
+    @SafeVarargs
+    static <T, E> Rule<T> one(final Function<T, E> property, final Rule<E>... rules) {
+        return new Rule<T>() {
+            @Override
+            void emit(T source, EBeyeXmlWriter xml) throws IOException {
+                E element = property.apply(source);
+                if (element == null)
+                    return;
+                for (Rule<E> rule : rules)
+                    rule.emit(element, xml);
+            }
+        };
+    }
+
+    /**
+     * Apply the rules in order
+     */
+    @SafeVarargs
+    static <T> Rule<T> all(final Rule<T>... rules) {
+        return new Rule<T>() {
+            @Override
+            void emit(T source, EBeyeXmlWriter xml) throws IOException {
+                for (Rule<T> rule : rules)
+                    rule.emit(source, xml);
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Directory layout of the EB-eye files under the output folder. FLAT keeps all of them in the
+ * output folder, REPOSITORY adds one folder per repository and HASHED also spreads the files
+ * of every repository in 256 folders by the hash of the accession, so no folder holds more
+ * than a few hundred files. The multi-entry files of a repository are never hashed.
+ */
+public enum EBeyeLayout {
+
+    FLAT,
+
+    REPOSITORY,
+
+    HASHED;
+
+    /**
+     * Folders already created, so the files do not check their folder every time
+     */
+    private static final Set<File> CREATED = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+    /**
+     * Folder of a file, created if it does not exist
+     * @param root output folder
+     * @param repository repository of the file
+     * @param accession accession of the project of the file, null for the multi-entry files
+     * @return the folder
+     * @throws IOException if the folder can not be created
+     */
+    public File directory(File root, String repository, String accession) throws IOException {
+        File directory = root;
+        if (this != FLAT)
+            directory = new File(directory, repository);
+        if (this == HASHED && accession != null)
+            directory = new File(directory, shard(accession));
+        if (directory != root && !CREATED.contains(directory)) {
+            if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory())
+                throw new IOException("The folder " + directory + " can not be created");
+            CREATED.add(directory);
+        }
+        return directory;
+    }
+
+    /**
+     * @return the shard of an accession, two hexadecimal digits of its CRC32
+     */
+    static String shard(String accession) {
+        CRC32 crc = new CRC32();
+        crc.update(accession.getBytes(EBeyeWriterContext.UTF8));
+        return String.format("%02x", crc.getValue() & 0xFF);
+    }
+}
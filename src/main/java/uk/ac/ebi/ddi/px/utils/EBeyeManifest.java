@@ -0,0 +1,112 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Manifest of the EB-eye files of a release: path relative to the output folder, size,
+ * number of entries and SHA-256 of every file, one tab separated line per file sorted by path.
+ * The checksums are computed while the files are written (or read, for the files kept because
+ * they have not changed), so the consumers can verify and sync the release from the manifest
+ * without reading or stat-ing the files.
+ */
+public class EBeyeManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(EBeyeManifest.class);
+
+    public static final String FILE_NAME = "ebeye_manifest.tsv";
+
+    private static final String HEADER = "path\tsize\tentries\tsha256";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File root;
+
+    private final Map<String, String> lines = new TreeMap<String, String>();
+
+    /**
+     * @param root output folder, the paths of the manifest are relative to it
+     */
+    public EBeyeManifest(File root) {
+        this.root = root;
+    }
+
+    /**
+     * Add a file, replacing the previous line of the same path
+     * @param file the file, in the output folder
+     * @param size size in bytes
+     * @param entries number of entries of the file
+     * @param checksum SHA-256 of the content of the file
+     */
+    public void add(File file, long size, int entries, byte[] checksum) {
+        String path = relativePath(file);
+        String line = path + "\t" + size + "\t" + entries + "\t" + hex(checksum);
+        synchronized (lines) {
+            lines.put(path, line);
+        }
+    }
+
+    /**
+     * @return number of files in the manifest
+     */
+    public int size() {
+        synchronized (lines) {
+            return lines.size();
+        }
+    }
+
+    /**
+     * Write the manifest in the output folder, the previous one is replaced in one step
+     * @return the manifest file
+     * @throws IOException if the manifest can not be written
+     */
+    public File write() throws IOException {
+        File manifest = new File(root, FILE_NAME);
+        File temp = File.createTempFile(FILE_NAME, ".tmp", root);
+        try {
+            Writer out = new OutputStreamWriter(new FileOutputStream(temp), EBeyeWriterContext.UTF8);
+            try {
+                out.write(HEADER);
+                out.write('\n');
+                synchronized (lines) {
+                    for (String line : lines.values()) {
+                        out.write(line);
+                        out.write('\n');
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            WriterEBeyeXML.replace(temp, manifest);
+        } finally {
+            if (temp.exists() && !temp.delete())
+                logger.warn("The temporary file " + temp + " could not be deleted");
+        }
+        logger.info("Finished writing the manifest " + manifest + " with " + size() + " files");
+        return manifest;
+    }
+
+    private String relativePath(File file) {
+        String path = root.toURI().relativize(file.toURI()).getPath();
+        if (path.startsWith("/"))
+            throw new IllegalArgumentException("The file " + file + " is not in the output folder " + root);
+        return path;
+    }
+
+    static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,352 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * UTF-8 output of the EB-eye writers. The bytes are kept in direct buffers of 64KB taken from a
+ * pool shared by all the threads, and written to the files with one gathering write. The text
+ * values are escaped and encoded in the same loop, the markup is written from pre-encoded
+ * constants.
+ *
+ * A buffer is confined to one thread, only the pool is shared.
+ */
+final class EBeyeOutputBuffer {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Free chunks kept by the pool (16MB), the others are left to the garbage collector
+     */
+    private static final int MAX_POOLED_CHUNKS = 256;
+
+    /**
+     * Longest encoding of one character: &amp;#1114111;
+     */
+    private static final int MAX_CHAR_BYTES = 10;
+
+    private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private static final byte[] LINE_SEPARATOR = System.getProperty("line.separator").getBytes(EBeyeWriterContext.UTF8);
+
+    private static final boolean UNIX_LINES = "\n".equals(System.getProperty("line.separator"));
+
+    private static final byte[] AMP = ascii("&amp;");
+
+    private static final byte[] LT = ascii("&lt;");
+
+    private static final byte[] GT = ascii("&gt;");
+
+    private static final byte[] QUOT = ascii("&quot;");
+
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+    private ByteBuffer current;
+
+    private long size = 0;
+
+    private byte[] transfer;
+
+    private Writer writer;
+
+    EBeyeOutputBuffer() {
+        current = acquire();
+        chunks.add(current);
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    long size() {
+        return size + current.position();
+    }
+
+    void write(byte b) {
+        if (!current.hasRemaining())
+            next();
+        current.put(b);
+    }
+
+    void write(byte[] bytes) {
+        write(bytes, 0, bytes.length);
+    }
+
+    void write(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (!current.hasRemaining())
+                next();
+            int chunk = Math.min(length, current.remaining());
+            current.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Append the content of other buffer
+     */
+    void write(EBeyeOutputBuffer other) {
+        for (ByteBuffer chunk : other.chunks) {
+            ByteBuffer data = (ByteBuffer) chunk.duplicate().flip();
+            while (data.hasRemaining()) {
+                if (!current.hasRemaining())
+                    next();
+                int count = Math.min(data.remaining(), current.remaining());
+                ByteBuffer slice = data.slice();
+                slice.limit(count);
+                current.put(slice);
+                data.position(data.position() + count);
+            }
+        }
+    }
+
+    /**
+     * Write a name made only of ASCII characters, e.g. the name of an element or attribute
+     */
+    void writeAscii(String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (!current.hasRemaining())
+                next();
+            current.put((byte) value.charAt(i));
+        }
+    }
+
+    /**
+     * Escape the value as the JDK serializer does and encode it in UTF-8
+     * @param value text or attribute value
+     * @param attribute true for attribute values, where quotes, tabs and new lines are also escaped
+     */
+    void writeEscaped(String value, boolean attribute) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (current.remaining() < MAX_CHAR_BYTES)
+                next();
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x7F) {
+                if (c == '&')
+                    current.put(AMP);
+                else if (c == '<')
+                    current.put(LT);
+                else if (c == '>')
+                    current.put(GT);
+                else if (c == '"' && attribute)
+                    current.put(QUOT);
+                else
+                    current.put((byte) c);
+            } else if (c == '\n') {
+                if (attribute)
+                    characterReference(c);
+                else if (UNIX_LINES)
+                    current.put((byte) c);
+                else
+                    current.put(LINE_SEPARATOR);
+            } else if (c == '\t') {
+                if (attribute)
+                    characterReference(c);
+                else
+                    current.put((byte) c);
+            } else if (c < 0x20 || (c >= 0x7F && c <= 0x9F && !attribute)) {
+                characterReference(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                characterReference(Character.toCodePoint(c, value.charAt(i + 1)));
+                i++;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    /**
+     * Encode the value in UTF-8 without escaping it
+     */
+    void writeUtf8(String value, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (current.remaining() < 4)
+                next();
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                current.put((byte) c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < offset + length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+                current.put((byte) (0xF0 | (codePoint >> 18)));
+                current.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                current.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                current.put((byte) (0x80 | (codePoint & 0x3F)));
+                i++;
+            } else {
+                encode(c);
+            }
+        }
+    }
+
+    /**
+     * Writer that encodes in UTF-8 to this buffer, for the outputs that are not XML
+     * @return the writer, flush() and close() do nothing
+     */
+    Writer asWriter() {
+        if (writer == null) {
+            writer = new Writer() {
+                @Override
+                public void write(char[] chars, int offset, int length) {
+                    writeUtf8(new String(chars, offset, length), 0, length);
+                }
+
+                @Override
+                public void write(String value, int offset, int length) {
+                    writeUtf8(value, offset, length);
+                }
+
+                @Override
+                public void write(int c) {
+                    if (c < 0x80)
+                        EBeyeOutputBuffer.this.write((byte) c);
+                    else
+                        writeUtf8(String.valueOf((char) c), 0, 1);
+                }
+
+                @Override
+                public void flush() {
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+        return writer;
+    }
+
+    /**
+     * Write the content to the channel with gathering writes
+     */
+    void writeTo(FileChannel channel) throws IOException {
+        ByteBuffer[] data = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (ByteBuffer) chunks.get(i).duplicate().flip();
+        long remaining = size();
+        while (remaining > 0)
+            remaining -= channel.write(data);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        if (transfer == null)
+            transfer = new byte[CHUNK_SIZE];
+        for (ByteBuffer chunk : chunks) {
+            ByteBuffer data = (ByteBuffer) chunk.duplicate().flip();
+            int length = data.remaining();
+            data.get(transfer, 0, length);
+            out.write(transfer, 0, length);
+        }
+    }
+
+    /**
+     * Add the content to the digest
+     */
+    void update(MessageDigest digest) {
+        for (ByteBuffer chunk : chunks)
+            digest.update((ByteBuffer) chunk.duplicate().flip());
+    }
+
+    byte[] toByteArray() {
+        byte[] bytes = new byte[(int) size()];
+        int offset = 0;
+        for (ByteBuffer chunk : chunks) {
+            ByteBuffer data = (ByteBuffer) chunk.duplicate().flip();
+            int length = data.remaining();
+            data.get(bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Empty the buffer, all the chunks but the first go back to the pool
+     */
+    void reset() {
+        for (int i = 1; i < chunks.size(); i++)
+            release(chunks.get(i));
+        current = chunks.get(0);
+        chunks.clear();
+        chunks.add(current);
+        current.clear();
+        size = 0;
+    }
+
+    /**
+     * Give all the chunks back to the pool, the buffer can not be used any more
+     */
+    void release() {
+        for (ByteBuffer chunk : chunks)
+            release(chunk);
+        chunks.clear();
+        current = null;
+    }
+
+    private void next() {
+        size += current.position();
+        current = acquire();
+        chunks.add(current);
+    }
+
+    private void encode(char c) {
+        if (c < 0x80) {
+            current.put((byte) c);
+        } else if (c < 0x800) {
+            current.put((byte) (0xC0 | (c >> 6)));
+            current.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+            // unpaired surrogate, replaced as the JDK encoder does
+            current.put((byte) '?');
+        } else {
+            current.put((byte) (0xE0 | (c >> 12)));
+            current.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            current.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    /**
+     * Write &amp;#N; where N is the decimal code point
+     */
+    private void characterReference(int codePoint) {
+        current.put((byte) '&');
+        current.put((byte) '#');
+        int divisor = 1;
+        while (divisor <= codePoint / 10)
+            divisor *= 10;
+        for (; divisor > 0; divisor /= 10)
+            current.put((byte) ('0' + (codePoint / divisor) % 10));
+        current.put((byte) ';');
+    }
+
+    private static ByteBuffer acquire() {
+        ByteBuffer chunk = POOL.poll();
+        if (chunk == null)
+            return ByteBuffer.allocateDirect(CHUNK_SIZE);
+        POOLED.decrementAndGet();
+        chunk.clear();
+        return chunk;
+    }
+
+    private static void release(ByteBuffer chunk) {
+        if (POOLED.incrementAndGet() <= MAX_POOLED_CHUNKS)
+            POOL.offer(chunk);
+        else
+            POOLED.decrementAndGet();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(EBeyeWriterContext.UTF8);
+    }
+}
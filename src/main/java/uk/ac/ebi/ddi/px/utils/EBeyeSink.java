@@ -0,0 +1,103 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Sink writing the EB-eye XML files, one file per project or many entries per file when a
+ * batch size is given.
+ */
+public class EBeyeSink implements ProjectSink {
+
+    private final File outputDirectory;
+
+    private final EBeyeCompression compression;
+
+    /**
+     * Batch writer used when the projects are exported in multi-entry files, null to write one file per project
+     */
+    private final EBeyeBatchWriter batchWriter;
+
+    private EBeyeLayout layout = EBeyeLayout.FLAT;
+
+    private EBeyeManifest manifest = null;
+
+    /**
+     * One file per project
+     * @param outputDirectory target output directory
+     * @param compression compression of the files
+     */
+    public EBeyeSink(File outputDirectory, EBeyeCompression compression) {
+        this(outputDirectory, compression, 0, 0);
+    }
+
+    /**
+     * @param outputDirectory target output directory
+     * @param compression compression of the files
+     * @param batchEntries maximum number of entries of a file, 0 to write one file per project
+     * @param batchBytes maximum size in bytes of the entries of a file when batchEntries is positive
+     */
+    public EBeyeSink(File outputDirectory, EBeyeCompression compression, int batchEntries, long batchBytes) {
+        this.outputDirectory = outputDirectory;
+        this.compression = (compression == null)? EBeyeCompression.NONE: compression;
+        if (batchEntries > 0) {
+            batchWriter = new EBeyeBatchWriter(outputDirectory, batchEntries, batchBytes);
+            batchWriter.setCompression(this.compression);
+        } else {
+            batchWriter = null;
+        }
+    }
+
+    /**
+     * Folder of the files under the output directory, it must be set before the first project
+     * @param layout FLAT (the default), REPOSITORY or HASHED
+     */
+    public void setLayout(EBeyeLayout layout) {
+        this.layout = (layout == null)? EBeyeLayout.FLAT: layout;
+        if (batchWriter != null)
+            batchWriter.setLayout(this.layout);
+    }
+
+    /**
+     * Write a manifest of the files in the output directory when the sink is closed, it must be
+     * set before the first project
+     * @param manifest true to write the manifest
+     */
+    public void setManifest(boolean manifest) {
+        this.manifest = manifest? new EBeyeManifest(outputDirectory): null;
+        if (batchWriter != null)
+            batchWriter.setManifest(this.manifest);
+    }
+
+    @Override
+    public void write(Project project) throws IOException {
+        if (batchWriter != null) {
+            batchWriter.add(project, null);
+            return;
+        }
+        WriterEBeyeXML writer = new WriterEBeyeXML(project, outputDirectory, null);
+        writer.setCompression(compression);
+        writer.setLayout(layout);
+        writer.setManifest(manifest);
+        try {
+            writer.generate();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error writing the EB-eye file of " + project.getAccession(), e);
+        }
+    }
+
+    /**
+     * Write the pending batch files and the manifest
+     */
+    @Override
+    public void close() throws IOException {
+        if (batchWriter != null)
+            batchWriter.close();
+        if (manifest != null)
+            manifest.write();
+    }
+}
@@ -0,0 +1,86 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Objects reused by {@link WriterEBeyeXML} and {@link EBeyeBatchWriter} between projects: the
+ * date formatter (SimpleDateFormat is not thread safe and expensive to create), the buffer
+ * where the XML is rendered before it is written to its file and the digest used to find
+ * the files that have not changed.
+ *
+ * A context is confined to one thread, use {@link #get()} to retrieve the one of the current
+ * thread. With it the writers can be created per project or shared by many threads at no cost.
+ */
+public class EBeyeWriterContext {
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final ThreadLocal<EBeyeWriterContext> CONTEXTS = new ThreadLocal<EBeyeWriterContext>() {
+        @Override
+        protected EBeyeWriterContext initialValue() {
+            return new EBeyeWriterContext();
+        }
+    };
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    private final EBeyeOutputBuffer renderBuffer = new EBeyeOutputBuffer();
+
+    private MessageDigest digest;
+
+    /**
+     * @return the context confined to the current thread
+     */
+    public static EBeyeWriterContext get() {
+        return CONTEXTS.get();
+    }
+
+    /**
+     * Format a date as the EB-eye files expect it (yyyy-MM-dd)
+     * @param date the date
+     * @return formatted date
+     */
+    public String formatDate(Date date) {
+        return dateFormat.format(date);
+    }
+
+    /**
+     * Empty buffer where an entry or a file can be rendered, only its first chunk is kept
+     * by the thread between uses
+     * @return the buffer
+     */
+    EBeyeOutputBuffer renderBuffer() {
+        renderBuffer.reset();
+        return renderBuffer;
+    }
+
+    /**
+     * UTF-8 writer of the render buffer
+     * @return the writer
+     */
+    Writer renderWriter() {
+        return renderBuffer.asWriter();
+    }
+
+    /**
+     * @return the SHA-256 digest of this context, reset
+     */
+    MessageDigest digest() {
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+            }
+        }
+        digest.reset();
+        return digest;
+    }
+}
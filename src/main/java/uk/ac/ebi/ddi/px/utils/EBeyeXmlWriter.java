@@ -0,0 +1,296 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Minimal streaming XML writer for the EB-eye files. Elements hold either text or other
+ * elements, which is all the EB-eye format needs. The output is the same as the one of the
+ * JDK identity Transformer used before (indent-amount 2, no XML declaration): elements
+ * without text are closed as empty tags, text only elements stay in one line and the
+ * characters are escaped the same way.
+ *
+ * The XML is written in UTF-8 to an {@link EBeyeOutputBuffer}. The tags and the indentation
+ * are encoded once, so the cost of an entry is mostly the escaping of its text.
+ */
+class EBeyeXmlWriter {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final int MAX_DEPTH = 16;
+
+    private static final ConcurrentMap<String, Tag> TAGS = new ConcurrentHashMap<String, Tag>();
+
+    /**
+     * New line followed by the indentation of every depth
+     */
+    private static final byte[][] INDENTS = new byte[MAX_DEPTH][];
+
+    private static final byte[] LINE_END = ascii(LINE_SEPARATOR);
+
+    private static final byte[] EMPTY_END = ascii("/>");
+
+    private static final byte[] ATTRIBUTE_START = ascii("=\"");
+
+    static {
+        StringBuilder indent = new StringBuilder(LINE_SEPARATOR);
+        for (int i = 0; i < MAX_DEPTH; i++) {
+            INDENTS[i] = ascii(indent.toString());
+            indent.append("  ");
+        }
+    }
+
+    private EBeyeOutputBuffer out;
+
+    private final boolean indent;
+
+    private final Tag[] tags = new Tag[MAX_DEPTH];
+
+    private final boolean[] hasChildren = new boolean[MAX_DEPTH];
+
+    private int depth = 0;
+
+    private boolean startTagOpen = false;
+
+    private boolean started = false;
+
+    private long overflowThreshold = Long.MAX_VALUE;
+
+    private Overflow overflow;
+
+    /**
+     * Pre-encoded start and end tags of an element
+     */
+    static final class Tag {
+
+        private final byte[] start;
+
+        private final byte[] end;
+
+        private Tag(byte[] start, byte[] end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Receives the output when it grows too big to be kept in memory
+     */
+    interface Overflow {
+
+        /**
+         * Take the content of the buffer, it must be empty when the method returns
+         */
+        void overflow(EBeyeOutputBuffer buffer) throws IOException;
+    }
+
+    /**
+     * @param out output buffer
+     * @param indent true to indent the elements with two spaces as the DOM writer did
+     */
+    EBeyeXmlWriter(EBeyeOutputBuffer out, boolean indent) {
+        this(out, indent, 0);
+    }
+
+    /**
+     * Writer of a fragment that is nested in a document written by other writer, e.g. the
+     * entries of a batch file. The fragment starts with a new line when it is indented.
+     * @param out output buffer
+     * @param indent true to indent the elements with two spaces as the DOM writer did
+     * @param depth depth of the elements of the fragment in the document
+     */
+    EBeyeXmlWriter(EBeyeOutputBuffer out, boolean indent, int depth) {
+        this.out = out;
+        this.indent = indent;
+        this.depth = depth;
+        this.started = depth > 0;
+    }
+
+    /**
+     * @return the tags of an element without attributes
+     */
+    static Tag tag(String name) {
+        Tag tag = TAGS.get(name);
+        if (tag == null) {
+            tag = new Tag(ascii("<" + name), ascii("</" + name + ">"));
+            TAGS.putIfAbsent(name, tag);
+        }
+        return tag;
+    }
+
+    /**
+     * @return the tags of an element with one attribute of fixed value, e.g. &lt;field name="species"&gt;
+     */
+    static Tag tag(String name, String attribute, String value) {
+        EBeyeOutputBuffer buffer = new EBeyeOutputBuffer();
+        try {
+            EBeyeXmlWriter xml = new EBeyeXmlWriter(buffer, false);
+            xml.startElement(name);
+            xml.attribute(attribute, value);
+            return new Tag(buffer.toByteArray(), tag(name).end);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * @return an attribute with its value escaped and encoded, with the leading space
+     */
+    static byte[] encodeAttribute(String name, String value) {
+        EBeyeOutputBuffer buffer = new EBeyeOutputBuffer();
+        try {
+            new EBeyeXmlWriter(buffer, false).attribute(name, value);
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Hand the output to the overflow when it is bigger than the threshold, see {@link #checkOverflow()}
+     */
+    void setOverflow(long threshold, Overflow overflow) {
+        this.overflowThreshold = threshold;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Called between elements of big entries, e.g. every few thousand cross references
+     */
+    void checkOverflow() throws IOException {
+        if (overflow != null && out.size() > overflowThreshold)
+            overflow.overflow(out);
+    }
+
+    void startElement(String name) {
+        startElement(tag(name));
+    }
+
+    void startElement(Tag tag) {
+        closeStartTag();
+        if (depth > 0)
+            hasChildren[depth - 1] = true;
+        if (indent && started)
+            out.write(INDENTS[depth]);
+        started = true;
+        out.write(tag.start);
+        tags[depth] = tag;
+        hasChildren[depth] = false;
+        depth++;
+        startTagOpen = true;
+    }
+
+    /**
+     * Add an attribute to the element just started. The attributes must be added in
+     * alphabetical order, as the DOM writer did.
+     */
+    void attribute(String name, String value) {
+        out.write((byte) ' ');
+        out.writeAscii(name);
+        out.write(ATTRIBUTE_START);
+        if (value != null)
+            out.writeEscaped(value, true);
+        out.write((byte) '"');
+    }
+
+    /**
+     * Add an attribute built with {@link #encodeAttribute(String, String)}
+     */
+    void attribute(byte[] attribute) {
+        out.write(attribute);
+    }
+
+    /**
+     * Write the text of the current element, null or empty values leave the element empty
+     */
+    void text(String value) {
+        if (value == null || value.isEmpty())
+            return;
+        closeStartTag();
+        out.writeEscaped(value, false);
+    }
+
+    void endElement() {
+        depth--;
+        if (startTagOpen) {
+            out.write(EMPTY_END);
+            startTagOpen = false;
+        } else {
+            if (indent && hasChildren[depth])
+                out.write(INDENTS[depth]);
+            out.write(tags[depth].end);
+        }
+        tags[depth] = null;
+    }
+
+    /**
+     * Close the start tag of the current element before its child elements are written
+     * in other buffer, e.g. pre-rendered entries. The rest of the document is written in
+     * the given buffer.
+     * @param next buffer of the rest of the document
+     */
+    void startContent(EBeyeOutputBuffer next) {
+        closeStartTag();
+        if (depth > 0)
+            hasChildren[depth - 1] = true;
+        out = next;
+    }
+
+    /**
+     * Write an element holding only text
+     */
+    void element(String name, String value) {
+        element(tag(name), value);
+    }
+
+    /**
+     * Write an element holding only text with pre-encoded tags
+     */
+    void element(Tag tag, String value) {
+        startElement(tag);
+        text(value);
+        endElement();
+    }
+
+    /**
+     * Write an empty element with two attributes
+     */
+    void element(String name, String attribute1, String value1, String attribute2, String value2) {
+        startElement(name);
+        attribute(attribute1, value1);
+        attribute(attribute2, value2);
+        endElement();
+    }
+
+    /**
+     * Write an element with one attribute and text
+     */
+    void element(String name, String attribute, String attributeValue, String value) {
+        startElement(name);
+        attribute(attribute, attributeValue);
+        text(value);
+        endElement();
+    }
+
+    /**
+     * Finish the document, the indented output ends with a new line
+     */
+    void endDocument() {
+        if (depth != 0)
+            throw new IllegalStateException("Element " + new String(tags[depth - 1].start, EBeyeWriterContext.UTF8) + " has not been closed");
+        if (indent && started)
+            out.write(LINE_END);
+    }
+
+    private void closeStartTag() {
+        if (startTagOpen) {
+            out.write((byte) '>');
+            startTagOpen = false;
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(EBeyeWriterContext.UTF8);
+    }
+}
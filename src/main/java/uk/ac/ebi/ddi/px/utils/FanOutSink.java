@@ -0,0 +1,75 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends every project to all the configured sinks, so all the outputs are produced from a
+ * single crawl or parse. An error in one sink does not stop the others from getting the project.
+ */
+public class FanOutSink implements ProjectSink {
+
+    private final List<ProjectSink> sinks;
+
+    /**
+     * @param sinks the sinks, in the order they are called
+     */
+    public FanOutSink(List<ProjectSink> sinks) {
+        this.sinks = new ArrayList<ProjectSink>(sinks);
+    }
+
+    /**
+     * Write the project in all the sinks
+     * @param project the project
+     * @throws IOException the error of the first sink that failed, the others are suppressed
+     */
+    @Override
+    public void write(Project project) throws IOException {
+        IOException error = null;
+        for (ProjectSink sink : sinks) {
+            try {
+                sink.write(project);
+            } catch (IOException e) {
+                error = addError(error, e);
+            } catch (RuntimeException e) {
+                error = addError(error, new IOException("Error writing " + project.getAccession() + " in " + sink.getClass().getSimpleName(), e));
+            }
+        }
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * Close all the sinks, even if some of them fail
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (ProjectSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                error = addError(error, e);
+            }
+        }
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * @return the sinks
+     */
+    public List<ProjectSink> getSinks() {
+        return new ArrayList<ProjectSink>(sinks);
+    }
+
+    private static IOException addError(IOException error, IOException e) {
+        if (error == null)
+            return e;
+        error.addSuppressed(e);
+        return error;
+    }
+}
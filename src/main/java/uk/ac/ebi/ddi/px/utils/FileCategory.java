@@ -0,0 +1,19 @@
+package uk.ac.ebi.ddi.px.utils;
+
+/**
+ * Kind of a data file of a project
+ */
+public enum FileCategory {
+
+    /** peak lists: mgf, mzML, ... */
+    PEAK,
+
+    /** complete submission results: PRIDE XML and mzIdentML */
+    RESULT,
+
+    /** raw files of the instruments */
+    RAW,
+
+    /** output files of the search engines */
+    SEARCH_ENGINE
+}
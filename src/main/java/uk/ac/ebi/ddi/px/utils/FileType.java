@@ -0,0 +1,64 @@
+package uk.ac.ebi.ddi.px.utils;
+
+/**
+ * Type of data file recognised by the end of its name, e.g. ".mgf" for the MGF peak lists.
+ * A type can also require a text in the name, e.g. the PRIDE XML files are the ".xml" files
+ * with "pride" in the name. The comparisons ignore the case.
+ */
+public final class FileType {
+
+    private final String name;
+
+    private final FileCategory category;
+
+    private final String requiredText;
+
+    private final String[] suffixes;
+
+    /**
+     * @param name name of the type, e.g. MZIDENTML
+     * @param category kind of file
+     * @param requiredText text that the file name must contain, null for none
+     * @param suffixes endings of the file names, without the compression suffix
+     */
+    public FileType(String name, FileCategory category, String requiredText, String... suffixes) {
+        if (suffixes.length == 0)
+            throw new IllegalArgumentException("The file type " + name + " has no suffix");
+        this.name = name;
+        this.category = category;
+        this.requiredText = requiredText;
+        this.suffixes = suffixes.clone();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public FileCategory getCategory() {
+        return category;
+    }
+
+    String[] getSuffixes() {
+        return suffixes;
+    }
+
+    /**
+     * @return true if the file name has the required text of the type, the folders of a path or URL
+     *         (e.g. ftp://ftp.pride.ebi.ac.uk/pride/...) are not part of the name
+     */
+    boolean accepts(String fileName) {
+        if (requiredText == null)
+            return true;
+        int first = fileName.lastIndexOf('/') + 1;
+        int last = fileName.length() - requiredText.length();
+        for (int i = first; i <= last; i++)
+            if (fileName.regionMatches(true, i, requiredText, 0, requiredText.length()))
+                return true;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,204 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.DataFileSummary;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Registry of the data file types, it classifies a file name by walking its characters from the
+ * end through a trie of the reversed suffixes of all the types, without lower casing or copying
+ * the name. The longest suffix wins, e.g. ".pep.xml" over ".xml". The compression suffixes
+ * (.gz, .zip, ...) are removed first, so every type also matches its compressed files.
+ *
+ * New types must be registered before the registry is shared by several threads.
+ */
+public class FileTypeRegistry {
+
+    private static final FileTypeRegistry DEFAULT = createDefault();
+
+    private final Node types = new Node();
+
+    private final Node compressions = new Node();
+
+    /**
+     * @return registry of the usual proteomics files
+     */
+    public static FileTypeRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return new registry of the usual proteomics files, that can be extended
+     */
+    public static FileTypeRegistry createDefault() {
+        FileTypeRegistry registry = new FileTypeRegistry();
+
+        registry.registerCompression(".gz");
+        registry.registerCompression(".zip");
+        registry.registerCompression(".bz2");
+
+        registry.register(new FileType("MGF", FileCategory.PEAK, null, ".mgf"));
+        registry.register(new FileType("PKL", FileCategory.PEAK, null, ".pkl"));
+        registry.register(new FileType("MZML", FileCategory.PEAK, null, ".mzml"));
+        registry.register(new FileType("MZXML", FileCategory.PEAK, null, ".mzxml"));
+        registry.register(new FileType("MZDATA", FileCategory.PEAK, null, ".mzdata"));
+        registry.register(new FileType("MS2", FileCategory.PEAK, null, ".ms2"));
+        registry.register(new FileType("DTA", FileCategory.PEAK, null, ".dta"));
+        registry.register(new FileType("APL", FileCategory.PEAK, null, ".apl"));
+
+        registry.register(new FileType("PRIDE XML", FileCategory.RESULT, "pride", ".xml"));
+        registry.register(new FileType("MZIDENTML", FileCategory.RESULT, null, ".mzid", ".mzidentml"));
+
+        registry.register(new FileType("THERMO RAW", FileCategory.RAW, null, ".raw"));
+        registry.register(new FileType("SCIEX WIFF", FileCategory.RAW, null, ".wiff", ".wiff.scan"));
+        registry.register(new FileType("BRUKER", FileCategory.RAW, null, ".baf", ".tdf", ".yep"));
+        registry.register(new FileType("SCIEX T2D", FileCategory.RAW, null, ".t2d"));
+        registry.register(new FileType("SHIMADZU LCD", FileCategory.RAW, null, ".lcd"));
+
+        registry.register(new FileType("MASCOT DAT", FileCategory.SEARCH_ENGINE, null, ".dat"));
+        registry.register(new FileType("PROTEOME DISCOVERER", FileCategory.SEARCH_ENGINE, null, ".msf", ".pdresult"));
+        registry.register(new FileType("PEPXML", FileCategory.SEARCH_ENGINE, null, ".pep.xml", ".pepxml"));
+        registry.register(new FileType("PROTXML", FileCategory.SEARCH_ENGINE, null, ".prot.xml", ".protxml"));
+        registry.register(new FileType("XTANDEM", FileCategory.SEARCH_ENGINE, null, ".t.xml"));
+
+        return registry;
+    }
+
+    /**
+     * Add a file type, the types registered first win when several match the same suffix
+     */
+    public void register(FileType type) {
+        for (String suffix : type.getSuffixes())
+            insert(types, suffix).addType(type);
+    }
+
+    /**
+     * Add a compression suffix, e.g. ".gz"
+     */
+    public void registerCompression(String suffix) {
+        insert(compressions, suffix).compression = true;
+    }
+
+    /**
+     * @return the type of the file, null if it is unknown
+     */
+    public FileType classify(String fileName) {
+        int end = fileName.length() - longestMatch(compressions, fileName, fileName.length());
+        Node node = types;
+        FileType type = null;
+        for (int i = end - 1; i >= 0 && node != null; i--) {
+            node = node.child(lowerCase(fileName.charAt(i)));
+            if (node != null && node.types != null) {
+                for (FileType candidate : node.types) {
+                    if (candidate.accepts(fileName)) {
+                        type = candidate;
+                        break;
+                    }
+                }
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Classify all the files of a project in one pass
+     * @param fileNames names or URLs of the files, can be null
+     * @return number of files of every category
+     */
+    public DataFileSummary summarize(List<String> fileNames) {
+        int files = 0;
+        int[] counts = new int[FileCategory.values().length];
+        FileType resultType = null;
+        if (fileNames != null) {
+            for (String fileName : fileNames) {
+                if (fileName == null)
+                    continue;
+                files++;
+                FileType type = classify(fileName);
+                if (type == null)
+                    continue;
+                counts[type.getCategory().ordinal()]++;
+                if (type.getCategory() == FileCategory.RESULT)
+                    resultType = type;
+            }
+        }
+        return new DataFileSummary(files,
+                counts[FileCategory.PEAK.ordinal()],
+                counts[FileCategory.RESULT.ordinal()],
+                counts[FileCategory.RAW.ordinal()],
+                counts[FileCategory.SEARCH_ENGINE.ordinal()],
+                (resultType == null)? null: resultType.getName());
+    }
+
+    /**
+     * @return length of the longest compression suffix of the name, 0 if it has none
+     */
+    private static int longestMatch(Node root, String fileName, int end) {
+        Node node = root;
+        int length = 0;
+        for (int i = end - 1; i >= 0; i--) {
+            node = node.child(lowerCase(fileName.charAt(i)));
+            if (node == null)
+                break;
+            if (node.compression)
+                length = end - i;
+        }
+        return length;
+    }
+
+    private static Node insert(Node root, String suffix) {
+        Node node = root;
+        for (int i = suffix.length() - 1; i >= 0; i--)
+            node = node.getOrAddChild(lowerCase(suffix.charAt(i)));
+        return node;
+    }
+
+    private static char lowerCase(char c) {
+        if (c >= 'A' && c <= 'Z')
+            return (char) (c + ('a' - 'A'));
+        return (c < 0x80)? c: Character.toLowerCase(c);
+    }
+
+    /**
+     * Node of the trie, the children are few so they are kept in small arrays
+     */
+    private static class Node {
+
+        private char[] keys = new char[0];
+
+        private Node[] children = new Node[0];
+
+        private FileType[] types;
+
+        private boolean compression = false;
+
+        private Node child(char key) {
+            for (int i = 0; i < keys.length; i++)
+                if (keys[i] == key)
+                    return children[i];
+            return null;
+        }
+
+        private Node getOrAddChild(char key) {
+            Node child = child(key);
+            if (child == null) {
+                child = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = key;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+
+        private void addType(FileType type) {
+            if (types == null) {
+                types = new FileType[] {type};
+            } else {
+                types = Arrays.copyOf(types, types.length + 1);
+                types[types.length - 1] = type;
+            }
+        }
+    }
+}
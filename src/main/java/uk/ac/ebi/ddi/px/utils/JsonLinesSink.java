@@ -0,0 +1,104 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.CvParam;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.model.Reference;
+import uk.ac.ebi.ddi.px.model.Submitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Sink writing the projects as JSON Lines (NDJSON), one JSON object per project and line, for
+ * the loaders that read it faster than the EB-eye XML. Null values and empty lists are left out.
+ */
+public class JsonLinesSink extends LineSink {
+
+    /**
+     * @param file output file, the suffix of the compression is added to its name
+     * @param compression compression of the file
+     * @throws IOException if the file can not be created
+     */
+    public JsonLinesSink(File file, EBeyeCompression compression) throws IOException {
+        super(file, compression, null);
+    }
+
+    @Override
+    void render(Project project, Writer out, EBeyeWriterContext context) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.startObject();
+        json.field("accession", project.getAccession());
+        json.field("repository", project.getRepositoryName());
+        json.field("title", project.getTitle());
+        json.field("description", project.getProjectDescription());
+        if (project.getSubmissionDate() != null)
+            json.field("submissionDate", context.formatDate(project.getSubmissionDate()));
+        if (project.getPublicationDate() != null)
+            json.field("publicationDate", context.formatDate(project.getPublicationDate()));
+        json.field("datasetLink", project.getDatasetLink());
+        json.field("sampleProtocol", project.getSampleProcessingProtocol());
+        json.field("dataProtocol", project.getDataProcessingProtocol());
+        json.field("doi", project.getDoi());
+        cvParams(json, "species", project.getSpecies());
+        json.strings("taxonomies", project.getTaxonomies());
+        cvParams(json, "instruments", project.getInstruments());
+        cvParams(json, "cellTypes", project.getCellTypes());
+        cvParams(json, "diseases", project.getDiseases());
+        cvParams(json, "tissues", project.getTissues());
+        cvParams(json, "modifications", project.getPtms());
+        cvParams(json, "experimentTypes", project.getExperimentTypes());
+        cvParams(json, "quantificationMethods", project.getQuantificationMethods());
+        cvParams(json, "software", project.getSoftware());
+        json.strings("curatorKeywords", project.getProjectTags());
+        json.strings("submitterKeywords", project.getKeywords());
+        List<Reference> references = project.getReferences();
+        if (references != null && !references.isEmpty()) {
+            json.startArray("references");
+            for (Reference reference : references) {
+                json.startObject();
+                if (reference.getPubmedId() != null)
+                    json.number("pubmedId", reference.getPubmedId());
+                json.field("referenceLine", reference.getReferenceLine());
+                json.endObject();
+            }
+            json.endArray();
+        }
+        if (project.getSubmitter() != null) {
+            json.name("submitter");
+            submitter(json, project.getSubmitter());
+        }
+        List<Submitter> labHeads = project.getLabHeads();
+        if (labHeads != null && !labHeads.isEmpty()) {
+            json.startArray("labHeads");
+            for (Submitter labHead : labHeads)
+                submitter(json, labHead);
+            json.endArray();
+        }
+        json.strings("dataFiles", project.getDataFiles());
+        json.endObject();
+    }
+
+    private static void cvParams(JsonWriter json, String name, List<CvParam> values) throws IOException {
+        if (values == null || values.isEmpty())
+            return;
+        json.startArray(name);
+        for (CvParam value : values) {
+            json.startObject();
+            json.field("accession", value.getAccession());
+            json.field("name", value.getName());
+            json.field("value", value.getValue());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private static void submitter(JsonWriter json, Submitter submitter) throws IOException {
+        json.startObject();
+        json.field("name", submitter.getName());
+        json.field("email", submitter.getEmail());
+        json.field("affiliation", submitter.getAffiliation());
+        json.endObject();
+    }
+}
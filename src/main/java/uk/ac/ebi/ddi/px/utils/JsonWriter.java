@@ -0,0 +1,113 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Minimal streaming JSON writer, it only keeps track of the commas
+ */
+public final class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+
+    private boolean first = true;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void startObject() throws IOException {
+        separator();
+        out.write('{');
+        first = true;
+    }
+
+    public void endObject() throws IOException {
+        out.write('}');
+        first = false;
+    }
+
+    public void startArray(String name) throws IOException {
+        name(name);
+        out.write('[');
+        first = true;
+    }
+
+    public void endArray() throws IOException {
+        out.write(']');
+        first = false;
+    }
+
+    public void name(String name) throws IOException {
+        separator();
+        string(name);
+        out.write(':');
+        first = true;
+    }
+
+    public void field(String name, String value) throws IOException {
+        if (value == null)
+            return;
+        name(name);
+        value(value);
+    }
+
+    public void number(String name, Number value) throws IOException {
+        name(name);
+        first = false;
+        out.write(value.toString());
+    }
+
+    public void value(String value) throws IOException {
+        separator();
+        string(value);
+    }
+
+    public void strings(String name, List<String> values) throws IOException {
+        if (values == null || values.isEmpty())
+            return;
+        startArray(name);
+        for (String value : values)
+            if (value != null)
+                value(value);
+        endArray();
+    }
+
+    private void separator() throws IOException {
+        if (!first)
+            out.write(',');
+        first = false;
+    }
+
+    private void string(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            // U+2028 and U+2029 end the line for JavaScript parsers
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029')
+                continue;
+            out.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':  out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    out.write("\\u");
+                    out.write(HEX[(c >> 12) & 0xF]);
+                    out.write(HEX[(c >> 8) & 0xF]);
+                    out.write(HEX[(c >> 4) & 0xF]);
+                    out.write(HEX[c & 0xF]);
+            }
+        }
+        out.write(value, start, length - start);
+        out.write('"');
+    }
+}
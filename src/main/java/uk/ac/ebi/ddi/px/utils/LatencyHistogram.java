@@ -0,0 +1,110 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of latencies in nanoseconds, with buckets laid out as in HdrHistogram: the
+ * values below 128 have one bucket each, and every power of two above is split in 64 buckets,
+ * so the percentiles are exact to within 1.6% from one nanosecond to many hours. Recording is
+ * an increment of a bucket, without locks or allocation, from any number of threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    private static final int BUCKETS = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency
+     * @param nanos the latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(index(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos))
+            current = max.get();
+    }
+
+    /**
+     * @return number of latencies recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return sum of the latencies recorded, in nanoseconds
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return highest latency recorded, in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return mean latency in nanoseconds, 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long recorded = count.get();
+        return (recorded == 0)? 0: (double) total.get() / recorded;
+    }
+
+    /**
+     * Latency below which the given percentage of the latencies fall
+     * @param percentile percentage, between 0 and 100
+     * @return highest value of the bucket holding the percentile, in nanoseconds, 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            recorded += counts.get(i);
+        if (recorded == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highestValue(i), max.get());
+        }
+        return max.get();
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int bucket = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> bucket);
+        return SUB_BUCKET_COUNT + (bucket - 1) * SUB_BUCKET_HALF + (subBucket - SUB_BUCKET_HALF);
+    }
+
+    private static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int bucket = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
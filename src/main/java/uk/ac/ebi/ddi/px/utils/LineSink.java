@@ -0,0 +1,83 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Sink writing one line per project in a single file. The line is rendered in the buffer of the
+ * writer thread, only the copy to the file is serialized.
+ */
+abstract class LineSink implements ProjectSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(LineSink.class);
+
+    private final File file;
+
+    private final OutputStream out;
+
+    private long lines = 0;
+
+    private boolean closed = false;
+
+    /**
+     * @param file output file, the suffix of the compression is added to its name
+     * @param compression compression of the file
+     * @param header first line of the file, null for none
+     * @throws IOException if the file can not be created
+     */
+    LineSink(File file, EBeyeCompression compression, String header) throws IOException {
+        if (compression == null)
+            compression = EBeyeCompression.NONE;
+        this.file = new File(file.getPath() + compression.getSuffix());
+        this.out = compression.open(this.file);
+        if (header != null)
+            out.write((header + "\n").getBytes(EBeyeWriterContext.UTF8));
+    }
+
+    /**
+     * Render the line of a public project, without the line separator
+     * @param project the project
+     * @param out output of the line
+     * @param context writer context of the current thread
+     */
+    abstract void render(Project project, Writer out, EBeyeWriterContext context) throws IOException;
+
+    @Override
+    public void write(Project project) throws IOException {
+        if (!project.isPublicProject())
+            return;
+        EBeyeWriterContext context = EBeyeWriterContext.get();
+        EBeyeOutputBuffer line = context.renderBuffer();
+        Writer writer = context.renderWriter();
+        render(project, writer, context);
+        writer.write('\n');
+        synchronized (this) {
+            if (closed)
+                throw new IOException("The file " + file + " has been closed");
+            line.writeTo(out);
+            lines++;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        out.close();
+        logger.info("Finished writing " + file + " with " + lines + " projects");
+    }
+
+    /**
+     * @return the output file
+     */
+    public File getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,74 @@
+package uk.ac.ebi.ddi.px.utils;
+
+/**
+ * Open addressing set of longs, it takes 8 to 16 bytes per value instead of the 50 or more of
+ * a HashSet of Long. The value 0 is stored apart.
+ */
+final class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots;
+
+    private int mask;
+
+    private int size = 0;
+
+    private boolean hasZero = false;
+
+    /**
+     * @param expected expected number of values
+     */
+    LongHashSet(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2 && capacity < (1 << 30))
+            capacity <<= 1;
+        slots = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return true if the value was not in the set
+     */
+    boolean add(long value) {
+        if (value == 0) {
+            if (hasZero)
+                return false;
+            hasZero = true;
+            return true;
+        }
+        int slot = slot(value);
+        while (slots[slot] != 0) {
+            if (slots[slot] == value)
+                return false;
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        if (++size > (slots.length >> 1) + (slots.length >> 2))
+            grow();
+        return true;
+    }
+
+    int size() {
+        return hasZero? size + 1: size;
+    }
+
+    private int slot(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        mask = slots.length - 1;
+        for (long value : old) {
+            if (value == 0)
+                continue;
+            int slot = slot(value);
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = value;
+        }
+    }
+}
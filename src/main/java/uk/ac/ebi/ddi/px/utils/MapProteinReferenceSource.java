@@ -0,0 +1,37 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Protein references held in a map from accession to database, as the writers took them before
+ */
+public class MapProteinReferenceSource implements ProteinReferenceSource {
+
+    private final Iterator<Map.Entry<String, String>> references;
+
+    private Map.Entry<String, String> current;
+
+    /**
+     * @param proteins database of every protein accession
+     */
+    public MapProteinReferenceSource(Map<String, String> proteins) {
+        this.references = proteins.entrySet().iterator();
+    }
+
+    @Override
+    public boolean next() {
+        current = references.hasNext()? references.next(): null;
+        return current != null;
+    }
+
+    @Override
+    public String getAccession() {
+        return current.getKey();
+    }
+
+    @Override
+    public String getDatabase() {
+        return current.getValue();
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * End of a pipeline of {@link PipelineStage}: collects the items as the stages finish them, in
+ * any order, and hands them back in the order of their sequence numbers. The producer must not
+ * have more than the given window of items in the pipeline, that keeps the items waiting for an
+ * earlier one bounded; {@link #accept(PipelineItem)} never blocks, so the last stage is
+ * never held up by the consumer.
+ */
+public class OrderedCompletion<T> implements PipelineSink<T> {
+
+    private final Map<Long, PipelineItem<T>> completed = new HashMap<Long, PipelineItem<T>>();
+
+    private final int window;
+
+    private long submitted = 0;
+
+    private long next = 0;
+
+    /**
+     * @param window maximum number of items in the pipeline at the same time
+     */
+    public OrderedCompletion(int window) {
+        if (window < 1)
+            throw new IllegalArgumentException("The window must be positive");
+        this.window = window;
+    }
+
+    /**
+     * Reserve the sequence number of a new item
+     * @return the sequence number, or -1 if the window is full and {@link #take()} must be called first
+     */
+    public synchronized long reserve() {
+        if (submitted - next >= window)
+            return -1;
+        return submitted++;
+    }
+
+    /**
+     * @return number of items reserved and not taken yet
+     */
+    public synchronized int getPending() {
+        return (int) (submitted - next);
+    }
+
+    @Override
+    public synchronized void accept(PipelineItem<T> item) {
+        completed.put(item.getSequence(), item);
+        if (item.getSequence() == next)
+            notifyAll();
+    }
+
+    /**
+     * Wait for the item following the last one taken
+     * @return the item, with its value or the error of the stage that failed
+     * @throws IllegalStateException if no item is pending
+     */
+    public synchronized PipelineItem<T> take() throws InterruptedException {
+        if (next == submitted)
+            throw new IllegalStateException("No item pending");
+        PipelineItem<T> item;
+        while ((item = completed.remove(next)) == null)
+            wait();
+        next++;
+        return item;
+    }
+}
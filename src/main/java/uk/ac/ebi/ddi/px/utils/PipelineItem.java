@@ -0,0 +1,74 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Value going through the stages of a pipeline with its sequence number, or the error of the
+ * stage that failed to process it.
+ */
+public final class PipelineItem<T> {
+
+    private final long sequence;
+
+    private final T value;
+
+    private final Throwable error;
+
+    public PipelineItem(long sequence, T value) {
+        this(sequence, value, null);
+    }
+
+    PipelineItem(long sequence, T value, Throwable error) {
+        this.sequence = sequence;
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * Item of a sequence number whose value could not be passed to the pipeline, so the sequence is
+     * still completed
+     */
+    public static <T> PipelineItem<T> failed(long sequence, Throwable error) {
+        return new PipelineItem<T>(sequence, null, error);
+    }
+
+    /**
+     * @return the same value or error with another sequence number, e.g. the one of the consumer of a
+     * pipeline shared by several consumers
+     */
+    public PipelineItem<T> withSequence(long sequence) {
+        return new PipelineItem<T>(sequence, value, error);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the value, null if an earlier stage gave no output
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * @return the error of the stage that failed, null if all of them succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return the value, null if an earlier stage gave no output
+     * @throws Exception the error of the stage that failed, an Error is rethrown as it is
+     */
+    public T get() throws Exception {
+        if (error instanceof Exception)
+            throw (Exception) error;
+        if (error instanceof Error)
+            throw (Error) error;
+        if (error != null)
+            throw new ExecutionException(error);
+        return value;
+    }
+}
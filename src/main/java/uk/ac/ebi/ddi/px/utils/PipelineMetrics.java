@@ -0,0 +1,282 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the crawl pipeline: a latency histogram per stage, the bytes and pages fetched
+ * and, as gauges, the depth of the queues of the fetch, parse, transform and write stages and the
+ * accession and loop gap of the crawl. A stage is timed with
+ * <pre>
+ *     long start = System.nanoTime();
+ *     ...
+ *     metrics.record(Stage.FETCH, start);
+ * </pre>
+ * The metrics are always collected, they can be published over JMX with {@link #registerMBeans()}
+ * and in the Prometheus text format with a {@link PrometheusEndpoint}.
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+
+    static final String DOMAIN = "uk.ac.ebi.ddi.px";
+
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    /**
+     * Stages of the crawl, in the order a project goes through them
+     */
+    public enum Stage {
+        /** download of a PX XML page (getPage) */
+        FETCH("fetch"),
+        /** check that the page is well formed XML (validateXML) */
+        VALIDATE("validate"),
+        /** unmarshal of the PX XML into the JAXB model (PxReader) */
+        UNMARSHAL("unmarshal"),
+        /** mapping of the JAXB model into a Project (ReaderPxXML.transform) */
+        TRANSFORM("transform"),
+        /** output of the project to all the sinks, EB-eye generation included */
+        WRITE("write");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return name of the stage in the metrics
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final StageTimer[] timers = new StageTimer[Stage.values().length];
+
+    private final LongAdder bytesFetched = new LongAdder();
+
+    private final LongAdder pagesFetched = new LongAdder();
+
+    private final LongAdder fetchErrors = new LongAdder();
+
+    private volatile AsyncProjectHandler writeQueue;
+
+    private volatile PipelineStage<?, ?> fetchQueue;
+
+    private volatile PipelineStage<?, ?> parseQueue;
+
+    private volatile PipelineStage<?, ?> transformQueue;
+
+    private volatile String currentAccession;
+
+    private volatile int loopGap;
+
+    private boolean registered = false;
+
+    PipelineMetrics() {
+        for (Stage stage : Stage.values())
+            timers[stage.ordinal()] = new StageTimer(stage);
+    }
+
+    /**
+     * @return metrics of the pipeline of this JVM
+     */
+    public static PipelineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record the time spent in a stage since start
+     * @param stage the stage
+     * @param start value of System.nanoTime() when the stage started
+     */
+    public void record(Stage stage, long start) {
+        timers[stage.ordinal()].histogram.record(System.nanoTime() - start);
+    }
+
+    /**
+     * @return timer of the stage
+     */
+    public StageTimer getTimer(Stage stage) {
+        return timers[stage.ordinal()];
+    }
+
+    /**
+     * Count a page downloaded
+     * @param bytes size of the page in bytes
+     */
+    public void pageFetched(long bytes) {
+        pagesFetched.increment();
+        bytesFetched.add(bytes);
+    }
+
+    /**
+     * Count a page that could not be downloaded
+     */
+    public void fetchFailed() {
+        fetchErrors.increment();
+    }
+
+    /**
+     * @param writeQueue write stage whose queue depth is reported, null for none
+     */
+    public void setWriteQueue(AsyncProjectHandler writeQueue) {
+        this.writeQueue = writeQueue;
+    }
+
+    /**
+     * @param fetch fetch stage whose queue depth is reported, null for none
+     * @param parse parse stage whose queue depth is reported, null for none
+     * @param transform transform stage whose queue depth is reported, null for none
+     */
+    public void setCrawlStages(PipelineStage<?, ?> fetch, PipelineStage<?, ?> parse, PipelineStage<?, ?> transform) {
+        this.fetchQueue = fetch;
+        this.parseQueue = parse;
+        this.transformQueue = transform;
+    }
+
+    /**
+     * Report the position of the crawl
+     * @param accession accession being fetched
+     * @param loopGap pages left before the crawl stops if none of them is a dataset
+     */
+    public void setCrawlPosition(String accession, int loopGap) {
+        this.currentAccession = accession;
+        this.loopGap = loopGap;
+    }
+
+    @Override
+    public long getBytesFetched() {
+        return bytesFetched.sum();
+    }
+
+    @Override
+    public long getPagesFetched() {
+        return pagesFetched.sum();
+    }
+
+    @Override
+    public long getFetchErrors() {
+        return fetchErrors.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        AsyncProjectHandler queue = writeQueue;
+        return (queue == null)? 0: queue.getQueueSize();
+    }
+
+    @Override
+    public int getFetchQueueDepth() {
+        return depth(fetchQueue);
+    }
+
+    @Override
+    public int getParseQueueDepth() {
+        return depth(parseQueue);
+    }
+
+    @Override
+    public int getTransformQueueDepth() {
+        return depth(transformQueue);
+    }
+
+    private static int depth(PipelineStage<?, ?> stage) {
+        return (stage == null)? 0: stage.getQueueSize();
+    }
+
+    @Override
+    public String getCurrentAccession() {
+        return currentAccession;
+    }
+
+    @Override
+    public int getLoopGap() {
+        return loopGap;
+    }
+
+    /**
+     * Register the metrics and the timer of every stage in the platform MBean server, under
+     * uk.ac.ebi.ddi.px:type=Pipeline and uk.ac.ebi.ddi.px:type=Stage,name=...
+     * @throws JMException if the MBeans can not be registered
+     */
+    public synchronized void registerMBeans() throws JMException {
+        if (registered)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(DOMAIN + ":type=Pipeline"));
+        for (StageTimer timer : timers)
+            server.registerMBean(timer, new ObjectName(DOMAIN + ":type=Stage,name=" + timer.getStage()));
+        registered = true;
+    }
+
+    /**
+     * Latency distribution of a stage
+     */
+    public static class StageTimer implements StageTimerMXBean {
+
+        private static final double NANOS_PER_MILLI = 1e6;
+
+        private final Stage stage;
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private StageTimer(Stage stage) {
+            this.stage = stage;
+        }
+
+        /**
+         * @return the latencies of the stage in nanoseconds
+         */
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        @Override
+        public String getStage() {
+            return stage.getLabel();
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return histogram.getTotal() / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return histogram.getMean() / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return histogram.getMax() / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return histogram.getValueAtPercentile(50) / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getP90Millis() {
+            return histogram.getValueAtPercentile(90) / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return histogram.getValueAtPercentile(99) / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public double getP999Millis() {
+            return histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package uk.ac.ebi.ddi.px.utils;
+
+/**
+ * JMX view of the counters and gauges of {@link PipelineMetrics}
+ */
+public interface PipelineMetricsMXBean {
+
+    long getBytesFetched();
+
+    long getPagesFetched();
+
+    long getFetchErrors();
+
+    int getQueueDepth();
+
+    int getFetchQueueDepth();
+
+    int getParseQueueDepth();
+
+    int getTransformQueueDepth();
+
+    String getCurrentAccession();
+
+    int getLoopGap();
+}
@@ -0,0 +1,12 @@
+package uk.ac.ebi.ddi.px.utils;
+
+/**
+ * Receiver of the items of a {@link PipelineStage}, the next stage or the end of the pipeline.
+ */
+public interface PipelineSink<T> {
+
+    /**
+     * Take an item, waiting if there is no room for it
+     */
+    void accept(PipelineItem<T> item) throws InterruptedException;
+}
@@ -0,0 +1,94 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+
+/**
+ * One stage of a pipeline: a {@link WorkerPool} taking the items from a bounded queue, processing
+ * them and passing the result to the next stage. When the stage falls behind, the previous one
+ * blocks in {@link #accept(PipelineItem)} until there is room in the queue again, so every stage can
+ * have as many threads as its work needs (many for the I/O, one per core for the CPU) and the
+ * memory used stays bounded.
+ *
+ * Every item keeps the sequence number given by the producer, so an {@link OrderedCompletion}
+ * at the end of the pipeline can hand the results back in order. Null values and errors are
+ * passed on without being processed. Any error of the task, even an Error, is passed on with its
+ * item and rethrown where the item is completed, so every item reaches the end of the pipeline.
+ *
+ * @param <I> type of the input of the stage
+ * @param <O> type of the output of the stage
+ */
+public class PipelineStage<I, O> implements PipelineSink<I>, Closeable {
+
+    /**
+     * Work done by a stage on every item
+     */
+    public interface Task<I, O> {
+
+        /**
+         * @param input value of the item, never null
+         * @return the output, null if there is nothing to pass on
+         */
+        O process(I input) throws Exception;
+    }
+
+    private final Task<I, O> task;
+
+    private final PipelineSink<O> next;
+
+    private final WorkerPool<PipelineItem<I>> workers;
+
+    /**
+     * Create the stage and start its threads
+     * @param name name of the stage, used for its threads
+     * @param threads number of threads
+     * @param capacity maximum number of items waiting in the queue of the stage
+     * @param task work done on every item
+     * @param next receiver of the output
+     */
+    public PipelineStage(String name, int threads, int capacity, Task<I, O> task, PipelineSink<O> next) {
+        this.task = task;
+        this.next = next;
+        this.workers = new WorkerPool<PipelineItem<I>>(name, capacity, threads, 1, true, new WorkerPool.Handler<PipelineItem<I>>() {
+            @Override
+            public void handle(PipelineItem<I> item) throws InterruptedException {
+                next.accept(process(item));
+            }
+        });
+    }
+
+    /**
+     * Queue an item, waiting while the queue is full
+     * @throws IllegalStateException if the stage has been closed
+     */
+    @Override
+    public void accept(PipelineItem<I> item) throws InterruptedException {
+        workers.put(item);
+    }
+
+    /**
+     * @return number of items waiting in the queue
+     */
+    public int getQueueSize() {
+        return workers.getQueueSize();
+    }
+
+    /**
+     * Stop accepting items and wait until the queued ones have been passed to the next stage
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    @Override
+    public void close() throws InterruptedIOException {
+        workers.close();
+    }
+
+    private PipelineItem<O> process(PipelineItem<I> item) {
+        if (item.getValue() == null || item.getError() != null)
+            return new PipelineItem<O>(item.getSequence(), null, item.getError());
+        try {
+            return new PipelineItem<O>(item.getSequence(), task.process(item.getValue()), null);
+        } catch (Throwable e) {
+            return new PipelineItem<O>(item.getSequence(), null, e);
+        }
+    }
+}
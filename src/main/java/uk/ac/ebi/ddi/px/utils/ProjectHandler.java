@@ -0,0 +1,18 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.Project;
+
+/**
+ * Downstream stage that receives the projects read from a bulk PX dump. The handler is
+ * called from the worker threads, so it must be thread safe.
+ */
+public interface ProjectHandler {
+
+    /**
+     * Process one project of the dump
+     * @param project the project
+     * @throws Exception if the project can not be processed, the error is logged and the
+     *                   rest of the dump is still processed
+     */
+    void handle(Project project) throws Exception;
+}
@@ -0,0 +1,21 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Output of the exported projects (EB-eye XML, JSON Lines, summary CSV). Several sinks can be
+ * fed from the same read of the projects with a {@link FanOutSink}. The sinks are called from
+ * the writer threads, so they must be thread safe.
+ */
+public interface ProjectSink extends Closeable {
+
+    /**
+     * Export one project, private projects are skipped
+     * @param project the project
+     * @throws IOException if the output can not be written
+     */
+    void write(Project project) throws IOException;
+}
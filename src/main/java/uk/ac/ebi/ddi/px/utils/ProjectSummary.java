@@ -0,0 +1,73 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.DataFileSummary;
+import uk.ac.ebi.ddi.px.model.Project;
+
+/**
+ * Summary of the data files of a project, as reported in the log of the crawl and in the
+ * summary CSV: submission type, type of the result files and number of result and peak files.
+ * The files are classified once with the default {@link FileTypeRegistry} and the counts are
+ * kept in the project.
+ */
+public final class ProjectSummary {
+
+    private static final String PARTIAL = "PARTIAL";
+
+    private static final String COMPLETE = "COMPLETE";
+
+    private ProjectSummary() {
+    }
+
+    /**
+     * @return the classification of the data files of the project, computed on the first call
+     */
+    public static DataFileSummary getDataFileSummary(Project proj) {
+        DataFileSummary summary = proj.getDataFileSummary();
+        if (summary == null) {
+            summary = FileTypeRegistry.getDefault().summarize(proj.getDataFiles());
+            proj.setDataFileSummary(summary);
+        }
+        return summary;
+    }
+
+    /**
+     * @return number of peak list files, null if the project has no data files
+     */
+    public static String getNumberPeakFiles(Project proj) {
+        if (!hasFiles(proj))
+            return null;
+        return Integer.toString(getDataFileSummary(proj).getPeakFiles());
+    }
+
+    /**
+     * @return number of result files (PRIDE XML and mzIdentML), null if the project has no data files
+     */
+    public static String getNumberFiles(Project proj) {
+        if (!hasFiles(proj))
+            return null;
+        return Integer.toString(getDataFileSummary(proj).getResultFiles());
+    }
+
+    /**
+     * @return type of the last result file, PARTIAL if there is none
+     */
+    public static String getFileType(Project proj) {
+        if (!hasFiles(proj))
+            return PARTIAL;
+        String type = getDataFileSummary(proj).getResultFileType();
+        return (type == null)? PARTIAL: type;
+    }
+
+    /**
+     * @return COMPLETE if the project has result files, PARTIAL otherwise
+     */
+    public static String getType(Project proj) {
+        if (!hasFiles(proj))
+            return PARTIAL;
+        return (getDataFileSummary(proj).getResultFiles() > 0)? COMPLETE: PARTIAL;
+    }
+
+    private static boolean hasFiles(Project proj) {
+        return proj != null && proj.getDataFiles() != null && !proj.getDataFiles().isEmpty();
+    }
+}
@@ -0,0 +1,144 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * HTTP endpoint publishing the {@link PipelineMetrics} at /metrics in the Prometheus text
+ * format: the stages as summaries with their 0.5, 0.9, 0.99 and 0.999 quantiles in seconds,
+ * the fetch counters, the queue depth of every stage and the crawl gauges. It listens on the loopback
+ * interface only and is served by a single daemon thread.
+ */
+public class PrometheusEndpoint implements Closeable {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final PipelineMetrics metrics;
+
+    private final HttpServer server;
+
+    /**
+     * Start the endpoint
+     * @param metrics the metrics to publish
+     * @param port local port, 0 for any free port
+     * @throws IOException if the port can not be bound
+     */
+    public PrometheusEndpoint(PipelineMetrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        server.setExecutor(null);
+        server.start();
+    }
+
+    /**
+     * @return the port the endpoint listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Write the metrics in the Prometheus text format
+     * @param out output, it is flushed but not closed
+     */
+    public void write(Writer out) throws IOException {
+        out.write("# HELP px_stage_seconds Time spent in each stage of the crawl pipeline\n");
+        out.write("# TYPE px_stage_seconds summary\n");
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            LatencyHistogram histogram = metrics.getTimer(stage).getHistogram();
+            String label = "stage=\"" + stage.getLabel() + "\"";
+            for (double quantile : QUANTILES)
+                sample(out, "px_stage_seconds", label + ",quantile=\"" + quantile + "\"",
+                        histogram.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND);
+            sample(out, "px_stage_seconds_sum", label, histogram.getTotal() / NANOS_PER_SECOND);
+            sample(out, "px_stage_seconds_count", label, histogram.getCount());
+        }
+        metric(out, "px_fetched_bytes_total", "counter", "Bytes of the PX XML pages downloaded", metrics.getBytesFetched());
+        metric(out, "px_fetched_pages_total", "counter", "PX XML pages downloaded", metrics.getPagesFetched());
+        metric(out, "px_fetch_errors_total", "counter", "PX XML pages that could not be downloaded", metrics.getFetchErrors());
+        metric(out, "px_write_queue_depth", "gauge", "Projects waiting in the write queue", metrics.getQueueDepth());
+        out.write("# HELP px_stage_queue_depth Accessions waiting in the queue of each stage of the crawl\n");
+        out.write("# TYPE px_stage_queue_depth gauge\n");
+        sample(out, "px_stage_queue_depth", "stage=\"fetch\"", metrics.getFetchQueueDepth());
+        sample(out, "px_stage_queue_depth", "stage=\"parse\"", metrics.getParseQueueDepth());
+        sample(out, "px_stage_queue_depth", "stage=\"transform\"", metrics.getTransformQueueDepth());
+        metric(out, "px_loop_gap", "gauge", "Pages left before the crawl stops if none of them is a dataset", metrics.getLoopGap());
+        String accession = metrics.getCurrentAccession();
+        if (accession != null) {
+            out.write("# HELP px_current_accession Accession being crawled\n");
+            out.write("# TYPE px_current_accession gauge\n");
+            sample(out, "px_current_accession", "accession=\"" + escape(accession) + "\"", 1);
+        }
+        out.flush();
+    }
+
+    /**
+     * Stop the endpoint
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(8 * 1024);
+            write(new OutputStreamWriter(body, EBeyeWriterContext.UTF8));
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(200, head? -1: body.size());
+            if (!head) {
+                OutputStream out = exchange.getResponseBody();
+                body.writeTo(out);
+                out.close();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void metric(Writer out, String name, String type, String help, double value) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+        sample(out, name, null, value);
+    }
+
+    private static void sample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (labels != null) {
+            out.write('{');
+            out.write(labels);
+            out.write('}');
+        }
+        out.write(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            out.write(Long.toString((long) value));
+        else
+            out.write(Double.toString(value));
+        out.write('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
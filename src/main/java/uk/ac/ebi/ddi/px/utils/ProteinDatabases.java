@@ -0,0 +1,71 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compact codes of the databases of the protein references. A reference is kept as the code of
+ * its database and the hash of its accession, and the dbname attribute of every database is
+ * encoded once.
+ */
+final class ProteinDatabases {
+
+    private static final int MAX_DATABASES = 1 << 16;
+
+    private static final ConcurrentMap<String, Integer> CODES = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * dbname attributes by code, copied when a database is added
+     */
+    private static volatile byte[][] attributes = new byte[0][];
+
+    private ProteinDatabases() {
+    }
+
+    /**
+     * @return code of the database, the same for the whole run
+     */
+    static int code(String database) {
+        Integer code = CODES.get(database);
+        return (code != null)? code: add(database);
+    }
+
+    /**
+     * @return the dbname attribute of the database, encoded
+     */
+    static byte[] attribute(int code) {
+        return attributes[code];
+    }
+
+    private static synchronized int add(String database) {
+        Integer code = CODES.get(database);
+        if (code != null)
+            return code;
+        if (attributes.length >= MAX_DATABASES)
+            throw new IllegalStateException("More than " + MAX_DATABASES + " protein databases");
+        byte[][] extended = Arrays.copyOf(attributes, attributes.length + 1);
+        extended[attributes.length] = EBeyeXmlWriter.encodeAttribute("dbname", database);
+        attributes = extended;
+        CODES.put(database, attributes.length - 1);
+        return attributes.length - 1;
+    }
+
+    /**
+     * 64 bit hash of a reference, two different references have the same hash with a probability
+     * of about n^2 / 2^65 (less than one in a million for ten million references)
+     */
+    static long hash(int code, String accession) {
+        long hash = 0xCBF29CE484222325L ^ code;
+        for (int i = 0; i < accession.length(); i++) {
+            hash ^= accession.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,28 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.IOException;
+
+/**
+ * Streaming source of the protein cross references (accession and database, e.g. UNIPROT or
+ * ENSEMBL) of a project. The references are read one at a time while the entry is written, so
+ * a project can have millions of them. A source can be read only once.
+ */
+public interface ProteinReferenceSource {
+
+    /**
+     * Move to the next reference
+     * @return false when there are no more references
+     * @throws IOException if the references can not be read
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return accession of the current reference, e.g. P12345
+     */
+    String getAccession();
+
+    /**
+     * @return database of the current reference, e.g. UNIPROT
+     */
+    String getDatabase();
+}
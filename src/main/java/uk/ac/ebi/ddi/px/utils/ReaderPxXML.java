@@ -10,22 +10,27 @@ import uk.ac.ebi.ddi.px.model.CvParam;
 import uk.ac.ebi.ddi.px.model.Project;
 import uk.ac.ebi.ddi.px.model.Reference;
 import uk.ac.ebi.ddi.px.model.Submitter;
+import uk.ac.ebi.ddi.px.xml.px.io.PxBulkReader;
 import uk.ac.ebi.ddi.px.xml.px.io.PxReader;
+import uk.ac.ebi.ddi.px.xml.px.io.PxUnmarshallerType;
 import uk.ac.ebi.ddi.px.xml.px.model.*;
-import uk.ac.ebi.pride.utilities.term.CvTermReference;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 
 /**
@@ -36,6 +41,25 @@ public class ReaderPxXML {
 
     private static final Logger logger = LoggerFactory.getLogger(ReaderPxXML.class);
 
+    private static final AccessionTable ACCESSIONS = AccessionTable.getPxTable();
+
+    /**
+     * Local sink flag used to mark the keywords that describe an SRM experiment
+     */
+    private static final int SRM_EXPERIMENT = 1 << 30;
+
+    private static final PipelineMetrics METRICS = PipelineMetrics.getInstance();
+
+    private static PxUnmarshallerType unmarshallerType = PxUnmarshallerType.JAXB;
+
+    /**
+     * Select the unmarshaller used to read the PX XML files
+     * @param type JAXB or the generated StAX unmarshaller
+     */
+    public static void setUnmarshallerType(PxUnmarshallerType type) {
+        unmarshallerType = (type == null)? PxUnmarshallerType.JAXB: type;
+    }
+
     /**
      * This method read the PX summary file and return a project structure to be use by the
      * EBE exporter.
@@ -44,21 +68,35 @@ public class ReaderPxXML {
      */
     public static Project readProject(String page) throws Exception {
 
-        Project project = null;
+        PxReader reader = readDataset(page);
 
-        if(page != null && validateXML(page) == true)
-            project = parseDocument(page);
+        return (reader == null)? null: transformDataset(reader, TransformContext.get());
+    }
 
-        return project;
+    /**
+     * Validate and unmarshal the PX summary file, the first half of {@link #readProject(String)}
+     * for the callers running the transformation in another stage.
+     * @param page PX XML file
+     * @return the PX reader of the dataset, null if the page is missing or not well formed
+     */
+    public static PxReader readDataset(String page) throws IOException, JAXBException {
+
+        if(page == null)
+            return null;
+
+        long start = System.nanoTime();
+        boolean valid = validateXML(page);
+        METRICS.record(PipelineMetrics.Stage.VALIDATE, start);
+
+        return valid? unmarshal(page): null;
     }
 
     private static boolean validateXML(String page) {
 
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
         DocumentBuilder db = null;
         try {
             InputStream in = org.apache.commons.io.IOUtils.toInputStream(page, "UTF-8");
-            db = dbf.newDocumentBuilder();
+            db = TransformContext.get().documentBuilder();
             db.parse(in);
             return true;
         } catch (Exception e) {
@@ -75,10 +113,9 @@ public class ReaderPxXML {
      */
     private static Document getDomElement(String xml){
         Document doc = null;
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
         try {
 
-            DocumentBuilder db = dbf.newDocumentBuilder();
+            DocumentBuilder db = TransformContext.get().documentBuilder();
 
             InputSource is = new InputSource();
             is.setCharacterStream(new StringReader(xml));
@@ -107,11 +144,116 @@ public class ReaderPxXML {
      * @throws JAXBException
      */
     public static Project parseDocument(String page) throws IOException, JAXBException {
+        return parseDocument(page, TransformContext.get());
+    }
 
-        Project proj = new Project();
+    /**
+     * Parse the XML JAXB file into a Prject data model using the scratch buffers of the given context.
+     * @param page the JAXB XML object
+     * @param context transform context confined to the calling thread
+     * @return  Project the project
+     * @throws IOException
+     * @throws JAXBException
+     */
+    public static Project parseDocument(String page, TransformContext context) throws IOException, JAXBException {
 
+        return transformDataset(unmarshal(page), context);
+    }
+
+    /**
+     * Map an unmarshalled PX dataset into a Project, timing it in the pipeline metrics.
+     * @param reader the PX reader of the dataset
+     * @param context transform context confined to the calling thread
+     * @return  Project the project
+     */
+    public static Project transformDataset(PxReader reader, TransformContext context) {
+
+        long start = System.nanoTime();
+        Project project = transform(reader, context);
+        METRICS.record(PipelineMetrics.Stage.TRANSFORM, start);
+        return project;
+    }
+
+    private static PxReader unmarshal(String page) throws IOException, JAXBException {
+
+        long start = System.nanoTime();
         InputStream in = org.apache.commons.io.IOUtils.toInputStream(page, "UTF-8");
-        PxReader reader = new PxReader(in);
+        PxReader reader = new PxReader(in, unmarshallerType);
+        METRICS.record(PipelineMetrics.Stage.UNMARSHAL, start);
+        return reader;
+    }
+
+    /**
+     * Stream a bulk PX dump (concatenated or wrapped PX files) and hand every dataset to the
+     * executor, where it is mapped into a Project and given to the handler. At most maxInFlight
+     * datasets are waiting in the executor, so the memory used does not depend on the size of
+     * the dump. The method returns when all the datasets have been handled.
+     * @param in bulk PX XML dump in UTF-8
+     * @param executor pool running the transformation and the handler
+     * @param maxInFlight maximum number of datasets read and not handled yet
+     * @param handler downstream stage
+     * @return the number of datasets read from the dump
+     * @throws IOException
+     * @throws JAXBException if the dump is not well formed
+     */
+    public static int parseBulkDocument(InputStream in, ExecutorService executor, int maxInFlight, final ProjectHandler handler) throws IOException, JAXBException {
+
+        PxBulkReader bulkReader = new PxBulkReader(in, Charset.forName("UTF-8"), unmarshallerType);
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        int count = 0;
+
+        try {
+            PxReader reader;
+            long start = System.nanoTime();
+            while ((reader = bulkReader.next()) != null) {
+                METRICS.record(PipelineMetrics.Stage.UNMARSHAL, start);
+                inFlight.acquire();
+                final PxReader dataset = reader;
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            String accession = null;
+                            try {
+                                accession = dataset.getAccession();
+                                long transformStart = System.nanoTime();
+                                Project project = transform(dataset, TransformContext.get());
+                                METRICS.record(PipelineMetrics.Stage.TRANSFORM, transformStart);
+                                handler.handle(project);
+                            } catch (Exception e) {
+                                logger.error("ERROR PROCESSING THE DATASET|" + accession + "|" + e.getMessage(), e);
+                            } finally {
+                                inFlight.release();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                count++;
+                start = System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted after " + count + " datasets");
+        } finally {
+            bulkReader.close();
+            // wait for the datasets still in the executor
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+        return count;
+    }
+
+    /**
+     * Map an unmarshalled PX dataset into a Project.
+     * @param reader the PX reader of the dataset
+     * @param context transform context confined to the calling thread
+     * @return  Project the project
+     */
+    public static Project transform(PxReader reader, TransformContext context) {
+
+        Project proj = new Project();
 
        //Set accession
         proj.setAccession(reader.getAccession());
@@ -131,17 +273,11 @@ public class ReaderPxXML {
         //Set Modifications
         proj.setPtms(transformCVParamTypeList(reader.getPtms()));
 
-        //Set Species
-        proj.setSpecies(transformSpecies(reader.getSpecies()));
-
-        //Set Taxonomies
-        proj.setTaxonomies(transformTaxonomies(reader.getSpecies()));
+        //Set Species and Taxonomies
+        mapSpecies(reader.getSpecies(), proj, context);
 
-        //Set Submitter
-        proj.setSubmitter(selectSubmitterFromContacts(reader.getContactList()));
-
-        //Set Lab heads
-        proj.setLabHeads(selectLabHeadsFromContacts(reader.getContactList()));
+        //Set Submitter and Lab heads
+        mapContacts(reader.getContactList(), proj, context);
 
         //Set Publication date
         proj.setPublicationDate(transformDate(reader.getAnnounceDate()));
@@ -149,11 +285,8 @@ public class ReaderPxXML {
         //Set Data Files
         proj.setDataFiles(transformDataFiles(reader.getDataFiles()));
 
-        //Set Submitter keywords
-        proj.setKeywords(transformSubmitterKeywords(reader.getSubmitterKeywords()));
-
-        //Set Curator Keywords
-        proj.setProjectTags(transformCuratorKeywords(reader.getSubmitterKeywords()));
+        //Set Submitter keywords, Curator Keywords and the experiment Types
+        mapKeywords(reader.getSubmitterKeywords(), proj, context);
         proj.addCuratorKey(reader.getReviewLevel());
 
         //Set DatasetLink
@@ -161,49 +294,93 @@ public class ReaderPxXML {
         if(proj.getDatasetLink() == null)
             proj.setDatasetLink(Constants.PXURL+proj.getAccession());
 
-        //Set the experiment Types
-        proj.setExperimentTypes(transformExperimentTypes(reader.getSubmitterKeywords()));
-
-        proj.setReferences(transformReferences(reader.getReferences()));
+        proj.setReferences(transformReferences(reader.getReferences(), context));
 
         return proj;
 
     }
 
     /**
-     * Set references for the Project
+     * Set references for the Project. The PubMed id and the reference line of every publication
+     * are collected first, so only the references that are kept are created.
      * @param references
+     * @param context transform context
      * @return
      */
-    private static List<Reference> transformReferences(List<PublicationType> references) {
-        List<Reference> referenceList = new ArrayList<Reference>();
-        for(PublicationType publication: references){
-            Reference ref = new Reference();
-            for(CvParamType cv: publication.getCvParam()){
-               if(cv.getAccession().equalsIgnoreCase(Constants.PUBMED_ACCESSION)){
-                   if(cv.getValue() != null && cv.getValue().length() > 0 &&
-                           StringUtils.isNumeric(cv.getValue()))
-                                   ref.setPubmedId(Integer.parseInt(cv.getValue()));
-               }
-                if(!cv.getAccession().equalsIgnoreCase(Constants.PUBMED_ACCESSION)){
-                    ref.setReferenceLine(cv.getValue());
+    static List<Reference> transformReferences(List<PublicationType> references, TransformContext context) {
+        int[] pubmedIds = context.numbers(references.size());
+        String[] referenceLines = context.strings(references.size());
+        int count = 0;
+        for(int i = 0; i < references.size(); i++){
+            List<CvParamType> cvs = references.get(i).getCvParam();
+            int pubmedId = -1;
+            String referenceLine = null;
+            for(int j = 0; j < cvs.size(); j++){
+                CvParamType cv = cvs.get(j);
+                if((ACCESSIONS.lookup(cv.getAccession()) & AccessionTable.PUBMED) != 0){
+                    if(cv.getValue() != null && cv.getValue().length() > 0 &&
+                            StringUtils.isNumeric(cv.getValue()))
+                        pubmedId = Integer.parseInt(cv.getValue());
+                }else{
+                    referenceLine = cv.getValue();
                 }
             }
-            if(ref.getPubmedId() != null || ref.getReferenceLine() != null)
+            pubmedIds[i] = pubmedId;
+            referenceLines[i] = referenceLine;
+            if(pubmedId >= 0 || referenceLine != null)
+                count++;
+        }
+        List<Reference> referenceList = new ArrayList<Reference>(count);
+        for(int i = 0; i < references.size(); i++){
+            if(pubmedIds[i] >= 0 || referenceLines[i] != null){
+                Reference ref = new Reference();
+                if(pubmedIds[i] >= 0)
+                    ref.setPubmedId(pubmedIds[i]);
+                ref.setReferenceLine(referenceLines[i]);
                 referenceList.add(ref);
+            }
         }
+        context.releaseStrings();
         return referenceList;
     }
 
-    private static List<CvParam> transformExperimentTypes(List<CvParamType> submitterKeywords) {
-        List<CvParam> experimentTypes = new ArrayList<CvParam>();
-        for(CvParamType cvParamType: submitterKeywords){
-            if(cvParamType.getValue().contains(Constants.SRM_KEYWORD) || cvParamType.getName().contains("SRM")){
-                CvParam cvParam = new CvParam("PRIDE:0000311","SRM/MRM", "PRIDE", "SRM/MRM");
-                experimentTypes.add(cvParam);
+    /**
+     * Map the PX keywords: submitter keywords, curator keywords and the experiment types
+     * derived from SRM keywords. The curator keywords keep room for the review level.
+     * @param keywordList List<CvParamType> of PX keywords
+     * @param proj the project to be filled
+     * @param context transform context
+     */
+    static void mapKeywords(List<CvParamType> keywordList, Project proj, TransformContext context) {
+        int[] sinks = context.sinks(keywordList.size());
+        int keywordCount = 0, curatorCount = 0, experimentCount = 0;
+        for(int i = 0; i < keywordList.size(); i++){
+            CvParamType cv = keywordList.get(i);
+            int sink = ACCESSIONS.lookup(cv.getAccession());
+            if((sink & AccessionTable.SUBMITTER_KEY) != 0)
+                keywordCount++;
+            if((sink & AccessionTable.CURATOR_KEY) != 0)
+                curatorCount++;
+            if(cv.getValue().contains(Constants.SRM_KEYWORD) || cv.getName().contains("SRM")){
+                sink |= SRM_EXPERIMENT;
+                experimentCount++;
             }
+            sinks[i] = sink;
         }
-        return experimentTypes;
+        List<String> keywords = new ArrayList<String>(keywordCount);
+        List<String> curatorKeywords = new ArrayList<String>(curatorCount + 1);
+        List<CvParam> experimentTypes = new ArrayList<CvParam>(experimentCount);
+        for(int i = 0; i < keywordList.size(); i++){
+            if((sinks[i] & AccessionTable.SUBMITTER_KEY) != 0)
+                keywords.add(keywordList.get(i).getValue());
+            if((sinks[i] & AccessionTable.CURATOR_KEY) != 0)
+                curatorKeywords.add(keywordList.get(i).getValue());
+            if((sinks[i] & SRM_EXPERIMENT) != 0)
+                experimentTypes.add(new CvParam("PRIDE:0000311","SRM/MRM", "PRIDE", "SRM/MRM"));
+        }
+        proj.setKeywords(keywords);
+        proj.setProjectTags(curatorKeywords);
+        proj.setExperimentTypes(experimentTypes);
     }
 
     /**
@@ -211,56 +388,36 @@ public class ReaderPxXML {
      * @param fullDatasetLink experiment List URL
      * @return experiment URL
      */
-    private static String transformGetDatasetLink(List<FullDatasetLinkType> fullDatasetLink) {
+    static String transformGetDatasetLink(List<FullDatasetLinkType> fullDatasetLink) {
         if(fullDatasetLink != null && fullDatasetLink.size() >0){
-            for(FullDatasetLinkType datasetLink: fullDatasetLink)
-                if(datasetLink.getCvParam().getAccession().equalsIgnoreCase(Constants.MASSIVEURL_ACCESSION) ||
-                   datasetLink.getCvParam().getAccession().equalsIgnoreCase(Constants.PASSELURL_ACCESSION))
-                    return datasetLink.getCvParam().getValue();
+            for(int i = 0; i < fullDatasetLink.size(); i++){
+                CvParamType cv = fullDatasetLink.get(i).getCvParam();
+                if((ACCESSIONS.lookup(cv.getAccession()) & AccessionTable.DATASET_LINK) != 0)
+                    return cv.getValue();
+            }
         }
         return null;
     }
 
-    /**
-     * Retrieve the curator keywords
-     * @param submitterKeywords
-     * @return List<String> List of keywords
-     */
-    private static List<String> transformCuratorKeywords(List<CvParamType> submitterKeywords) {
-        List<String> keywords = new ArrayList<String>();
-        for(CvParamType cv: submitterKeywords)
-            if(cv.getAccession().equalsIgnoreCase(Constants.CURATORKEY_ACCESSION))
-                keywords.add(cv.getValue());
-        return keywords;
-    }
-
-    /**
-     * Read Submitter keywords
-     * @param submitterKeywords List<CvParamType>
-     * @return List of keys
-     */
-    private static List<String> transformSubmitterKeywords(List<CvParamType> submitterKeywords) {
-        List<String> keywords = new ArrayList<String>();
-        for(CvParamType cv: submitterKeywords){
-            if(cv.getAccession().equalsIgnoreCase(Constants.SUBMITTERKEY_ACCESSION))
-                keywords.add(cv.getValue());
-        }
-        return keywords;
-    }
-
     /**
      * Return the list of File Name related with the Dataset
      * @param dataFiles List<DatasetFileType>
      * @return          List<String>
      */
-    private static List<String> transformDataFiles(List<DatasetFileType> dataFiles) {
-        List<String> files = new ArrayList<String>();
-        for(DatasetFileType file: dataFiles){
-           if(file.getCvParam() != null && file.getCvParam().size() > 0){
-               for(CvParamType cv: file.getCvParam()){
-                   files.add(cv.getValue());
-               }
-           }
+    static List<String> transformDataFiles(List<DatasetFileType> dataFiles) {
+        int count = 0;
+        for(int i = 0; i < dataFiles.size(); i++){
+            List<CvParamType> cvs = dataFiles.get(i).getCvParam();
+            if(cvs != null)
+                count += cvs.size();
+        }
+        List<String> files = new ArrayList<String>(count);
+        for(int i = 0; i < dataFiles.size(); i++){
+            List<CvParamType> cvs = dataFiles.get(i).getCvParam();
+            if(cvs != null){
+                for(int j = 0; j < cvs.size(); j++)
+                    files.add(cvs.get(j).getValue());
+            }
         }
         return files;
     }
@@ -275,106 +432,118 @@ public class ReaderPxXML {
     }
 
     /**
-     * Select Lab Heads from the List of Contacts
-     * @param contactList
-     * @return List<Submitter>
+     * Select the Submitter and the Lab Heads from the List of Contacts. The role and the name,
+     * email and affiliation terms of every contact are resolved once in the counting pass.
+     * @param contactList Contact List
+     * @param proj the project to be filled
+     * @param context transform context
      */
-    private static List<Submitter> selectLabHeadsFromContacts(List<ContactType> contactList) {
-        List<Submitter> labHeads = new ArrayList<Submitter>();
-        for(ContactType contact: contactList){
-            if(contact.getCvParam() != null && contact.getCvParam().size() > 0){
-                for(CvParamType cv: contact.getCvParam()){
-                    if(cv.getAccession().equalsIgnoreCase(Constants.LABHEAD_ACCESSION)){
-                        labHeads.add(transformSubmitter(contact));
-                    }
-                }
+    static void mapContacts(List<ContactType> contactList, Project proj, TransformContext context) {
+        int total = 0;
+        for(int i = 0; i < contactList.size(); i++){
+            List<CvParamType> cvs = contactList.get(i).getCvParam();
+            if(cvs != null)
+                total += cvs.size();
+        }
+        int[] sinks = context.sinks(total);
+        int labHeadCount = 0, index = 0;
+        for(int i = 0; i < contactList.size(); i++){
+            List<CvParamType> cvs = contactList.get(i).getCvParam();
+            if(cvs == null)
+                continue;
+            for(int j = 0; j < cvs.size(); j++){
+                int sink = ACCESSIONS.lookup(cvs.get(j).getAccession());
+                if((sink & AccessionTable.LABHEAD) != 0)
+                    labHeadCount++;
+                sinks[index++] = sink;
             }
         }
-        return labHeads;
-    }
 
-    /**
-     * Select from a List of Contacts the Submitter
-     * @param contactList  Contact List
-     * @return Submitter
-     */
-    private static Submitter selectSubmitterFromContacts(List<ContactType> contactList) {
-        Submitter submitter = new Submitter();
-        for(ContactType contact: contactList){
-            if(contact.getCvParam() != null && contact.getCvParam().size() > 0){
-                for(CvParamType cv: contact.getCvParam()){
-                    if(cv.getAccession().equalsIgnoreCase(Constants.SUBMITTER_ACCESSION)){
-                        return transformSubmitter(contact);
-                    }
-                }
+        Submitter submitter = null;
+        List<Submitter> labHeads = new ArrayList<Submitter>(labHeadCount);
+        index = 0;
+        for(int i = 0; i < contactList.size(); i++){
+            List<CvParamType> cvs = contactList.get(i).getCvParam();
+            if(cvs == null)
+                continue;
+            boolean isSubmitter = false;
+            int labHeadTerms = 0;
+            String name = null, email = null, affiliation = null;
+            for(int j = 0; j < cvs.size(); j++){
+                int sink = sinks[index++];
+                if(sink == AccessionTable.NONE)
+                    continue;
+                if((sink & AccessionTable.SUBMITTER) != 0)
+                    isSubmitter = true;
+                if((sink & AccessionTable.LABHEAD) != 0)
+                    labHeadTerms++;
+                if((sink & AccessionTable.CONTACT_NAME) != 0)
+                    name = cvs.get(j).getValue();
+                if((sink & AccessionTable.CONTACT_EMAIL) != 0)
+                    email = cvs.get(j).getValue();
+                if((sink & AccessionTable.CONTACT_ORG) != 0)
+                    affiliation = cvs.get(j).getValue();
             }
+            if(isSubmitter && submitter == null)
+                submitter = newSubmitter(name, email, affiliation);
+            for(int k = 0; k < labHeadTerms; k++)
+                labHeads.add(newSubmitter(name, email, affiliation));
         }
-        return submitter;
+        proj.setSubmitter((submitter != null)? submitter: new Submitter());
+        proj.setLabHeads(labHeads);
     }
 
     /**
-     * Transform Submitter from contact to Submitter
-     * @param contact ContactType
+     * Create a Submitter from the contact information
      * @return  Submitter
      */
-    private static Submitter transformSubmitter(ContactType contact) {
+    private static Submitter newSubmitter(String name, String email, String affiliation) {
         Submitter submitter = new Submitter();
-        for(CvParamType cv: contact.getCvParam()){
-            if(cv.getAccession().equalsIgnoreCase(CvTermReference.CONTACT_NAME.getAccession()))
-                submitter.setFirstName(cv.getValue());
-
-            if(cv.getAccession().equalsIgnoreCase(CvTermReference.CONTACT_EMAIL.getAccession()))
-                submitter.setEmail(cv.getValue());
-
-            if(cv.getAccession().equalsIgnoreCase(CvTermReference.CONTACT_ORG.getAccession()))
-                submitter.setAffiliation(cv.getValue());
-       }
+        submitter.setFirstName(name);
+        submitter.setEmail(email);
+        submitter.setAffiliation(affiliation);
         return submitter;
     }
 
     /**
-     * Return all the taxonomies related with the File using the NCBI Taxonomy
-     * @param species all the species related with the file in CVTems
-     * @return The list of the accession in NCBI Taxonomy
-     */
-    private static List<String> transformTaxonomies(List<SpeciesType> species) {
-        List<String> taxonomies = new ArrayList<String>();
-        for(SpeciesType specie: species)
-            for(CvParamType cv: specie.getCvParam())
-                if(cv.getAccession().equalsIgnoreCase(Constants.TAXONOMY_ACCESSION))
-                    taxonomies.add(cv.getValue());
-        return taxonomies;
-    }
-
-    /**
-     * TRansform all species to CVParams
+     * Split the species: the NCBI Taxonomy terms go to the taxonomies of the project and the
+     * rest of the terms are transformed to CVParams.
      * @param species List of SpeciesType in PX XM file
-     * @return A List of cv
+     * @param proj the project to be filled
+     * @param context transform context
      */
-    private static List<CvParam> transformSpecies(List<SpeciesType> species) {
-        List<CvParam> cvParams = new ArrayList<CvParam>();
-        if(species != null && species.size() > 0){
-            for(SpeciesType specie: species){
-                //Remove the species that are wrote in Taxonomy way.
-                List<CvParamType> finalCvs = removeCVParamTypeByAccession(specie.getCvParam(), Constants.TAXONOMY_ACCESSION);
-                cvParams.addAll(transformCVParamTypeList(finalCvs));
+    static void mapSpecies(List<SpeciesType> species, Project proj, TransformContext context) {
+        int total = 0;
+        if(species != null){
+            for(int i = 0; i < species.size(); i++)
+                total += species.get(i).getCvParam().size();
+        }
+        int[] sinks = context.sinks(total);
+        int taxonomyCount = 0, index = 0;
+        for(int i = 0; total > 0 && i < species.size(); i++){
+            List<CvParamType> cvs = species.get(i).getCvParam();
+            for(int j = 0; j < cvs.size(); j++){
+                int sink = ACCESSIONS.lookup(cvs.get(j).getAccession());
+                if((sink & AccessionTable.TAXONOMY) != 0)
+                    taxonomyCount++;
+                sinks[index++] = sink;
             }
         }
-        return cvParams;
-    }
-
-    /**
-     * THis function remove all the terms that contains an specific accession Term.
-     * @param cvParam List of all CVParamsType
-     * @param taxonomyAccession the accession ID to be removed
-     * @return The final List of terms
-     */
-    private static List<CvParamType> removeCVParamTypeByAccession(List<CvParamType> cvParam, String taxonomyAccession) {
-        List<CvParamType> cvList = new ArrayList<CvParamType>();
-        for(CvParamType cv: cvParam)
-            if(!cv.getAccession().equalsIgnoreCase(taxonomyAccession))
-              cvList.add(cv);
-        return cvList;
+        List<String> taxonomies = new ArrayList<String>(taxonomyCount);
+        List<CvParam> cvParams = new ArrayList<CvParam>(total - taxonomyCount);
+        index = 0;
+        for(int i = 0; total > 0 && i < species.size(); i++){
+            List<CvParamType> cvs = species.get(i).getCvParam();
+            for(int j = 0; j < cvs.size(); j++){
+                CvParamType cv = cvs.get(j);
+                if((sinks[index++] & AccessionTable.TAXONOMY) != 0)
+                    taxonomies.add(cv.getValue());
+                else
+                    cvParams.add(new CvParam(cv.getAccession(), cv.getName(), cv.getUnitName(), cv.getValue()));
+            }
+        }
+        proj.setSpecies(cvParams);
+        proj.setTaxonomies(taxonomies);
     }
 
     /**
@@ -382,13 +551,15 @@ public class ReaderPxXML {
      * @param instruments List of instruments from PX submission
      * @return List of CvParams
      */
-    private static List<CvParam> transformInstruments(List<InstrumentType> instruments) {
-        List<CvParam> cvParams = new ArrayList<CvParam>();
-        if(instruments != null && instruments.size() >0){
-            for(InstrumentType instrument: instruments){
-               cvParams.addAll(transformCVParamTypeList(instrument.getCvParam()));
-            }
+    static List<CvParam> transformInstruments(List<InstrumentType> instruments) {
+        int count = 0;
+        if(instruments != null){
+            for(int i = 0; i < instruments.size(); i++)
+                count += instruments.get(i).getCvParam().size();
         }
+        List<CvParam> cvParams = new ArrayList<CvParam>(count);
+        for(int i = 0; count > 0 && i < instruments.size(); i++)
+            addCVParamTypeList(instruments.get(i).getCvParam(), cvParams);
         return cvParams;
     }
 
@@ -397,14 +568,23 @@ public class ReaderPxXML {
      * @param params List of CVParams Type
      * @return List of CvParams
      */
-    private static List<CvParam> transformCVParamTypeList(List<CvParamType> params){
-        List<CvParam> cvParams = new ArrayList<CvParam>();
-        for(CvParamType cv: params){
-            CvParam param = new CvParam(cv.getAccession(), cv.getName(), cv.getUnitName(),cv.getValue());
-            cvParams.add(param);
-        }
+    static List<CvParam> transformCVParamTypeList(List<CvParamType> params){
+        List<CvParam> cvParams = new ArrayList<CvParam>(params.size());
+        addCVParamTypeList(params, cvParams);
         return cvParams;
     }
 
+    /**
+     * Convert the CVParamsType to CVparams in the model, appending them to the given list
+     * @param params List of CVParams Type
+     * @param cvParams target List of CvParams
+     */
+    private static void addCVParamTypeList(List<CvParamType> params, List<CvParam> cvParams){
+        for(int i = 0; i < params.size(); i++){
+            CvParamType cv = params.get(i);
+            cvParams.add(new CvParam(cv.getAccession(), cv.getName(), cv.getUnitName(), cv.getValue()));
+        }
+    }
+
 
 }
@@ -0,0 +1,25 @@
+package uk.ac.ebi.ddi.px.utils;
+
+/**
+ * JMX view of the latency distribution of a stage of the crawl pipeline, in milliseconds
+ */
+public interface StageTimerMXBean {
+
+    String getStage();
+
+    long getCount();
+
+    double getTotalMillis();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+}
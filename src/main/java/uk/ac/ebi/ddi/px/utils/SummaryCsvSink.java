@@ -0,0 +1,64 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Sink writing one CSV row per project with the summary that the crawl logs: accession,
+ * repository, publication date, submission type, result file type and number of result and
+ * peak files.
+ */
+public class SummaryCsvSink extends LineSink {
+
+    private static final String HEADER = "accession,repository,publication_date,type,file_type,files,peak_files";
+
+    /**
+     * @param file output file, the suffix of the compression is added to its name
+     * @param compression compression of the file
+     * @throws IOException if the file can not be created
+     */
+    public SummaryCsvSink(File file, EBeyeCompression compression) throws IOException {
+        super(file, compression, HEADER);
+    }
+
+    @Override
+    void render(Project project, Writer out, EBeyeWriterContext context) throws IOException {
+        cell(out, project.getAccession());
+        out.write(',');
+        cell(out, project.getRepositoryName());
+        out.write(',');
+        if (project.getPublicationDate() != null)
+            out.write(context.formatDate(project.getPublicationDate()));
+        out.write(',');
+        cell(out, ProjectSummary.getType(project));
+        out.write(',');
+        cell(out, ProjectSummary.getFileType(project));
+        out.write(',');
+        cell(out, ProjectSummary.getNumberFiles(project));
+        out.write(',');
+        cell(out, ProjectSummary.getNumberPeakFiles(project));
+    }
+
+    /**
+     * Write a value, quoted when it holds a comma, a quote or a line break (RFC 4180)
+     */
+    static void cell(Writer out, String value) throws IOException {
+        if (value == null)
+            return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
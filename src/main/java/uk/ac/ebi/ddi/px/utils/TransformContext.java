@@ -0,0 +1,116 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.util.Arrays;
+
+/**
+ * Scratch buffers used by {@link ReaderPxXML} while mapping a PX dataset into a Project.
+ * The mapping does a counting pass that stores the sink flags of every cvParam in these
+ * buffers and a filling pass that creates right-sized lists, so the only allocations
+ * per dataset are the final Project contents.
+ *
+ * It also keeps the DocumentBuilder used to check that the PX files are well formed, so
+ * the factory lookup is done once per thread.
+ *
+ * A context is confined to one thread: use {@link #get()} to retrieve the one of the
+ * current thread or create one per worker and pass it explicitly.
+ */
+public class TransformContext {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final ThreadLocal<TransformContext> CONTEXTS = new ThreadLocal<TransformContext>() {
+        @Override
+        protected TransformContext initialValue() {
+            return new TransformContext();
+        }
+    };
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+
+    private int[] sinks = new int[INITIAL_CAPACITY];
+
+    private int[] numbers = new int[INITIAL_CAPACITY];
+
+    private String[] strings = new String[INITIAL_CAPACITY];
+
+    private int stringsUsed = 0;
+
+    private DocumentBuilder documentBuilder = null;
+
+    /**
+     * @return the context confined to the current thread
+     */
+    public static TransformContext get() {
+        return CONTEXTS.get();
+    }
+
+    /**
+     * Scratch buffer for the sink flags of the cvParams of one section
+     * @param size minimum number of slots needed
+     * @return a buffer with at least size slots, its content is undefined
+     */
+    int[] sinks(int size) {
+        if (sinks.length < size)
+            sinks = new int[grow(sinks.length, size)];
+        return sinks;
+    }
+
+    /**
+     * Scratch buffer for numeric values (e.g. PubMed ids) of one section
+     * @param size minimum number of slots needed
+     * @return a buffer with at least size slots, its content is undefined
+     */
+    int[] numbers(int size) {
+        if (numbers.length < size)
+            numbers = new int[grow(numbers.length, size)];
+        return numbers;
+    }
+
+    /**
+     * Scratch buffer for String values of one section. The buffer must be released with
+     * {@link #releaseStrings()} so the context does not retain values of old datasets.
+     * @param size minimum number of slots needed
+     * @return a buffer with at least size slots, its content is undefined
+     */
+    String[] strings(int size) {
+        if (strings.length < size)
+            strings = new String[grow(strings.length, size)];
+        stringsUsed = Math.max(stringsUsed, size);
+        return strings;
+    }
+
+    /**
+     * Clear the references kept in the String scratch buffer
+     */
+    void releaseStrings() {
+        Arrays.fill(strings, 0, stringsUsed, null);
+        stringsUsed = 0;
+    }
+
+    /**
+     * DocumentBuilder of this context, reset before being returned
+     * @return the DocumentBuilder
+     * @throws ParserConfigurationException if the builder can not be created
+     */
+    DocumentBuilder documentBuilder() throws ParserConfigurationException {
+        if (documentBuilder == null) {
+            // the factory is not thread safe
+            synchronized (DOCUMENT_BUILDER_FACTORY) {
+                documentBuilder = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            }
+        } else {
+            documentBuilder.reset();
+        }
+        return documentBuilder;
+    }
+
+    private static int grow(int current, int size) {
+        int capacity = current;
+        while (capacity < size)
+            capacity <<= 1;
+        return capacity;
+    }
+}
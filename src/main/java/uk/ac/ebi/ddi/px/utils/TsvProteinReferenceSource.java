@@ -0,0 +1,63 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Protein references read from a tab separated file with one accession and database per line.
+ * Empty lines and lines starting with # are skipped.
+ */
+public class TsvProteinReferenceSource implements ProteinReferenceSource, Closeable {
+
+    private final BufferedReader reader;
+
+    private String accession;
+
+    private String database;
+
+    private long lineNumber = 0;
+
+    /**
+     * @param reader the file, it is closed with the source
+     */
+    public TsvProteinReferenceSource(Reader reader) {
+        this.reader = (reader instanceof BufferedReader)? (BufferedReader) reader: new BufferedReader(reader, 64 * 1024);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.charAt(0) == '#')
+                continue;
+            int tab = line.indexOf('\t');
+            if (tab < 0)
+                throw new IOException("Line " + lineNumber + " has no database: " + line);
+            int end = line.indexOf('\t', tab + 1);
+            accession = line.substring(0, tab).trim();
+            database = line.substring(tab + 1, (end < 0)? line.length(): end).trim();
+            return true;
+        }
+        accession = null;
+        database = null;
+        return false;
+    }
+
+    @Override
+    public String getAccession() {
+        return accession;
+    }
+
+    @Override
+    public String getDatabase() {
+        return database;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
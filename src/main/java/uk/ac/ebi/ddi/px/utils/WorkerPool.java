@@ -0,0 +1,179 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Threads taking the items of a bounded queue and passing them to a handler, the common part of the
+ * {@link AsyncProjectHandler} and the {@link PipelineStage}. When the threads fall behind, {@link #put(Object)}
+ * blocks until there is room in the queue again. Every thread takes the items waiting in the queue in
+ * batches, and close() waits until all the queued items have been handled. An item is either queued
+ * before close() or refused, and an error of the handler, even an Error, does not stop its thread.
+ *
+ * @param <T> type of the items
+ */
+public class WorkerPool<T> implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerPool.class);
+
+    /**
+     * Marker telling the threads to stop
+     */
+    private static final Object END = new Object();
+
+    /**
+     * Work done on every item
+     */
+    public interface Handler<T> {
+
+        /**
+         * @param item the item, its errors should be dealt with here
+         * @throws InterruptedException if the thread is interrupted, the thread then stops
+         */
+        void handle(T item) throws InterruptedException;
+    }
+
+    private final String name;
+
+    private final Handler<T> handler;
+
+    private final BlockingQueue<Object> queue;
+
+    private final int batchSize;
+
+    private final Thread[] workers;
+
+    /**
+     * Threads that have not seen the end marker yet
+     */
+    private final AtomicInteger running;
+
+    /**
+     * Shared by the threads queueing items, exclusive for close(), so no item is queued after the end marker
+     */
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+
+    private boolean closed = false;
+
+    /**
+     * Create the pool and start its threads, named px-(name)-(number)
+     * @param name name of the pool, used for its threads and in the errors
+     * @param capacity maximum number of items waiting in the queue
+     * @param threads number of threads
+     * @param batchSize maximum number of items taken from the queue at once by a thread
+     * @param daemon true if the threads must not keep the JVM alive
+     * @param handler handler called from the threads, it must be thread safe if threads > 1
+     */
+    public WorkerPool(String name, int capacity, int threads, int batchSize, boolean daemon, Handler<T> handler) {
+        if (capacity < 1 || threads < 1 || batchSize < 1)
+            throw new IllegalArgumentException("The capacity, threads and batch size of the " + name + " threads must be positive");
+        this.name = name;
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<Object>(capacity);
+        this.batchSize = batchSize;
+        this.workers = new Thread[threads];
+        this.running = new AtomicInteger(threads);
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, "px-" + name + "-" + i);
+            workers[i].setDaemon(daemon);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queue an item, waiting while the queue is full
+     * @throws IllegalStateException if the pool has been closed
+     */
+    public void put(T item) throws InterruptedException {
+        closing.readLock().lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("The " + name + " threads have been closed");
+            queue.put(item);
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of items waiting in the queue
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting items and wait until the queued ones have been handled
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    @Override
+    public void close() throws InterruptedIOException {
+        closing.writeLock().lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            queue.put(END);
+            for (Thread worker : workers)
+                worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while draining the " + name + " queue");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void work() {
+        List<Object> batch = new ArrayList<Object>(batchSize);
+        boolean end = false;
+        try {
+            while (!end) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                for (int i = 0; i < batch.size(); i++) {
+                    Object item = batch.get(i);
+                    if (item == END) {
+                        end = true;
+                    } else {
+                        handle((T) item);
+                    }
+                }
+                batch.clear();
+            }
+            // leave the marker for the other threads
+            if (running.decrementAndGet() > 0)
+                queue.put(END);
+        } catch (InterruptedException e) {
+            logger.warn("Thread " + Thread.currentThread().getName() + " interrupted, " + queue.size() + " items left in the queue");
+        }
+    }
+
+    private void handle(T item) throws InterruptedException {
+        try {
+            handler.handle(item);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Throwable e) {
+            logger.error("ERROR IN THE " + name.toUpperCase() + " THREADS|" + e.getMessage(), e);
+        }
+    }
+}
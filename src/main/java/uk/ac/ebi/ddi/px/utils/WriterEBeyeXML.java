@@ -1,32 +1,31 @@
 package uk.ac.ebi.ddi.px.utils;
 
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import uk.ac.ebi.ddi.px.model.CvParam;
 import uk.ac.ebi.ddi.px.model.Project;
 import uk.ac.ebi.ddi.px.model.Reference;
-import uk.ac.ebi.ddi.px.model.Submitter;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
  * GenerateEBeyeXML object.
  *
  * Generates EB-eye search XML to a given output directory based upon a PX Submission project
- * supplied as a Project and Submission.
+ * supplied as a Project and Submission. The XML is streamed, no DOM is built. Files whose content
+ * has not changed (except the release date) are not written again, the others are replaced atomically.
  *
  * @author  Yasset Perez-Riverol
  */
@@ -34,17 +33,38 @@ public class WriterEBeyeXML {
 
     private static final Logger logger = LoggerFactory.getLogger(WriterEBeyeXML.class);
 
-    private static final String NOT_AVAILABLE = "Not available";
+    /**
+     * Files bigger than this (e.g. projects with millions of protein references) are written to
+     * the disk while they are rendered, and always replaced
+     */
+    private static final long MAX_RENDERED_SIZE = 16 * 1024 * 1024;
 
-    private static final String OMICS_TYPE    = "Proteomics";
+    /**
+     * Number of protein references written between checks of the size of the output
+     */
+    private static final int OVERFLOW_CHECK_INTERVAL = 4096;
 
-    private static final String DEFAULT_EXPERIMENT_TYPE = "Mass Spectrometry";
+    private static final EBeyeXmlWriter.Tag REF = EBeyeXmlWriter.tag("ref");
+
+    private static final byte[] RELEASE_DATE_START = "<release_date>".getBytes(EBeyeWriterContext.UTF8);
+
+    private static final byte[] RELEASE_DATE_END = "</release_date>".getBytes(EBeyeWriterContext.UTF8);
 
     private Project project;
 
     private File outputDirectory;
 
-    private Map<String, String> proteins;
+    private ProteinReferenceSource proteins;
+
+    private boolean indent = true;
+
+    private EBeyeCompression compression = EBeyeCompression.NONE;
+
+    private boolean skipUnchanged = true;
+
+    private EBeyeLayout layout = EBeyeLayout.FLAT;
+
+    private EBeyeManifest manifest = null;
 
     /**
      * Constructor.
@@ -55,7 +75,58 @@ public class WriterEBeyeXML {
     public WriterEBeyeXML(Project project, File outputDirectory, Map<String, String> proteins) {
         this.project = project;
         this.outputDirectory = outputDirectory;
-        this.proteins = (proteins == null)? new HashMap<String,String>():proteins;
+        this.proteins = (proteins == null)? null: new MapProteinReferenceSource(proteins);
+    }
+
+    /**
+     * Read the protein references from a stream instead of a map, for projects with many of them.
+     * The references are read while the file is written and only a hash of every reference is
+     * kept in memory.
+     * @param proteins protein references of the project, can be null. They are read once, by the
+     *                 first call to generate() or write().
+     */
+    public void setProteinReferences(ProteinReferenceSource proteins) {
+        this.proteins = proteins;
+    }
+
+    /**
+     * Indent the output as the DOM writer did, the default
+     * @param indent false to write the file without new lines and indentation
+     */
+    public void setIndent(boolean indent) {
+        this.indent = indent;
+    }
+
+    /**
+     * Compress the output file, the suffix of the compression is added to the file name
+     * @param compression NONE (the default), GZIP or ZSTD
+     */
+    public void setCompression(EBeyeCompression compression) {
+        this.compression = (compression == null)? EBeyeCompression.NONE: compression;
+    }
+
+    /**
+     * Keep the existing file when only its release date would change, the default
+     * @param skipUnchanged false to always write the file
+     */
+    public void setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    /**
+     * Folder of the file under the output directory
+     * @param layout FLAT (the default), REPOSITORY or HASHED
+     */
+    public void setLayout(EBeyeLayout layout) {
+        this.layout = (layout == null)? EBeyeLayout.FLAT: layout;
+    }
+
+    /**
+     * Add the file to a manifest, also when it is kept because it has not changed
+     * @param manifest manifest of the output directory, null for none
+     */
+    public void setManifest(EBeyeManifest manifest) {
+        this.manifest = manifest;
     }
 
     /**
@@ -70,419 +141,344 @@ public class WriterEBeyeXML {
         if (!project.isPublicProject()) {
             logger.error("Project " + project.getAccession() + " is still private, not generating EB-eye XML.");
         } else {
-            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-            Document document = documentBuilder.newDocument();
+            String repositoryName = project.getRepositoryName().trim();
+            File directory = layout.directory(outputDirectory, repositoryName, project.getAccession());
+            File outputXML = new File(directory, repositoryName + "_EBEYE_" + project.getAccession() + ".xml" + compression.getSuffix());
+
+            EBeyeWriterContext context = EBeyeWriterContext.get();
+            EBeyeOutputBuffer xml = context.renderBuffer();
+
+            // big files go to the disk while they are rendered
+            SpillFile spill = new SpillFile(directory, outputXML.getName());
+            try {
+                render(xml, context, spill);
+                if (spill.isOpen()) {
+                    long size = spill.finish(xml);
+                    replace(spill.temp, outputXML);
+                    if (manifest != null)
+                        manifest.add(outputXML, size, 1, spill.digest.digest());
+                    logger.info("Finished generating EB-eye XML file for: " + outputXML);
+                    return;
+                }
+            } finally {
+                spill.discard();
+            }
 
-            //Add database Name Node
+            if (skipUnchanged && outputXML.exists() && isUnchanged(xml.toByteArray(), outputXML, context)) {
+                logger.info("EB-eye XML file unchanged for: " + project.getAccession());
+                return;
+            }
 
-            Element database = document.createElement("database");
-            document.appendChild(database);
+            // write a temporary file and move it, so the readers never see a partial file
+            File temp = File.createTempFile(outputXML.getName(), ".tmp", directory);
+            try {
+                MessageDigest digest = (manifest == null)? null: context.digest();
+                long size = compression.write(temp, digest, xml);
+                replace(temp, outputXML);
+                if (manifest != null)
+                    manifest.add(outputXML, size, 1, digest.digest());
+            } finally {
+                if (temp.exists() && !temp.delete())
+                    logger.warn("The temporary file " + temp + " could not be deleted");
+            }
+            logger.info("Finished generating EB-eye XML file for: " + outputXML);
+        }
 
-            //Add the name of the database
-            Element name = document.createElement("name");
-            name.appendChild(document.createTextNode(project.getRepositoryName()));
-            database.appendChild(name);
+    }
 
-            //Add the description of the database
-            Element description = document.createElement("description");
-            description.appendChild(document.createTextNode(""));
-            database.appendChild(description);
+    /**
+     * Check if the existing file has the same content than the new one, the release date is not compared.
+     * The file is added to the manifest when it is kept.
+     */
+    private boolean isUnchanged(byte[] xml, File outputXML, EBeyeWriterContext context) {
+        try {
+            byte[] stored = Files.readAllBytes(outputXML.toPath());
+            InputStream in = compression.openInput(new ByteArrayInputStream(stored));
+            byte[] existing;
+            try {
+                existing = IOUtils.toByteArray(in);
+            } finally {
+                in.close();
+            }
+            if (!Arrays.equals(contentHash(xml, context.digest()), contentHash(existing, context.digest())))
+                return false;
+            if (manifest != null)
+                manifest.add(outputXML, stored.length, 1, context.digest().digest(stored));
+            return true;
+        } catch (IOException e) {
+            logger.warn("The existing EB-eye XML file " + outputXML + " can not be read, it will be replaced|" + e.getMessage());
+            return false;
+        }
+    }
 
-            //Database release
-            Element release = document.createElement("release");
-            release.appendChild(document.createTextNode("3"));
-            database.appendChild(release);
+    /**
+     * Hash of an EB-eye file without the value of the release_date, that changes every day
+     * @param xml content of the file
+     * @param digest digest to use
+     * @return the hash
+     */
+    static byte[] contentHash(byte[] xml, MessageDigest digest) {
+        int start = indexOf(xml, RELEASE_DATE_START, 0);
+        int end = (start < 0)? -1: indexOf(xml, RELEASE_DATE_END, start);
+        if (end < 0) {
+            digest.update(xml);
+        } else {
+            digest.update(xml, 0, start + RELEASE_DATE_START.length);
+            digest.update(xml, end, xml.length - end);
+        }
+        return digest.digest();
+    }
 
-            //Release date (This release date is related whit the day where the data was generated)
-            Element releaseDate = document.createElement("release_date");
-            releaseDate.appendChild(document.createTextNode(new SimpleDateFormat("yyyy-MM-dd").format(new Date())));
-            database.appendChild(releaseDate);
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        for (int i = from; i <= data.length - pattern.length; i++) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j])
+                j++;
+            if (j == pattern.length)
+                return i;
+        }
+        return -1;
+    }
 
-            Element entryCount = document.createElement("entry_count");
-            entryCount.appendChild(document.createTextNode("1"));
-            database.appendChild(entryCount);
+    /**
+     * Replace the target with the source file in one step when the file system allows it
+     */
+    static void replace(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
 
-            //Start to index the entries of the project
-            Element entries = document.createElement("entries");
-            database.appendChild(entries);
+    /**
+     * Stream the EB-eye XML of the project to the given output. The output is flushed but not closed.
+     * @param out output of the XML
+     * @throws IOException
+     */
+    public void write(Writer out) throws IOException {
+        EBeyeWriterContext context = EBeyeWriterContext.get();
+        EBeyeOutputBuffer buffer = context.renderBuffer();
+        render(buffer, context, null);
+        out.write(new String(buffer.toByteArray(), EBeyeWriterContext.UTF8));
+        out.flush();
+    }
 
-            //The project entry to be fill in the document
-            Element entry = document.createElement("entry");
-            entry.setAttribute("id", project.getAccession());
+    /**
+     * Render the EB-eye XML of the project in UTF-8
+     * @param buffer output of the XML
+     * @param context writer context of the current thread
+     * @param overflow output of the XML that does not fit in memory, null to keep all of it in the buffer
+     */
+    void render(EBeyeOutputBuffer buffer, EBeyeWriterContext context, EBeyeXmlWriter.Overflow overflow) throws IOException {
 
-            Element projectName = document.createElement("name");
-            projectName.appendChild(document.createTextNode(project.getTitle()));
-            entry.appendChild(projectName);
+        EBeyeXmlWriter xml = new EBeyeXmlWriter(buffer, indent);
+        if (overflow != null)
+            xml.setOverflow(MAX_RENDERED_SIZE, overflow);
 
-            String projDescription = project.getTitle();
-            if (project.getProjectDescription()!=null && !project.getProjectDescription().isEmpty())
-                projDescription = project.getProjectDescription();
+        writeDatabaseStart(xml, project.getRepositoryName(), 1, context);
 
-            Element projectTitle = document.createElement("description");
-            projectTitle.appendChild(document.createTextNode(projDescription));
-            entry.appendChild(projectTitle);
+        writeEntry(xml, project, proteins, context);
 
+        writeDatabaseEnd(xml);
+    }
 
-            /**
-             * Add all cross references to other databases such as TAXONOMY, UNIPROT OR ENSEMBL
-             */
+    /**
+     * Write the database header of an EB-eye file and open the entries element
+     * @param xml XML output
+     * @param repositoryName name of the database
+     * @param entryCount number of entries in the file
+     * @param context writer context of the current thread
+     */
+    static void writeDatabaseStart(EBeyeXmlWriter xml, String repositoryName, int entryCount, EBeyeWriterContext context) throws IOException {
 
-            Element crossReferences = document.createElement("cross_references");
-            entry.appendChild(crossReferences);
+        //Add database Name Node
+        xml.startElement("database");
 
-            if (project.getTaxonomies()!=null) {
-                for (String taxonomy : project.getTaxonomies()) {
-                    Element refSpecies = document.createElement("ref");
-                    refSpecies.setAttribute("dbkey", taxonomy);
-                    refSpecies.setAttribute("dbname", "TAXONOMY");
-                    crossReferences.appendChild(refSpecies);
-                }
-            }
+        //Add the name of the database
+        xml.element("name", repositoryName);
 
-            if (project.getReferences()!=null && project.getReferences().size()>0) {
-                for (Reference reference : project.getReferences()) {
-                    if(reference.getPubmedId() != null){
-                        Element refPubMedID = document.createElement("ref");
-                        refPubMedID.setAttribute("dbkey", Integer.toString(reference.getPubmedId()));
-                        refPubMedID.setAttribute("dbname", "pubmed");
-                        crossReferences.appendChild(refPubMedID);
-                    }
-                }
-            }
+        //Add the description of the database
+        xml.element("description", "");
 
-            if (proteins!=null && !proteins.isEmpty()) {
-                for (String protein : proteins.keySet()) {
-                    Element refProtein = document.createElement("ref");
-                    refProtein.setAttribute("dbkey", protein);
-                    refProtein.setAttribute("dbname", proteins.get(protein));
-                    crossReferences.appendChild(refProtein);
-                }
-            }
+        //Database release
+        xml.element("release", "3");
 
-            Element dates = document.createElement("dates");
-            entry.appendChild(dates);
+        //Release date (This release date is related whit the day where the data was generated)
+        xml.element("release_date", context.formatDate(new Date()));
 
-            if(project.getSubmissionDate() != null){
-                Element dateSubmitted = document.createElement("date");
-                dateSubmitted.setAttribute("value", new SimpleDateFormat("yyyy-MM-dd").format(project.getSubmissionDate()));
-                dateSubmitted.setAttribute("type", "submission");
-                dates.appendChild(dateSubmitted);
-            }
+        xml.element("entry_count", Integer.toString(entryCount));
 
+        //Start to index the entries of the project
+        xml.startElement("entries");
+    }
 
-            if(project.getPublicationDate() != null){
-                Element datePublished = document.createElement("date");
-                datePublished.setAttribute("value", new SimpleDateFormat("yyyy-MM-dd").format(project.getPublicationDate()));
-                datePublished.setAttribute("type", "publication");
-                dates.appendChild(datePublished);
-            }
+    /**
+     * Close the entries and the database elements of an EB-eye file
+     * @param xml XML output
+     */
+    static void writeDatabaseEnd(EBeyeXmlWriter xml) throws IOException {
+        xml.endElement();
+        xml.endElement();
+        xml.endDocument();
+    }
 
-            /**
-             * Add additional Fields for DDI project to be able to find the projects. Specially additional metadata
-             * such as omics field, ptms, study type, data protocol sample protocol, etc.
-             */
+    /**
+     * Write the entry of a project
+     * @param xml XML output
+     * @param project public project
+     * @param proteins protein cross references of the project, can be null
+     * @param context writer context of the current thread
+     */
+    static void writeEntry(EBeyeXmlWriter xml, Project project, ProteinReferenceSource proteins, EBeyeWriterContext context) throws IOException {
 
-            Element additionalFields = document.createElement("additional_fields");
-            entry.appendChild(additionalFields);
+        //The project entry to be fill in the document
+        xml.startElement("entry");
+        xml.attribute("id", project.getAccession());
 
+        xml.element("name", project.getTitle());
 
-            // Add the omics type
-            Element omicsType = document.createElement("field");
-            omicsType.setAttribute("name", "omics_type");
-            omicsType.appendChild(document.createTextNode(OMICS_TYPE));
-            additionalFields.appendChild(omicsType);
+        String projDescription = project.getTitle();
+        if (project.getProjectDescription()!=null && !project.getProjectDescription().isEmpty())
+            projDescription = project.getProjectDescription();
 
-            if(project.getDatasetLink() != null){
-                Element repoLink = document.createElement("field");
-                repoLink.setAttribute("name", "full_dataset_link");
-                repoLink.appendChild(document.createTextNode(project.getDatasetLink()));
-                additionalFields.appendChild(repoLink);
-            }
+        xml.element("description", projDescription);
 
-//            if(project.getSubmissionDate() != null){
-//                Element submissionDate = document.createElement("field");
-//                submissionDate.setAttribute("name", "submission_date");
-//                submissionDate.appendChild(document.createTextNode(new SimpleDateFormat("yyyy-MM-dd").format(project.getSubmissionDate())));
-//                additionalFields.appendChild(submissionDate);
-//            }
+        /**
+         * Add all cross references to other databases such as TAXONOMY, UNIPROT OR ENSEMBL
+         */
 
+        xml.startElement("cross_references");
 
-            //Add the domain source
-            Element respository = document.createElement("field");
-            respository.setAttribute("name", "repository");
-            respository.appendChild(document.createTextNode(project.getRepositoryName()));
-            additionalFields.appendChild(respository);
+        if (project.getTaxonomies()!=null) {
+            for (String taxonomy : project.getTaxonomies()) {
+                xml.element("ref", "dbkey", taxonomy, "dbname", "TAXONOMY");
+            }
+        }
 
+        if (project.getReferences()!=null && project.getReferences().size()>0) {
+            for (Reference reference : project.getReferences()) {
+                if(reference.getPubmedId() != null){
+                    xml.element("ref", "dbkey", Integer.toString(reference.getPubmedId()), "dbname", "pubmed");
+                }
+            }
+        }
 
-//            //Add the Sample Processing Protocol
-//            if(project.getPublicationDate() != null){
-//                Element publicationDate = document.createElement("field");
-//                publicationDate.setAttribute("name", "publication_date");
-//                publicationDate.appendChild(document.createTextNode(new SimpleDateFormat("yyyy-MM-dd").format(project.getPublicationDate())));
-//                additionalFields.appendChild(publicationDate);
-//            }
+        if (proteins != null)
+            writeProteinReferences(xml, proteins);
 
+        xml.endElement();
 
-            //Add the Sample Processing Protocol
-            if (project.getSampleProcessingProtocol()!=null && !project.getSampleProcessingProtocol().isEmpty()) {
-                Element sampleProcProt = document.createElement("field");
-                sampleProcProt.setAttribute("name", "sample_protocol");
-                sampleProcProt.appendChild(document.createTextNode(project.getSampleProcessingProtocol()));
-                additionalFields.appendChild(sampleProcProt);
-            }
+        xml.startElement("dates");
 
-            //Add Data Processing Protocol
-            if (project.getDataProcessingProtocol()!=null && !project.getDataProcessingProtocol().isEmpty()) {
-                Element dataProcProt = document.createElement("field");
-                dataProcProt.setAttribute("name", "data_protocol");
-                dataProcProt.appendChild(document.createTextNode(project.getDataProcessingProtocol()));
-                additionalFields.appendChild(dataProcProt);
-            }
+        if(project.getSubmissionDate() != null){
+            xml.element("date", "type", "submission", "value", context.formatDate(project.getSubmissionDate()));
+        }
 
-            //Add Instrument information
-            if (project.getInstruments()!=null && project.getInstruments().size()>0) {
-                for (CvParam instrument : project.getInstruments()) {
-                    Element fieldInstruemnt = document.createElement("field");
-                    fieldInstruemnt.setAttribute("name", "instrument_platform");
-                    fieldInstruemnt.appendChild(document.createTextNode(instrument.getName()));
-                    additionalFields.appendChild(fieldInstruemnt);
-                }
-            } else {
-                Element fieldInstruemnt = document.createElement("field");
-                fieldInstruemnt.setAttribute("name", "instrument_platform");
-                fieldInstruemnt.appendChild(document.createTextNode(NOT_AVAILABLE));
-                additionalFields.appendChild(fieldInstruemnt);
-            }
+        if(project.getPublicationDate() != null){
+            xml.element("date", "type", "publication", "value", context.formatDate(project.getPublicationDate()));
+        }
 
-            //Add information about the species
-            if (project.getSpecies()!=null && project.getSpecies().size()>0) {
-                for (CvParam species : project.getSpecies()) {
-                    Element refSpecies = document.createElement("field");
-                    refSpecies.setAttribute("name", "species");
-                    refSpecies.appendChild(document.createTextNode(species.getValue()));
-                    additionalFields.appendChild(refSpecies);
-                }
-            } else {
-                Element refSpecies = document.createElement("field");
-                refSpecies.setAttribute("name", "species");
-                refSpecies.appendChild(document.createTextNode(NOT_AVAILABLE));
-                additionalFields.appendChild(refSpecies);
-            }
+        xml.endElement();
 
-            //Add information about the Cell Type
-            if (project.getCellTypes()!=null && project.getCellTypes().size()>0) {
-                for (CvParam cellType : project.getCellTypes()) {
-                    Element refCellType = document.createElement("field");
-                    refCellType.setAttribute("name", "cell_type");
-                    refCellType.appendChild(document.createTextNode(cellType.getName()));
-                    additionalFields.appendChild(refCellType);
-                }
-            } else {
-                Element refCellType = document.createElement("field");
-                refCellType.setAttribute("name", "cell_type");
-                refCellType.appendChild(document.createTextNode(NOT_AVAILABLE));
-                additionalFields.appendChild(refCellType);
-            }
+        /**
+         * Add additional Fields for DDI project to be able to find the projects. Specially additional metadata
+         * such as omics field, ptms, study type, data protocol sample protocol, etc.
+         */
 
-            //Add disease information
-            if (project.getDiseases()!=null && project.getDiseases().size()>0) {
-                for (CvParam disease : project.getDiseases()) {
-                    Element refDisease = document.createElement("field");
-                    refDisease.setAttribute("name", "disease");
-                    refDisease.appendChild(document.createTextNode(disease.getName()));
-                    additionalFields.appendChild(refDisease);
-                }
-            } else {
-                Element refDisease = document.createElement("field");
-                refDisease.setAttribute("name", "disease");
-                refDisease.appendChild(document.createTextNode(NOT_AVAILABLE));
-                additionalFields.appendChild(refDisease);
-            }
+        xml.startElement("additional_fields");
 
-            //Tissue information
-            if (project.getTissues()!=null && project.getTissues().size()>0) {
-                for (CvParam tissue : project.getTissues()) {
-                    Element fieldTissue = document.createElement("field");
-                    fieldTissue.setAttribute("name", "tissue");
-                    fieldTissue.appendChild(document.createTextNode(tissue.getName()));
-                    additionalFields.appendChild(fieldTissue);
-                }
-            } else {
-                Element fieldTissue = document.createElement("field");
-                fieldTissue.setAttribute("name", "tissue");
-                fieldTissue.appendChild(document.createTextNode(NOT_AVAILABLE));
-                additionalFields.appendChild(fieldTissue);
-            }
+        EBeyeFieldPlan.ADDITIONAL_FIELDS.emit(project, xml);
 
-            //Add PTMs information
-            if (project.getPtms()!=null && project.getPtms().size()>0) {
-                for (CvParam ptmName : project.getPtms()) {
-                    Element modification = document.createElement("field");
-                    modification.setAttribute("name", "modification");
-                    modification.appendChild(document.createTextNode(ptmName.getName()));
-                    additionalFields.appendChild(modification);
-                }
-            } else {
-                Element modification = document.createElement("field");
-                modification.setAttribute("name", "modification");
-                modification.appendChild(document.createTextNode(NOT_AVAILABLE));
-                additionalFields.appendChild(modification);
-            }
+        xml.endElement();
+        xml.endElement();
+    }
 
-            //Add information about experiment type
-            if (project.getExperimentTypes()!=null && project.getExperimentTypes().size()>0) {
-                for (CvParam expType : project.getExperimentTypes()) {
-                    Element refExpType = document.createElement("field");
-                    refExpType.setAttribute("name", "technology_type");
-                    refExpType.appendChild(document.createTextNode(expType.getName()));
-                    additionalFields.appendChild(refExpType);
-                }
-            } else {
-                Element refExpType = document.createElement("field");
-                refExpType.setAttribute("name", "technology_type");
-                refExpType.appendChild(document.createTextNode(DEFAULT_EXPERIMENT_TYPE));
-                additionalFields.appendChild(refExpType);
-            }
+    /**
+     * Write the protein references, the duplicated ones are skipped. Only the 64 bit hash of
+     * every reference is kept to find them.
+     */
+    private static void writeProteinReferences(EBeyeXmlWriter xml, ProteinReferenceSource proteins) throws IOException {
+        LongHashSet written = new LongHashSet(1024);
+        int count = 0;
+        while (proteins.next()) {
+            String accession = proteins.getAccession();
+            String database = proteins.getDatabase();
+            if (accession == null || database == null)
+                continue;
+            int code = ProteinDatabases.code(database);
+            if (!written.add(ProteinDatabases.hash(code, accession)))
+                continue;
+            xml.startElement(REF);
+            xml.attribute("dbkey", accession);
+            xml.attribute(ProteinDatabases.attribute(code));
+            xml.endElement();
+            if (++count % OVERFLOW_CHECK_INTERVAL == 0)
+                xml.checkOverflow();
+        }
+    }
 
-            //Add curator tags and keywords
-            if (project.getProjectTags()!=null && project.getProjectTags().size()>0) {
-                for (String projectTag : project.getProjectTags()) {
-                    Element fieldProjTag = document.createElement("field");
-                    fieldProjTag.setAttribute("name", "curator_keywords");
-                    fieldProjTag.appendChild(document.createTextNode(projectTag));
-                    additionalFields.appendChild(fieldProjTag);
-                }
-            }
+    /**
+     * Temporary file where the XML is written while it is rendered when it is too big
+     */
+    private class SpillFile implements EBeyeXmlWriter.Overflow {
 
-            if (project.getKeywords()!=null && !project.getKeywords().isEmpty()) {
-                for(String keyword: project.getKeywords()){
-                    Element keywords = document.createElement("field");
-                    keywords.setAttribute("name", "submitter_keywords");
-                    keywords.appendChild(document.createTextNode(keyword));
-                    additionalFields.appendChild(keywords);
-                }
-            }
+        private final File directory;
 
-            //Specific to proteomics field the quantitation method
-            if (project.getQuantificationMethods()!=null && project.getQuantificationMethods().size()>0) {
-                for (CvParam quantMethod : project.getQuantificationMethods()) {
-                    Element refQuantMethod = document.createElement("field");
-                    refQuantMethod.setAttribute("name", "quantification_method");
-                    refQuantMethod.appendChild(document.createTextNode(quantMethod.getName()));
-                    additionalFields.appendChild(refQuantMethod);
-                }
-            } else {
-                Element quantMethod = document.createElement("field");
-                quantMethod.setAttribute("name", "quantification_method");
-                quantMethod.appendChild(document.createTextNode(NOT_AVAILABLE));
-                additionalFields.appendChild(quantMethod);
-            }
+        private final String name;
 
-            if (project.getSoftware()!=null && project.getSoftware().size()>0) {
-                for (CvParam software : project.getSoftware()) {
-                    Element refSoftware = document.createElement("field");
-                    refSoftware.setAttribute("name", "software");
-                    refSoftware.appendChild(document.createTextNode(software.getValue()));
-                    additionalFields.appendChild(refSoftware);
-                }
-            } else {
-                Element refSoftware = document.createElement("field");
-                refSoftware.setAttribute("name", "software");
-                refSoftware.appendChild(document.createTextNode(NOT_AVAILABLE));
-                additionalFields.appendChild(refSoftware);
-            }
+        private File temp;
 
-            //Add publication related information
-            if (project.getDoi()!=null && !project.getDoi().isEmpty()) {
-                Element doi = document.createElement("field");
-                doi.setAttribute("name", "doi");
-                doi.appendChild(document.createTextNode(project.getDoi()));
-                additionalFields.appendChild(doi);
-            }
+        private OutputStream out;
 
-            //Add publication related information
-            if (project.getReferences()!=null && project.getReferences().size()>0) {
-                for (Reference reference : project.getReferences()) {
-                    if(reference.getReferenceLine() != null){
-                        Element refPubMedLine = document.createElement("field");
-                        refPubMedLine.setAttribute("name", "publication");
-                        refPubMedLine.appendChild(document.createTextNode(reference.getReferenceLine()));
-                        additionalFields.appendChild(refPubMedLine);
-                    }
-                }
-            }
+        private MessageDigest digest;
 
-            //Add submitter information
-            if(project.getSubmitter() != null){
-                if(project.getSubmitter().getName() != null){
-                    Element submitter = document.createElement("field");
-                    submitter.setAttribute("name", "submitter");
-                    submitter.appendChild(document.createTextNode(project.getSubmitter().getName()));
-                    additionalFields.appendChild(submitter);
-                }
-                if(project.getSubmitter().getEmail() != null){
-                    Element submitterMail = document.createElement("field");
-                    submitterMail.setAttribute("name", "submitter_mail");
-                    submitterMail.appendChild(document.createTextNode(project.getSubmitter().getEmail()));
-                    additionalFields.appendChild(submitterMail);
-                }
-                if(project.getSubmitter().getAffiliation() != null){
-                    Element submitterAffiliation = document.createElement("field");
-                    submitterAffiliation.setAttribute("name", "submitter_affiliation");
-                    submitterAffiliation.appendChild(document.createTextNode(project.getSubmitter().getAffiliation()));
-                    additionalFields.appendChild(submitterAffiliation);
-                }
+        private SpillFile(File directory, String name) {
+            this.directory = directory;
+            this.name = name;
+        }
+
+        @Override
+        public void overflow(EBeyeOutputBuffer buffer) throws IOException {
+            if (out == null) {
+                temp = File.createTempFile(name, ".tmp", directory);
+                digest = (manifest == null)? null: EBeyeWriterContext.get().digest();
+                out = compression.open(temp, digest);
             }
+            buffer.writeTo(out);
+            buffer.reset();
+        }
 
-            //Add LabHead information
-            if(project.getLabHeads() != null && !project.getLabHeads().isEmpty()){
-                for(Submitter labhead: project.getLabHeads()){
-                    if(labhead.getName() != null){
-                        Element submitter = document.createElement("field");
-                        submitter.setAttribute("name", "labhead");
-                        submitter.appendChild(document.createTextNode(labhead.getName()));
-                        additionalFields.appendChild(submitter);
-                    }
-                    if(labhead.getEmail() != null){
-                        Element submitterMail = document.createElement("field");
-                        submitterMail.setAttribute("name", "labhead_mail");
-                        submitterMail.appendChild(document.createTextNode(labhead.getEmail()));
-                        additionalFields.appendChild(submitterMail);
-                    }
-                    if(labhead.getAffiliation() != null){
-                        Element submitterAffiliation = document.createElement("field");
-                        submitterAffiliation.setAttribute("name", "labhead_affiliation");
-                        submitterAffiliation.appendChild(document.createTextNode(labhead.getAffiliation()));
-                        additionalFields.appendChild(submitterAffiliation);
-                    }
+        private boolean isOpen() {
+            return out != null;
+        }
 
-                }
-            }
+        /**
+         * Write the rest of the XML and close the file
+         * @return size of the file
+         */
+        private long finish(EBeyeOutputBuffer buffer) throws IOException {
+            overflow(buffer);
+            OutputStream closing = out;
+            out = null;
+            closing.close();
+            return temp.length();
+        }
 
-            //Add original link to the files
-            if(project.getDataFiles() != null && !project.getDataFiles().isEmpty()){
-                for(String file: project.getDataFiles()){
-                    Element dataset_link = document.createElement("field");
-                    dataset_link.setAttribute("name", "dataset_file");
-                    dataset_link.appendChild(document.createTextNode(file));
-                    additionalFields.appendChild(dataset_link);
+        /**
+         * Close and delete the file if it has not been moved
+         */
+        private void discard() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    logger.warn("The temporary file " + temp + " could not be closed|" + e.getMessage());
                 }
+                out = null;
             }
-
-            entries.appendChild(entry);
-
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            DOMSource source = new DOMSource(document);
-            File outputXML = new File(outputDirectory, project.getRepositoryName().trim() + "_EBEYE_" + project.getAccession() + ".xml");
-            StreamResult result = new StreamResult(outputXML.toURI().getPath());
-            transformer.transform(source, result);
-            logger.info("Finished generating EB-eye XML file for: " + outputDirectory + File.separator + "PX_EBEYE_" + project.getAccession() + ".xml" );
+            if (temp != null && temp.exists() && !temp.delete())
+                logger.warn("The temporary file " + temp + " could not be deleted");
         }
-
     }
 }
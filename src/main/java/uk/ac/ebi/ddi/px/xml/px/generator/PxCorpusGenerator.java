@@ -0,0 +1,428 @@
+package uk.ac.ebi.ddi.px.xml.px.generator;
+
+import uk.ac.ebi.ddi.px.xml.px.io.PXUnmarshallerFactory;
+import uk.ac.ebi.ddi.px.xml.px.model.*;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * This program generates synthetic PX XML documents, to test the memory and the throughput of
+ * the reader and the writers with datasets bigger than the ones in ProteomeCentral. The
+ * documents are built with the ObjectFactory of the PX model and written with the JAXB
+ * Marshaller, so they are valid against the schema.
+ *
+ * The content of a document only depends on the seed, the sizes and the accession, so the same
+ * dataset is generated again whatever the order of the requests. The DatasetFile elements are
+ * marshalled one at a time, a document with a million files is written in constant memory.
+ * The settings must not change while documents are written, then the generator can be shared
+ * by many threads.
+ */
+public class PxCorpusGenerator {
+
+    private static final String FORMAT_VERSION = "1.2.0";
+
+    private static final String[] SPECIES = {
+            "Homo sapiens", "9606", "Mus musculus", "10090", "Rattus norvegicus", "10116",
+            "Saccharomyces cerevisiae", "4932", "Escherichia coli", "562", "Arabidopsis thaliana", "3702"};
+
+    private static final String[] INSTRUMENTS = {
+            "MS:1001742", "LTQ Orbitrap Velos", "MS:1001911", "Q Exactive", "MS:1002416", "Orbitrap Fusion",
+            "MS:1000931", "QSTAR Elite", "MS:1002877", "Q Exactive HF-X"};
+
+    private static final String[] MODIFICATIONS = {
+            "MOD:00696", "phosphorylated residue", "MOD:00394", "acetylated residue",
+            "MOD:00397", "iodoacetamide derivatized residue", "MOD:00719", "L-methionine sulfoxide",
+            "MOD:00400", "deamidated residue", "MOD:01426", "TMT6plex reporter+balance reagent acylated residue"};
+
+    private static final String[] WORDS = {
+            "proteome", "phosphorylation", "quantitative", "tissue", "cancer", "plasma", "LC-MS/MS",
+            "SILAC", "TMT", "label-free", "interactome", "secretome", "biomarker", "mitochondria"};
+
+    private static final String[] FILE_KINDS = {
+            ".raw", "Raw file URI", ".mgf", "Peak file URI", ".mzid.gz", "Result file URI",
+            ".xml.gz", "Result file URI", ".msf", "Search engine output file URI", ".txt", "Associated file URI"};
+
+    private static final HostingRepositoryType[] REPOSITORIES = {
+            HostingRepositoryType.PRIDE, HostingRepositoryType.PRIDE, HostingRepositoryType.PRIDE,
+            HostingRepositoryType.MASS_IVE, HostingRepositoryType.PEPTIDE_ATLAS};
+
+    private final ObjectFactory factory = new ObjectFactory();
+
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    private final DatatypeFactory datatypeFactory;
+
+    private final CvType ms;
+
+    private final CvType pride;
+
+    private long seed = 0;
+
+    private int contacts = 3;
+
+    private int species = 1;
+
+    private int instruments = 1;
+
+    private int keywords = 5;
+
+    private int publications = 1;
+
+    private int modifications = 2;
+
+    private int datasetFiles = 10;
+
+    public PxCorpusGenerator() {
+        try {
+            datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException("Could not create the XML datatype factory", e);
+        }
+        ms = cv("MS", "PSI-MS", "https://raw.githubusercontent.com/HUPO-PSI/psi-ms-CV/master/psi-ms.obo");
+        pride = cv("PRIDE", "PRIDE", "https://www.ebi.ac.uk/ols/ontologies/pride");
+    }
+
+    /**
+     * Write a corpus of synthetic datasets, one file per dataset named after its accession
+     * @param args output folder, number of datasets, and optionally the number of files per dataset and the seed
+     */
+    public static void main(String[] args) throws Exception {
+        if (args == null || args.length < 2) {
+            System.err.println("Usage: PxCorpusGenerator <output folder> <datasets> [files per dataset] [seed]");
+            System.exit(-1);
+        }
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        if (args.length > 2)
+            generator.setDatasetFiles(Integer.parseInt(args[2]));
+        if (args.length > 3)
+            generator.setSeed(Long.parseLong(args[3]));
+        generator.writeCorpus(new File(args[0]), 1, Integer.parseInt(args[1]));
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param contacts contacts of every dataset, the first one is the submitter and the others lab heads
+     */
+    public void setContacts(int contacts) {
+        this.contacts = positive(contacts, "contacts");
+    }
+
+    public void setSpecies(int species) {
+        this.species = positive(species, "species");
+    }
+
+    public void setInstruments(int instruments) {
+        this.instruments = positive(instruments, "instruments");
+    }
+
+    public void setKeywords(int keywords) {
+        this.keywords = positive(keywords, "keywords");
+    }
+
+    /**
+     * @param publications publications of every dataset, 0 for a dataset with its publication pending
+     */
+    public void setPublications(int publications) {
+        this.publications = notNegative(publications, "publications");
+    }
+
+    public void setModifications(int modifications) {
+        this.modifications = notNegative(modifications, "modifications");
+    }
+
+    /**
+     * @param datasetFiles DatasetFile elements of every dataset, from 0 to millions
+     */
+    public void setDatasetFiles(int datasetFiles) {
+        this.datasetFiles = notNegative(datasetFiles, "dataset files");
+    }
+
+    /**
+     * Write the datasets PXD(first) to PXD(first + count - 1) in the folder, as PXDnnnnnn.xml
+     * @param folder output folder, created if it does not exist
+     * @param first number of the first accession
+     * @param count number of datasets
+     * @throws IOException if a file can not be written
+     */
+    public void writeCorpus(File folder, int first, int count) throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs())
+            throw new IOException("Could not create " + folder);
+        for (int i = first; i < first + count; i++) {
+            String accession = accession(i);
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(folder, accession + ".xml")), 64 * 1024);
+            try {
+                write(accession, out);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @return the accession of the dataset number i, PXD followed by six digits
+     */
+    public static String accession(int i) {
+        return String.format("PXD%06d", i);
+    }
+
+    /**
+     * Write the PX XML document of a dataset in UTF-8
+     * @param accession accession of the dataset
+     * @param out output, it is flushed but not closed
+     * @throws IOException if the document can not be written
+     */
+    public void write(String accession, OutputStream out) throws IOException {
+        Random random = random(accession);
+        ProteomeXchangeDatasetType dataset = createDataset(accession, random);
+        Marshaller marshaller = PXUnmarshallerFactory.getInstance().initializeMarshaller();
+        try {
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            XMLStreamWriter xml = outputFactory.createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("ProteomeXchangeDataset");
+            xml.writeAttribute("id", dataset.getId());
+            xml.writeAttribute("formatVersion", dataset.getFormatVersion());
+            fragment(marshaller, xml, "CvList", CvListType.class, dataset.getCvList());
+            fragment(marshaller, xml, "DatasetSummary", DatasetSummaryType.class, dataset.getDatasetSummary());
+            fragment(marshaller, xml, "DatasetIdentifierList", DatasetIdentifierListType.class, dataset.getDatasetIdentifierList());
+            fragment(marshaller, xml, "DatasetOriginList", DatasetOriginListType.class, dataset.getDatasetOriginList());
+            fragment(marshaller, xml, "SpeciesList", SpeciesListType.class, dataset.getSpeciesList());
+            fragment(marshaller, xml, "InstrumentList", InstrumentListType.class, dataset.getInstrumentList());
+            fragment(marshaller, xml, "ModificationList", ModificationListType.class, dataset.getModificationList());
+            fragment(marshaller, xml, "ContactList", ContactListType.class, dataset.getContactList());
+            fragment(marshaller, xml, "PublicationList", PublicationListType.class, dataset.getPublicationList());
+            fragment(marshaller, xml, "KeywordList", KeywordListType.class, dataset.getKeywordList());
+            fragment(marshaller, xml, "FullDatasetLinkList", FullDatasetLinkListType.class, dataset.getFullDatasetLinkList());
+            if (datasetFiles > 0) {
+                xml.writeCharacters("\n  ");
+                xml.writeStartElement("DatasetFileList");
+                // a single DatasetFile is filled and marshalled for every file
+                DatasetFileType file = factory.createDatasetFileType();
+                CvParamType uri = cvParam(pride, null, null, null);
+                file.getCvParam().add(uri);
+                String folder = "ftp://ftp.pride.ebi.ac.uk/pride/data/archive/" + dataset.getDatasetSummary().getAnnounceDate().getYear() + "/" + accession + "/";
+                for (int i = 0; i < datasetFiles; i++) {
+                    int kind = random.nextInt(FILE_KINDS.length / 2) * 2;
+                    file.setId("FILE_" + i);
+                    file.setName(accession + "_" + i + FILE_KINDS[kind]);
+                    uri.setAccession("PRIDE:" + (403 + kind / 2));
+                    uri.setName(FILE_KINDS[kind + 1]);
+                    uri.setValue(folder + file.getName());
+                    fragment(marshaller, xml, "DatasetFile", DatasetFileType.class, file);
+                }
+                xml.writeEndElement();
+            }
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndDocument();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write " + accession, e);
+        } catch (JAXBException e) {
+            throw new IOException("Could not marshal " + accession, e);
+        }
+        out.flush();
+    }
+
+    /**
+     * Create the dataset without its files, the DatasetFile elements are generated while they are written
+     * @param accession accession of the dataset
+     * @return the dataset
+     */
+    public ProteomeXchangeDatasetType createDataset(String accession) {
+        return createDataset(accession, random(accession));
+    }
+
+    private ProteomeXchangeDatasetType createDataset(String accession, Random random) {
+        ProteomeXchangeDatasetType dataset = factory.createProteomeXchangeDatasetType();
+        dataset.setId(accession);
+        dataset.setFormatVersion(FORMAT_VERSION);
+
+        CvListType cvList = factory.createCvListType();
+        cvList.getCv().add(ms);
+        cvList.getCv().add(pride);
+        dataset.setCvList(cvList);
+
+        DatasetSummaryType summary = factory.createDatasetSummaryType();
+        summary.setTitle(sentence(random, 6) + " of " + SPECIES[random.nextInt(SPECIES.length / 2) * 2]);
+        summary.setDescription(sentence(random, 40 + random.nextInt(80)));
+        summary.setHostingRepository(REPOSITORIES[random.nextInt(REPOSITORIES.length)]);
+        int year = 2012 + random.nextInt(12);
+        int month = 1 + random.nextInt(12);
+        int day = 1 + random.nextInt(28);
+        // DatatypeFactory is not guaranteed to be thread safe
+        synchronized (datatypeFactory) {
+            summary.setAnnounceDate(datatypeFactory.newXMLGregorianCalendarDate(year, month, day, DatatypeConstants.FIELD_UNDEFINED));
+        }
+        ReviewLevelType reviewLevel = factory.createReviewLevelType();
+        reviewLevel.setCvParam(random.nextBoolean()
+                ? cvParam(ms, "MS:1002854", "Peer-reviewed dataset", null)
+                : cvParam(ms, "MS:1002855", "Non peer-reviewed dataset", null));
+        summary.setReviewLevel(reviewLevel);
+        RepositorySupportType repositorySupport = factory.createRepositorySupportType();
+        repositorySupport.setCvParam(random.nextBoolean()
+                ? cvParam(ms, "MS:1002856", "Supported dataset by repository", null)
+                : cvParam(ms, "MS:1002857", "Unsupported dataset by repository", null));
+        summary.setRepositorySupport(repositorySupport);
+        dataset.setDatasetSummary(summary);
+
+        DatasetIdentifierListType identifiers = factory.createDatasetIdentifierListType();
+        DatasetIdentifierType identifier = factory.createDatasetIdentifierType();
+        identifier.getCvParam().add(cvParam(ms, "MS:1001919", "ProteomeXchange accession number", accession));
+        identifiers.getDatasetIdentifier().add(identifier);
+        dataset.setDatasetIdentifierList(identifiers);
+
+        DatasetOriginListType origins = factory.createDatasetOriginListType();
+        DatasetOriginType origin = factory.createDatasetOriginType();
+        origin.getCvParam().add(cvParam(ms, "MS:1002868", "Original data", null));
+        origins.setDatasetOrigin(origin);
+        dataset.setDatasetOriginList(origins);
+
+        SpeciesListType speciesList = factory.createSpeciesListType();
+        for (int i = 0; i < species; i++) {
+            int pick = random.nextInt(SPECIES.length / 2) * 2;
+            SpeciesType speciesType = factory.createSpeciesType();
+            speciesType.getCvParam().add(cvParam(ms, "MS:1001469", "taxonomy: scientific name", SPECIES[pick]));
+            speciesType.getCvParam().add(cvParam(ms, "MS:1001467", "taxonomy: NCBI TaxID", SPECIES[pick + 1]));
+            speciesList.getSpecies().add(speciesType);
+        }
+        dataset.setSpeciesList(speciesList);
+
+        InstrumentListType instrumentList = factory.createInstrumentListType();
+        for (int i = 0; i < instruments; i++) {
+            int pick = random.nextInt(INSTRUMENTS.length / 2) * 2;
+            InstrumentType instrument = factory.createInstrumentType();
+            instrument.setId("Instrument_" + (i + 1));
+            instrument.getCvParam().add(cvParam(ms, INSTRUMENTS[pick], INSTRUMENTS[pick + 1], null));
+            instrumentList.getInstrument().add(instrument);
+        }
+        dataset.setInstrumentList(instrumentList);
+
+        ModificationListType modificationList = factory.createModificationListType();
+        for (int i = 0; i < modifications; i++) {
+            int pick = random.nextInt(MODIFICATIONS.length / 2) * 2;
+            modificationList.getCvParam().add(cvParam(ms, MODIFICATIONS[pick], MODIFICATIONS[pick + 1], null));
+        }
+        if (modifications == 0)
+            modificationList.getCvParam().add(cvParam(ms, "MS:1002864", "No PTMs are included in the dataset", null));
+        dataset.setModificationList(modificationList);
+
+        ContactListType contactList = factory.createContactListType();
+        for (int i = 0; i < contacts; i++) {
+            ContactType contact = factory.createContactType();
+            String name = "Contact " + accession + "-" + i;
+            contact.setId((i == 0)? "project_submitter": "project_lab_head_" + i);
+            contact.getCvParam().add((i == 0)
+                    ? cvParam(ms, "MS:1002037", "dataset submitter", null)
+                    : cvParam(ms, "MS:1002332", "lab head", null));
+            contact.getCvParam().add(cvParam(ms, "MS:1000586", "contact name", name));
+            contact.getCvParam().add(cvParam(ms, "MS:1000589", "contact email", "contact" + i + "@" + accession.toLowerCase() + ".example.org"));
+            contact.getCvParam().add(cvParam(ms, "MS:1000590", "contact affiliation", "Institute " + random.nextInt(1000)));
+            contactList.getContact().add(contact);
+        }
+        dataset.setContactList(contactList);
+
+        PublicationListType publicationList = factory.createPublicationListType();
+        for (int i = 0; i < publications; i++) {
+            String pubmed = Integer.toString(20000000 + random.nextInt(10000000));
+            PublicationType publication = factory.createPublicationType();
+            publication.setId("PMID" + pubmed);
+            publication.getCvParam().add(cvParam(ms, "MS:1000879", "PubMed identifier", pubmed));
+            publication.getCvParam().add(cvParam(ms, "MS:1002866", "Reference", "Author " + i + " et al. " + sentence(random, 8) + ". J Proteomics " + (2012 + random.nextInt(12))));
+            publicationList.getPublication().add(publication);
+        }
+        if (publications == 0) {
+            PublicationType pending = factory.createPublicationType();
+            pending.setId("pending");
+            pending.getCvParam().add(cvParam(ms, "MS:1002858", "Dataset with its publication pending", null));
+            publicationList.getPublication().add(pending);
+        }
+        dataset.setPublicationList(publicationList);
+
+        KeywordListType keywordList = factory.createKeywordListType();
+        for (int i = 0; i < keywords; i++) {
+            String keyword = WORDS[random.nextInt(WORDS.length)] + " " + i;
+            keywordList.getCvParam().add((i % 5 == 4)
+                    ? cvParam(ms, "MS:1001926", "curator keyword", keyword)
+                    : cvParam(ms, "MS:1001925", "submitter keyword", keyword));
+        }
+        dataset.setKeywordList(keywordList);
+
+        FullDatasetLinkListType links = factory.createFullDatasetLinkListType();
+        FullDatasetLinkType link = factory.createFullDatasetLinkType();
+        link.setCvParam(cvParam(pride, "PRIDE:0000411", "Dataset FTP location",
+                "ftp://ftp.pride.ebi.ac.uk/pride/data/archive/" + summary.getAnnounceDate().getYear() + "/" + accession));
+        links.getFullDatasetLink().add(link);
+        dataset.setFullDatasetLinkList(links);
+
+        return dataset;
+    }
+
+    private <T> void fragment(Marshaller marshaller, XMLStreamWriter xml, String name, Class<T> type, T value) throws JAXBException, XMLStreamException {
+        xml.writeCharacters((type == DatasetFileType.class)? "\n    ": "\n  ");
+        marshaller.marshal(new JAXBElement<T>(new QName(name), type, value), xml);
+    }
+
+    private Random random(String accession) {
+        return new Random(seed * 0x9E3779B97F4A7C15L + accession.hashCode());
+    }
+
+    private CvType cv(String id, String fullName, String uri) {
+        CvType cv = factory.createCvType();
+        cv.setId(id);
+        cv.setFullName(fullName);
+        cv.setUri(uri);
+        return cv;
+    }
+
+    private CvParamType cvParam(CvType cv, String accession, String name, String value) {
+        CvParamType param = factory.createCvParamType();
+        param.setCvRef(cv);
+        param.setAccession(accession);
+        param.setName(name);
+        param.setValue(value);
+        return param;
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0)
+                sentence.append(' ');
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+
+    private static int positive(int value, String name) {
+        if (value < 1)
+            throw new IllegalArgumentException("The number of " + name + " must be positive");
+        return value;
+    }
+
+    private static int notNegative(int value, String name) {
+        if (value < 0)
+            throw new IllegalArgumentException("The number of " + name + " can not be negative");
+        return value;
+    }
+}
@@ -0,0 +1,149 @@
+package uk.ac.ebi.ddi.px.xml.px.generator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in of the ProteomeCentral GetDataset service, serving the synthetic datasets of a
+ * {@link PxCorpusGenerator}. The datasets PXD(first) to PXD(first + count - 1) exist, the other
+ * accessions answer 404 as the unknown ones do in ProteomeCentral, so the crawl stops after
+ * loopGap accessions. Point the pxURL property to {@link #getUrlTemplate()} to crawl it.
+ */
+public class PxStubServer implements Closeable {
+
+    private static final String PATH = "/cgi/GetDataset";
+
+    private final PxCorpusGenerator generator;
+
+    private final int first;
+
+    private final int count;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * Start the server on the loopback interface
+     * @param generator generator of the datasets, its settings must not change while the server runs
+     * @param first number of the first accession
+     * @param count number of datasets
+     * @param port local port, 0 for any free port
+     * @param threads threads answering the requests
+     * @throws IOException if the port can not be bound
+     */
+    public PxStubServer(PxCorpusGenerator generator, int first, int count, int port, int threads) throws IOException {
+        this.generator = generator;
+        this.first = first;
+        this.count = count;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Serve a synthetic corpus until the process is stopped
+     * @param args port, number of datasets, and optionally the number of files per dataset and the seed
+     */
+    public static void main(String[] args) throws Exception {
+        if (args == null || args.length < 2) {
+            System.err.println("Usage: PxStubServer <port> <datasets> [files per dataset] [seed]");
+            System.exit(-1);
+        }
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        if (args.length > 2)
+            generator.setDatasetFiles(Integer.parseInt(args[2]));
+        if (args.length > 3)
+            generator.setSeed(Long.parseLong(args[3]));
+        PxStubServer server = new PxStubServer(generator, 1, Integer.parseInt(args[1]), Integer.parseInt(args[0]),
+                Runtime.getRuntime().availableProcessors());
+        System.out.println("pxURL=" + server.getUrlTemplate());
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the URL of a dataset with %s in place of the six digits of the accession, as the pxURL property
+     */
+    public String getUrlTemplate() {
+        return "http://localhost:" + getPort() + PATH + "?ID=PXD%s&outputMode=XML";
+    }
+
+    /**
+     * Stop the server
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            String accession = parameter(exchange.getRequestURI().getRawQuery(), "ID");
+            int number = number(accession);
+            if (number < first || number >= first + count) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=UTF-8");
+            // the length is not known before the document is generated, it is sent chunked
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+            try {
+                generator.write(PxCorpusGenerator.accession(number), out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String parameter(String query, String name) {
+        if (query == null)
+            return null;
+        for (String parameter : query.split("&"))
+            if (parameter.startsWith(name + "="))
+                return parameter.substring(name.length() + 1);
+        return null;
+    }
+
+    /**
+     * @return the number of a PXD accession, -1 if it is not one
+     */
+    private static int number(String accession) {
+        if (accession == null || !accession.startsWith("PXD") || accession.length() < 4 || accession.length() > 12)
+            return -1;
+        int number = 0;
+        for (int i = 3; i < accession.length(); i++) {
+            char c = accession.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
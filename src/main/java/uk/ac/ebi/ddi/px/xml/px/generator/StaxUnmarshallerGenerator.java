@@ -0,0 +1,517 @@
+package uk.ac.ebi.ddi.px.xml.px.generator;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This program reads the ProteomeXchange schema (proteomeXchange-1.2.0.xsd) and generates
+ * PxStaxUnmarshaller, an XMLStreamReader based unmarshaller that creates the same objects
+ * of the uk.ac.ebi.ddi.px.xml.px.model package than the JAXB unmarshaller, without reflection
+ * and without building the JAXB runtime model.
+ *
+ * It supports the subset of XML Schema used by the PX schema: complex types with a sequence
+ * of elements, attributes, complexContent extensions, simpleContent and enumerated simple types.
+ * The generated class must be regenerated every time the model is regenerated with the
+ * maven-jaxb2-plugin, see the exec-maven-plugin configuration in the pom.
+ */
+public class StaxUnmarshallerGenerator {
+
+    private static final String XS_NS = "http://www.w3.org/2001/XMLSchema";
+
+    private static final String MODEL_PKG = "uk.ac.ebi.ddi.px.xml.px.model";
+
+    private static final String OUTPUT_PKG = "uk.ac.ebi.ddi.px.xml.px.io";
+
+    private static final String OUTPUT_CLASS = "PxStaxUnmarshaller";
+
+    private final Map<String, ComplexType> complexTypes = new LinkedHashMap<String, ComplexType>();
+
+    private final Map<String, Boolean> simpleTypes = new LinkedHashMap<String, Boolean>();
+
+    private String rootElement;
+
+    private String rootType;
+
+    private String schemaName;
+
+    /**
+     * @param args the schema file and the source folder where the unmarshaller will be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args == null || args.length < 2) {
+            System.err.println("Usage: StaxUnmarshallerGenerator <schema.xsd> <source folder>");
+            System.exit(-1);
+        }
+        StaxUnmarshallerGenerator generator = new StaxUnmarshallerGenerator();
+        generator.readSchema(new File(args[0]));
+        File output = generator.generate(new File(args[1]));
+        System.out.println("Generated " + output.getPath());
+    }
+
+    /**
+     * Read the types of the schema
+     * @param schema XSD file
+     */
+    public void readSchema(File schema) throws Exception {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        Document document = dbf.newDocumentBuilder().parse(schema);
+        schemaName = schema.getName();
+
+        for (Element child : children(document.getDocumentElement())) {
+            String name = child.getAttribute("name");
+            if (child.getLocalName().equals("element")) {
+                rootElement = name;
+                rootType = child.getAttribute("type");
+            } else if (child.getLocalName().equals("simpleType")) {
+                simpleTypes.put(name, child.getElementsByTagNameNS(XS_NS, "enumeration").getLength() > 0);
+            } else if (child.getLocalName().equals("complexType")) {
+                complexTypes.put(name, readComplexType(child));
+            }
+        }
+        if (rootElement == null)
+            throw new IllegalStateException("The schema " + schemaName + " does not declare a root element");
+    }
+
+    private ComplexType readComplexType(Element node) {
+        ComplexType type = new ComplexType();
+        type.name = node.getAttribute("name");
+        type.isAbstract = "true".equals(node.getAttribute("abstract"));
+        readContent(node, type);
+        return type;
+    }
+
+    private void readContent(Element node, ComplexType type) {
+        for (Element child : children(node)) {
+            String kind = child.getLocalName();
+            if (kind.equals("sequence")) {
+                for (Element element : children(child)) {
+                    if (!element.getLocalName().equals("element"))
+                        throw new IllegalStateException("Unsupported particle " + element.getLocalName() + " in " + type.name);
+                    Property property = new Property();
+                    property.name = element.getAttribute("name");
+                    property.type = element.getAttribute("type");
+                    property.list = "unbounded".equals(element.getAttribute("maxOccurs"));
+                    type.elements.add(property);
+                }
+            } else if (kind.equals("attribute")) {
+                Property property = new Property();
+                property.name = child.getAttribute("name");
+                property.type = child.getAttribute("type");
+                type.attributes.add(property);
+            } else if (kind.equals("complexContent")) {
+                Element extension = children(child).get(0);
+                type.base = extension.getAttribute("base");
+                readContent(extension, type);
+            } else if (kind.equals("simpleContent")) {
+                type.simpleContent = true;
+                readContent(children(child).get(0), type);
+            } else if (!kind.equals("annotation")) {
+                throw new IllegalStateException("Unsupported content " + kind + " in " + type.name);
+            }
+        }
+    }
+
+    /**
+     * Write the unmarshaller source
+     * @param sourceFolder root folder of the sources
+     * @return the generated file
+     */
+    public File generate(File sourceFolder) throws IOException {
+        File folder = new File(sourceFolder, OUTPUT_PKG.replace('.', File.separatorChar));
+        if (!folder.exists() && !folder.mkdirs())
+            throw new IOException("Could not create the folder " + folder);
+        File output = new File(folder, OUTPUT_CLASS + ".java");
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"));
+        try {
+            writeHeader(out);
+            writeRoot(out);
+            for (ComplexType type : complexTypes.values())
+                if (!type.isAbstract)
+                    writeReader(out, type);
+            writeResolver(out);
+            writeHelpers(out);
+            out.println("}");
+        } finally {
+            out.close();
+        }
+        return output;
+    }
+
+    private void writeHeader(PrintWriter out) {
+        out.println("package " + OUTPUT_PKG + ";");
+        out.println();
+        out.println("import " + MODEL_PKG + ".*;");
+        out.println();
+        out.println("import javax.xml.bind.JAXBElement;");
+        out.println("import javax.xml.datatype.DatatypeConfigurationException;");
+        out.println("import javax.xml.datatype.DatatypeFactory;");
+        out.println("import javax.xml.datatype.XMLGregorianCalendar;");
+        out.println("import javax.xml.stream.XMLStreamConstants;");
+        out.println("import javax.xml.stream.XMLStreamException;");
+        out.println("import javax.xml.stream.XMLStreamReader;");
+        out.println("import java.util.ArrayList;");
+        out.println("import java.util.HashMap;");
+        out.println("import java.util.List;");
+        out.println("import java.util.Map;");
+        out.println();
+        out.println();
+        out.println("/**");
+        out.println(" * XMLStreamReader based unmarshaller of the " + MODEL_PKG + " package.");
+        out.println(" *");
+        out.println(" * THIS FILE IS GENERATED by " + StaxUnmarshallerGenerator.class.getName());
+        out.println(" * from " + schemaName + ", do not modify it by hand.");
+        out.println(" *");
+        out.println(" * An instance keeps the ID table of the document being read, so it must not be shared");
+        out.println(" * between threads.");
+        out.println(" */");
+        out.println("public class " + OUTPUT_CLASS + " {");
+        out.println();
+        out.println("    private static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();");
+        out.println();
+        out.println("    private final DatatypeFactory datatypeFactory;");
+        out.println();
+        out.println("    private final Map<String, Object> ids = new HashMap<String, Object>();");
+        out.println();
+        out.println("    private final List<Object> references = new ArrayList<Object>();");
+        out.println();
+        out.println("    private final List<String> referenceIds = new ArrayList<String>();");
+        out.println();
+        out.println("    public " + OUTPUT_CLASS + "() {");
+        out.println("        try {");
+        out.println("            datatypeFactory = DatatypeFactory.newInstance();");
+        out.println("        } catch (DatatypeConfigurationException e) {");
+        out.println("            throw new IllegalStateException(\"Could not initialize the datatype factory\", e);");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+    }
+
+    private void writeRoot(PrintWriter out) {
+        String javaType = rootType;
+        out.println("    /**");
+        out.println("     * Read the " + rootElement + " element the reader is positioned on, or the first");
+        out.println("     * one after the current position.");
+        out.println("     * @param reader stream reader");
+        out.println("     * @return the root element");
+        out.println("     * @throws XMLStreamException if the document is not well formed or has no " + rootElement);
+        out.println("     */");
+        out.println("    public JAXBElement<" + javaType + "> unmarshal(XMLStreamReader reader) throws XMLStreamException {");
+        out.println("        moveToStartElement(reader);");
+        out.println("        if (!\"" + rootElement + "\".equals(reader.getLocalName()))");
+        out.println("            throw new XMLStreamException(\"Unexpected element \" + reader.getLocalName(), reader.getLocation());");
+        out.println("        ids.clear();");
+        out.println("        references.clear();");
+        out.println("        referenceIds.clear();");
+        out.println("        " + javaType + " value = read" + javaType + "(reader);");
+        out.println("        resolveReferences();");
+        out.println("        return OBJECT_FACTORY.create" + rootElement + "(value);");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Read the element the reader is positioned on, or the first one after the current");
+        out.println("     * position, as an object of the given type. The IDREF attributes are not resolved until");
+        out.println("     * {@link #resolveReferences()} is called, so the fragments of a document can be read by");
+        out.println("     * different unmarshallers and their IDs merged with {@link #registerIds}.");
+        out.println("     * @param reader stream reader");
+        out.println("     * @param type model class of the element");
+        out.println("     * @return the element");
+        out.println("     * @throws XMLStreamException if the fragment is not well formed");
+        out.println("     */");
+        out.println("    public <T> T unmarshal(XMLStreamReader reader, Class<T> type) throws XMLStreamException {");
+        out.println("        moveToStartElement(reader);");
+        String keyword = "if";
+        for (ComplexType type : complexTypes.values()) {
+            if (type.isAbstract)
+                continue;
+            out.println("        " + keyword + " (type == " + type.name + ".class)");
+            out.println("            return type.cast(read" + type.name + "(reader));");
+            keyword = "else if";
+        }
+        out.println("        throw new IllegalArgumentException(\"Unsupported type \" + type.getName());");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Add the IDs read by other unmarshaller, so the references of this one can point to them");
+        out.println("     * @param other unmarshaller that read other fragment of the same document");
+        out.println("     */");
+        out.println("    public void registerIds(" + OUTPUT_CLASS + " other) {");
+        out.println("        ids.putAll(other.ids);");
+        out.println("    }");
+        out.println();
+    }
+
+    private void writeReader(PrintWriter out, ComplexType type) {
+        List<Property> attributes = new ArrayList<Property>();
+        List<Property> elements = new ArrayList<Property>();
+        collect(type, attributes, elements);
+
+        out.println("    protected " + type.name + " read" + type.name + "(XMLStreamReader reader) throws XMLStreamException {");
+        out.println("        " + type.name + " value = new " + type.name + "();");
+        if (!attributes.isEmpty()) {
+            out.println("        for (int i = 0; i < reader.getAttributeCount(); i++) {");
+            out.println("            if (!isEmpty(reader.getAttributeNamespace(i)))");
+            out.println("                continue;");
+            out.println("            String name = reader.getAttributeLocalName(i);");
+            String keyword = "if";
+            for (Property attribute : attributes) {
+                out.println("            " + keyword + " (\"" + attribute.name + "\".equals(name)) {");
+                writeAttribute(out, attribute, "reader.getAttributeValue(i)");
+                keyword = "} else if";
+            }
+            out.println("            }");
+            out.println("        }");
+        }
+        if (type.simpleContent) {
+            out.println("        value.setValue(reader.getElementText());");
+        } else if (elements.isEmpty()) {
+            out.println("        skipContent(reader);");
+        } else {
+            out.println("        while (nextChild(reader)) {");
+            out.println("            String name = reader.getLocalName();");
+            String keyword = "if";
+            for (Property element : elements) {
+                out.println("            " + keyword + " (\"" + element.name + "\".equals(name))");
+                String read = readExpression(element.type);
+                if (element.list)
+                    out.println("                value.get" + capitalize(element.name) + "().add(" + read + ");");
+                else
+                    out.println("                value.set" + capitalize(element.name) + "(" + read + ");");
+                keyword = "else if";
+            }
+            out.println("            else");
+            out.println("                skipContent(reader);");
+            out.println("        }");
+        }
+        out.println("        return value;");
+        out.println("    }");
+        out.println();
+    }
+
+    private void writeAttribute(PrintWriter out, Property attribute, String raw) {
+        String setter = "value.set" + capitalize(attribute.name);
+        String type = attribute.type;
+        if (type.equals("xs:ID")) {
+            out.println("                String id = collapse(" + raw + ");");
+            out.println("                " + setter + "(id);");
+            out.println("                ids.put(id, value);");
+        } else if (type.equals("xs:IDREF")) {
+            out.println("                references.add(value);");
+            out.println("                referenceIds.add(collapse(" + raw + "));");
+        } else if (type.equals("xs:date")) {
+            out.println("                " + setter + "(parseDate(" + raw + "));");
+        } else if (type.equals("xs:string") || type.equals("xs:anyURI")) {
+            out.println("                " + setter + "(" + raw + ");");
+        } else if (simpleTypes.containsKey(type)) {
+            if (simpleTypes.get(type))
+                out.println("                " + setter + "(parse" + type + "(" + raw + "));");
+            else
+                out.println("                " + setter + "(" + raw + ");");
+        } else {
+            throw new IllegalStateException("Unsupported attribute type " + type);
+        }
+    }
+
+    private String readExpression(String type) {
+        if (type.equals("xs:string"))
+            return "reader.getElementText()";
+        if (complexTypes.containsKey(type))
+            return "read" + type + "(reader)";
+        throw new IllegalStateException("Unsupported element type " + type);
+    }
+
+    /**
+     * The setters of the IDREF attributes, called once the whole document has been read
+     */
+    private void writeResolver(PrintWriter out) {
+        out.println("    /**");
+        out.println("     * Set the IDREF attributes read so far to the objects with those IDs");
+        out.println("     */");
+        out.println("    public void resolveReferences() {");
+        out.println("        for (int i = 0; i < references.size(); i++) {");
+        out.println("            Object owner = references.get(i);");
+        out.println("            Object target = ids.get(referenceIds.get(i));");
+        String keyword = "if";
+        for (ComplexType type : complexTypes.values()) {
+            if (type.isAbstract)
+                continue;
+            for (Property attribute : type.attributes) {
+                if (attribute.type.equals("xs:IDREF")) {
+                    out.println("            " + keyword + " (owner instanceof " + type.name + ")");
+                    out.println("                ((" + type.name + ") owner).set" + capitalize(attribute.name) + "(target);");
+                    keyword = "else if";
+                }
+            }
+        }
+        out.println("        }");
+        out.println("        references.clear();");
+        out.println("        referenceIds.clear();");
+        out.println("    }");
+        out.println();
+    }
+
+    private void writeHelpers(PrintWriter out) {
+        for (Map.Entry<String, Boolean> simpleType : simpleTypes.entrySet()) {
+            if (!simpleType.getValue())
+                continue;
+            String name = simpleType.getKey();
+            out.println("    private static " + name + " parse" + name + "(String value) {");
+            out.println("        try {");
+            out.println("            return " + name + ".fromValue(collapse(value));");
+            out.println("        } catch (IllegalArgumentException e) {");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+        }
+        out.println("    private static void moveToStartElement(XMLStreamReader reader) throws XMLStreamException {");
+        out.println("        while (!reader.isStartElement()) {");
+        out.println("            if (!reader.hasNext())");
+        out.println("                throw new XMLStreamException(\"The document does not contain any element\");");
+        out.println("            reader.next();");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * @return the date, null if it is not a valid xs:date, as JAXB does");
+        out.println("     */");
+        out.println("    private XMLGregorianCalendar parseDate(String value) {");
+        out.println("        try {");
+        out.println("            return datatypeFactory.newXMLGregorianCalendar(collapse(value));");
+        out.println("        } catch (IllegalArgumentException e) {");
+        out.println("            return null;");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Move to the next child element of the current element");
+        out.println("     * @return true on the start of a child, false on the end of the current element");
+        out.println("     */");
+        out.println("    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {");
+        out.println("        while (true) {");
+        out.println("            int event = reader.next();");
+        out.println("            if (event == XMLStreamConstants.START_ELEMENT) {");
+        out.println("                if (isEmpty(reader.getNamespaceURI()))");
+        out.println("                    return true;");
+        out.println("                skipContent(reader);");
+        out.println("            } else if (event == XMLStreamConstants.END_ELEMENT) {");
+        out.println("                return false;");
+        out.println("            }");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Skip the current element and its content, leaving the reader on its end");
+        out.println("     */");
+        out.println("    private static void skipContent(XMLStreamReader reader) throws XMLStreamException {");
+        out.println("        int depth = 1;");
+        out.println("        while (depth > 0) {");
+        out.println("            int event = reader.next();");
+        out.println("            if (event == XMLStreamConstants.START_ELEMENT)");
+        out.println("                depth++;");
+        out.println("            else if (event == XMLStreamConstants.END_ELEMENT)");
+        out.println("                depth--;");
+        out.println("        }");
+        out.println("    }");
+        out.println();
+        out.println("    private static boolean isEmpty(String value) {");
+        out.println("        return value == null || value.length() == 0;");
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Same whitespace handling than javax.xml.bind.annotation.adapters.CollapsedStringAdapter");
+        out.println("     */");
+        out.println("    private static String collapse(String value) {");
+        out.println("        if (value == null)");
+        out.println("            return null;");
+        out.println("        int length = value.length();");
+        out.println("        int start = 0;");
+        out.println("        while (start < length && isWhiteSpace(value.charAt(start)))");
+        out.println("            start++;");
+        out.println("        int end = length;");
+        out.println("        while (end > start && isWhiteSpace(value.charAt(end - 1)))");
+        out.println("            end--;");
+        out.println("        boolean collapsed = true;");
+        out.println("        for (int i = start; i < end && collapsed; i++)");
+        out.println("            collapsed = !isWhiteSpace(value.charAt(i)) || (value.charAt(i) == ' ' && !isWhiteSpace(value.charAt(i + 1)));");
+        out.println("        if (collapsed)");
+        out.println("            return (start == 0 && end == length) ? value : value.substring(start, end);");
+        out.println("        StringBuilder result = new StringBuilder(end - start);");
+        out.println("        boolean inWhiteSpace = false;");
+        out.println("        for (int i = start; i < end; i++) {");
+        out.println("            char c = value.charAt(i);");
+        out.println("            if (isWhiteSpace(c)) {");
+        out.println("                if (!inWhiteSpace)");
+        out.println("                    result.append(' ');");
+        out.println("                inWhiteSpace = true;");
+        out.println("            } else {");
+        out.println("                result.append(c);");
+        out.println("                inWhiteSpace = false;");
+        out.println("            }");
+        out.println("        }");
+        out.println("        return result.toString();");
+        out.println("    }");
+        out.println();
+        out.println("    private static boolean isWhiteSpace(char c) {");
+        out.println("        return c == ' ' || c == '\\t' || c == '\\n' || c == '\\r';");
+        out.println("    }");
+    }
+
+    /**
+     * Collect the attributes and elements of a type, the ones of the base type first
+     */
+    private void collect(ComplexType type, List<Property> attributes, List<Property> elements) {
+        if (type.base != null) {
+            ComplexType base = complexTypes.get(type.base);
+            if (base == null)
+                throw new IllegalStateException("Unknown base type " + type.base + " of " + type.name);
+            collect(base, attributes, elements);
+        }
+        attributes.addAll(type.attributes);
+        elements.addAll(type.elements);
+    }
+
+    private static List<Element> children(Element node) {
+        List<Element> elements = new ArrayList<Element>();
+        NodeList nodes = node.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node child = nodes.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE && XS_NS.equals(child.getNamespaceURI())
+                    && !"annotation".equals(child.getLocalName()))
+                elements.add((Element) child);
+        }
+        return elements;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static class ComplexType {
+        String name;
+        String base;
+        boolean isAbstract;
+        boolean simpleContent;
+        List<Property> attributes = new ArrayList<Property>();
+        List<Property> elements = new ArrayList<Property>();
+    }
+
+    private static class Property {
+        String name;
+        String type;
+        boolean list;
+    }
+}
@@ -0,0 +1,129 @@
+package uk.ac.ebi.ddi.px.xml.px.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader that turns a bulk PX dump into one well formed XML document: the content is wrapped
+ * in a synthetic root element and the XML declarations are removed, so files made by the
+ * concatenation of several PX documents (each one with its own declaration) can be streamed
+ * with a single XMLStreamReader. Wrapped dumps (one root with many ProteomeXchangeDataset
+ * children) are just nested one level more.
+ */
+class BulkXmlReader extends Reader {
+
+    static final String ROOT_TAG = "PxBulkDump";
+
+    private static final char[] PREFIX = ("<" + ROOT_TAG + ">").toCharArray();
+
+    private static final char[] SUFFIX = ("</" + ROOT_TAG + ">").toCharArray();
+
+    private static final char[] DECLARATION = "<?xml".toCharArray();
+
+    private final Reader in;
+
+    private final char[] buffer = new char[64 * 1024];
+
+    private int position = 0;
+
+    private int limit = 0;
+
+    private boolean eof = false;
+
+    private int prefixSent = 0;
+
+    private int suffixSent = 0;
+
+    private boolean inDeclaration = false;
+
+    private boolean first = true;
+
+    BulkXmlReader(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        int count = 0;
+        while (count < len && prefixSent < PREFIX.length)
+            cbuf[off + count++] = PREFIX[prefixSent++];
+
+        while (count < len) {
+            if (!fill(DECLARATION.length + 1))
+                break;
+            char c = buffer[position];
+            if (first) {
+                first = false;
+                if (c == '\uFEFF') {
+                    position++;
+                    continue;
+                }
+            }
+            if (inDeclaration) {
+                if (c == '?' && position + 1 < limit && buffer[position + 1] == '>') {
+                    position += 2;
+                    inDeclaration = false;
+                } else {
+                    position++;
+                }
+                continue;
+            }
+            if (c == '<' && isDeclaration()) {
+                position += DECLARATION.length;
+                inDeclaration = true;
+                continue;
+            }
+            cbuf[off + count++] = c;
+            position++;
+        }
+
+        if (count < len && eof && position >= limit) {
+            while (count < len && suffixSent < SUFFIX.length)
+                cbuf[off + count++] = SUFFIX[suffixSent++];
+        }
+        return (count == 0 && eof && position >= limit && suffixSent == SUFFIX.length) ? -1 : count;
+    }
+
+    /**
+     * An XML declaration starts with "<?xml" followed by whitespace, other processing
+     * instructions (e.g. "<?xml-stylesheet") are kept
+     */
+    private boolean isDeclaration() {
+        if (limit - position <= DECLARATION.length)
+            return false;
+        for (int i = 0; i < DECLARATION.length; i++)
+            if (buffer[position + i] != DECLARATION[i])
+                return false;
+        char after = buffer[position + DECLARATION.length];
+        return after == ' ' || after == '\t' || after == '\n' || after == '\r';
+    }
+
+    /**
+     * Make sure the buffer holds at least lookahead chars, unless the input is over
+     * @return false if there is nothing left to read
+     */
+    private boolean fill(int lookahead) throws IOException {
+        if (limit - position >= lookahead || eof)
+            return position < limit;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit - position < lookahead && !eof) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0)
+                eof = true;
+            else
+                limit += read;
+        }
+        return position < limit;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -6,7 +6,9 @@ import uk.ac.ebi.ddi.px.xml.px.model.ModelConstants;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
 
 /**
  * @author Yasset Perez-Riverol
@@ -17,7 +19,7 @@ public class PXUnmarshallerFactory {
 
     private static PXUnmarshallerFactory instance = new PXUnmarshallerFactory();
 
-    private static JAXBContext jc = null;
+    private static volatile JAXBContext jc = null;
 
     private PXUnmarshallerFactory() {
     }
@@ -29,13 +31,8 @@ public class PXUnmarshallerFactory {
     public Unmarshaller initializeUnmarshaller() {
 
         try {
-            // Lazy caching of the JAXB Context.
-            if (jc == null) {
-                jc = JAXBContext.newInstance(ModelConstants.MODEL_PKG);
-            }
-
             //create unmarshaller
-            Unmarshaller pum = jc.createUnmarshaller();
+            Unmarshaller pum = getContext().createUnmarshaller();
             logger.debug("Unmarshaller Initialized");
 
             return pum;
@@ -45,4 +42,92 @@ public class PXUnmarshallerFactory {
             throw new IllegalStateException("Could not initialize unmarshaller", e);
         }
     }
+
+    /**
+     * Create a JAXB marshaller of the PX model, sharing the JAXB context of the unmarshallers.
+     * Marshallers are not thread safe, every thread needs its own.
+     * @return Marshaller
+     */
+    public Marshaller initializeMarshaller() {
+
+        try {
+            Marshaller pm = getContext().createMarshaller();
+            logger.debug("Marshaller Initialized");
+
+            return pm;
+
+        } catch (JAXBException e) {
+            logger.error("UnmarshallerFactory.initializeMarshaller", e);
+            throw new IllegalStateException("Could not initialize marshaller", e);
+        }
+    }
+
+    /**
+     * Create a generated StAX unmarshaller. The unmarshaller keeps the state of the document
+     * being read, so every thread needs its own.
+     * @return PxStaxUnmarshaller
+     */
+    public PxStaxUnmarshaller initializeStaxUnmarshaller() {
+        PxStaxUnmarshaller pum = new PxStaxUnmarshaller();
+        logger.debug("StAX Unmarshaller Initialized");
+        return pum;
+    }
+
+    /**
+     * Return the shared XMLInputFactory used to create the readers of the StAX unmarshaller.
+     * External entities and DTDs are not supported in PX files.
+     * @return XMLInputFactory
+     */
+    public XMLInputFactory getXMLInputFactory() {
+        return XMLInputFactoryHolder.FACTORY;
+    }
+
+    /**
+     * Return the shared parallel unmarshaller, it reads the file lists on the common ForkJoinPool.
+     * @return PxParallelUnmarshaller
+     */
+    public PxParallelUnmarshaller getParallelUnmarshaller() {
+        return ParallelUnmarshallerHolder.UNMARSHALLER;
+    }
+
+    /**
+     * Lazy caching of the JAXB Context, the readers of the parse threads may ask for it at the same time.
+     */
+    private static JAXBContext getContext() throws JAXBException {
+        JAXBContext context = jc;
+        if (context == null) {
+            synchronized (PXUnmarshallerFactory.class) {
+                context = jc;
+                if (context == null) {
+                    context = JAXBContext.newInstance(ModelConstants.MODEL_PKG);
+                    jc = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Lazy caching of the XMLInputFactory, created when the holder class is first used.
+     */
+    private static class XMLInputFactoryHolder {
+
+        private static final XMLInputFactory FACTORY = createXMLInputFactory();
+
+        private static XMLInputFactory createXMLInputFactory() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            return factory;
+        }
+    }
+
+    /**
+     * Lazy caching of the parallel unmarshaller, created when the holder class is first used.
+     */
+    private static class ParallelUnmarshallerHolder {
+
+        private static final PxParallelUnmarshaller UNMARSHALLER = new PxParallelUnmarshaller();
+    }
 }
@@ -0,0 +1,111 @@
+package uk.ac.ebi.ddi.px.xml.px.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ddi.px.xml.px.model.ProteomeXchangeDatasetType;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.UnmarshalException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Streaming reader of bulk PX dumps. The dump can be a wrapper element holding many
+ * ProteomeXchangeDataset elements or the plain concatenation of PX files; every dataset is
+ * unmarshalled on its own when {@link #next()} is called, so only one dataset is in memory
+ * at any time.
+ */
+public class PxBulkReader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PxBulkReader.class);
+
+    private static final String DATASET_TAG = "ProteomeXchangeDataset";
+
+    private final BulkXmlReader source;
+
+    private final XMLStreamReader reader;
+
+    private PxStaxUnmarshaller staxUnmarshaller = null;
+
+    private Unmarshaller unmarshaller = null;
+
+    /**
+     * Read an UTF-8 bulk dump with the generated StAX unmarshaller
+     * @param xml bulk PX XML file
+     * @throws JAXBException if the reader can not be created
+     */
+    public PxBulkReader(InputStream xml) throws JAXBException {
+        this(xml, Charset.forName("UTF-8"), PxUnmarshallerType.STAX);
+    }
+
+    /**
+     * Read a bulk dump. The XML declarations of the concatenated files are dropped, so the
+     * encoding of the dump must be given.
+     * @param xml bulk PX XML file
+     * @param encoding encoding of the dump
+     * @param unmarshallerType JAXB or the generated StAX unmarshaller, every fragment is small
+     *                         so STAX_PARALLEL reads them as STAX
+     * @throws JAXBException if the reader can not be created
+     */
+    public PxBulkReader(InputStream xml, Charset encoding, PxUnmarshallerType unmarshallerType) throws JAXBException {
+        if (xml == null) {
+            throw new IllegalArgumentException("Xml file to be indexed must not be null");
+        }
+        if (unmarshallerType == PxUnmarshallerType.JAXB)
+            unmarshaller = PXUnmarshallerFactory.getInstance().initializeUnmarshaller();
+        else
+            staxUnmarshaller = PXUnmarshallerFactory.getInstance().initializeStaxUnmarshaller();
+        source = new BulkXmlReader(new InputStreamReader(xml, encoding));
+        try {
+            reader = PXUnmarshallerFactory.getInstance().getXMLInputFactory().createXMLStreamReader(source);
+        } catch (XMLStreamException e) {
+            throw new UnmarshalException(e);
+        }
+    }
+
+    /**
+     * Read the next dataset of the dump
+     * @return the reader of the dataset or null at the end of the dump
+     * @throws JAXBException if the dump is not well formed or a dataset can not be read
+     */
+    public PxReader next() throws JAXBException {
+        try {
+            while (true) {
+                if (reader.getEventType() == XMLStreamConstants.START_ELEMENT && DATASET_TAG.equals(reader.getLocalName()))
+                    return new PxReader(read());
+                if (!reader.hasNext())
+                    return null;
+                reader.next();
+            }
+        } catch (XMLStreamException e) {
+            throw new UnmarshalException(e);
+        }
+    }
+
+    /**
+     * The StAX unmarshaller stops on the end tag of the dataset, JAXB moves past it.
+     */
+    private JAXBElement<ProteomeXchangeDatasetType> read() throws XMLStreamException, JAXBException {
+        if (staxUnmarshaller != null)
+            return staxUnmarshaller.unmarshal(reader);
+        return unmarshaller.unmarshal(reader, ProteomeXchangeDatasetType.class);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            logger.debug("Error closing the XML reader", e);
+        }
+        source.close();
+    }
+}
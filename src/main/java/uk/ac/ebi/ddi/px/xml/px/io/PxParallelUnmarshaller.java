@@ -0,0 +1,349 @@
+package uk.ac.ebi.ddi.px.xml.px.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.ddi.px.xml.px.model.DatasetFileListType;
+import uk.ac.ebi.ddi.px.xml.px.model.ObjectFactory;
+import uk.ac.ebi.ddi.px.xml.px.model.ProteomeXchangeDatasetType;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Unmarshaller for PX XML files with huge DatasetFileList sections. The byte range of the
+ * DatasetFileList is split at DatasetFile element boundaries and the chunks are read in
+ * parallel on a ForkJoinPool with the generated {@link PxStaxUnmarshaller}, while the rest
+ * of the document is read normally. The order of the files is preserved.
+ *
+ * Documents with a small file list, or with content the splitter can not handle safely
+ * (comments, CDATA sections or non ASCII compatible encodings), are read sequentially.
+ */
+public class PxParallelUnmarshaller {
+
+    private static final Logger logger = LoggerFactory.getLogger(PxParallelUnmarshaller.class);
+
+    /**
+     * File lists smaller than this are not worth splitting
+     */
+    public static final int DEFAULT_MIN_SPLIT_BYTES = 1 << 20;
+
+    /**
+     * Target size of every chunk of the file list
+     */
+    public static final int DEFAULT_CHUNK_BYTES = 256 * 1024;
+
+    private static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
+
+    private static final String FILE_LIST_TAG = "DatasetFileList";
+
+    private static final String FILE_TAG = "DatasetFile";
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final byte[] FILE_LIST_OPEN  = ("<" + FILE_LIST_TAG + ">").getBytes(ASCII);
+
+    private static final byte[] FILE_LIST_CLOSE = ("</" + FILE_LIST_TAG + ">").getBytes(ASCII);
+
+    private final ForkJoinPool pool;
+
+    private final int minSplitBytes;
+
+    private final int chunkBytes;
+
+    /**
+     * Parallel unmarshaller on the common ForkJoinPool with the default chunk sizes
+     */
+    public PxParallelUnmarshaller() {
+        this(ForkJoinPool.commonPool(), DEFAULT_MIN_SPLIT_BYTES, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param pool pool where the chunks of the file list are read
+     * @param minSplitBytes minimum size of the file list to read it in parallel
+     * @param chunkBytes target size of every chunk
+     */
+    public PxParallelUnmarshaller(ForkJoinPool pool, int minSplitBytes, int chunkBytes) {
+        if (pool == null)
+            throw new IllegalArgumentException("The ForkJoinPool must not be null");
+        if (chunkBytes <= 0)
+            throw new IllegalArgumentException("The chunk size must be positive");
+        this.pool = pool;
+        this.minSplitBytes = minSplitBytes;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Read a PX XML document
+     * @param xml the whole document
+     * @return the dataset
+     * @throws XMLStreamException if the document can not be read
+     */
+    public JAXBElement<ProteomeXchangeDatasetType> unmarshal(byte[] xml) throws XMLStreamException {
+        if (pool.getParallelism() < 2)
+            return unmarshalSequential(xml);
+
+        FileListRange range = findFileList(xml);
+        if (range == null || range.contentEnd - range.contentStart < minSplitBytes)
+            return unmarshalSequential(xml);
+
+        List<int[]> chunks = split(xml, range);
+        if (chunks == null || chunks.size() < 2)
+            return unmarshalSequential(xml);
+
+        try {
+            return unmarshalParallel(xml, range, chunks);
+        } catch (XMLStreamException e) {
+            logger.debug("The DatasetFileList could not be read in parallel, reading the document sequentially", e);
+            return unmarshalSequential(xml);
+        }
+    }
+
+    private JAXBElement<ProteomeXchangeDatasetType> unmarshalParallel(byte[] xml, FileListRange range, List<int[]> chunks) throws XMLStreamException {
+        // The document without the content of the file list, it keeps an empty DatasetFileList
+        PxStaxUnmarshaller main = PXUnmarshallerFactory.getInstance().initializeStaxUnmarshaller();
+        InputStream rest = new SequenceInputStream(
+                new ByteArrayInputStream(xml, 0, range.contentStart),
+                new ByteArrayInputStream(xml, range.contentEnd, xml.length - range.contentEnd));
+        ProteomeXchangeDatasetType dataset = read(main, rest, range.encoding, ProteomeXchangeDatasetType.class);
+
+        List<ChunkTask> tasks = new ArrayList<ChunkTask>(chunks.size());
+        for (int[] chunk : chunks)
+            tasks.add(new ChunkTask(main, xml, chunk[0], chunk[1], range.encoding));
+        for (ChunkTask task : tasks)
+            pool.execute(task);
+
+        DatasetFileListType fileList = dataset.getDatasetFileList();
+        for (ChunkTask task : tasks) {
+            DatasetFileListType chunkList = join(task);
+            fileList.getDatasetFile().addAll(chunkList.getDatasetFile());
+            main.registerIds(task.unmarshaller);
+        }
+        // References from the rest of the document to the files, e.g. SourceFileRef
+        main.resolveReferences();
+        return OBJECT_FACTORY.createProteomeXchangeDataset(dataset);
+    }
+
+    private static DatasetFileListType join(ChunkTask task) throws XMLStreamException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XMLStreamException("Interrupted while reading the DatasetFileList", e);
+        } catch (ExecutionException e) {
+            Throwable cause = (e.getCause() instanceof ChunkException) ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof XMLStreamException)
+                throw (XMLStreamException) cause;
+            throw new XMLStreamException("Error reading the DatasetFileList", cause);
+        }
+    }
+
+    private static JAXBElement<ProteomeXchangeDatasetType> unmarshalSequential(byte[] xml) throws XMLStreamException {
+        XMLStreamReader reader = PXUnmarshallerFactory.getInstance().getXMLInputFactory().createXMLStreamReader(new ByteArrayInputStream(xml));
+        try {
+            return PXUnmarshallerFactory.getInstance().initializeStaxUnmarshaller().unmarshal(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static <T> T read(PxStaxUnmarshaller unmarshaller, InputStream in, String encoding, Class<T> type) throws XMLStreamException {
+        XMLStreamReader reader = PXUnmarshallerFactory.getInstance().getXMLInputFactory().createXMLStreamReader(in, encoding);
+        try {
+            return unmarshaller.unmarshal(reader, type);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Locate the content of the DatasetFileList element
+     * @return the range or null if the document can not be split
+     */
+    static FileListRange findFileList(byte[] xml) {
+        String encoding = readEncoding(xml);
+        if (encoding == null)
+            return null;
+        int open = indexOfTag(xml, 0, xml.length, FILE_LIST_TAG);
+        if (open < 0)
+            return null;
+        int openEnd = indexOf(xml, (byte) '>', open);
+        if (openEnd < 0 || xml[openEnd - 1] == '/')
+            return null;
+        int close = lastIndexOf(xml, FILE_LIST_CLOSE, xml.length);
+        if (close < openEnd)
+            return null;
+        FileListRange range = new FileListRange();
+        range.contentStart = openEnd + 1;
+        range.contentEnd = close;
+        range.encoding = encoding;
+        return range;
+    }
+
+    /**
+     * Split the content of the file list at DatasetFile start tags
+     * @return the [start, end) offsets of every chunk, or null if the content can not be split safely
+     */
+    List<int[]> split(byte[] xml, FileListRange range) {
+        // Comments, CDATA sections and processing instructions may hide tags
+        for (int i = range.contentStart; i < range.contentEnd - 1; i++)
+            if (xml[i] == '<' && (xml[i + 1] == '!' || xml[i + 1] == '?'))
+                return null;
+
+        List<int[]> chunks = new ArrayList<int[]>();
+        int start = indexOfTag(xml, range.contentStart, range.contentEnd, FILE_TAG);
+        if (start < 0)
+            return null;
+        while (start < range.contentEnd) {
+            int next = (range.contentEnd - start > chunkBytes) ? indexOfTag(xml, start + chunkBytes, range.contentEnd, FILE_TAG) : -1;
+            int end = (next < 0) ? range.contentEnd : next;
+            chunks.add(new int[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Encoding declared in the XML declaration, null if the splitter does not support it
+     */
+    private static String readEncoding(byte[] xml) {
+        if (xml.length < 2 || (xml[0] & 0xFF) == 0xFE || (xml[0] & 0xFF) == 0xFF || xml[0] == 0 || xml[1] == 0)
+            return null;
+        int start = (xml.length >= 3 && (xml[0] & 0xFF) == 0xEF && (xml[1] & 0xFF) == 0xBB && (xml[2] & 0xFF) == 0xBF) ? 3 : 0;
+        if (!startsWith(xml, start, "<?xml"))
+            return "UTF-8";
+        int end = indexOf(xml, (byte) '>', start);
+        if (end < 0)
+            return null;
+        String declaration = new String(xml, start, end - start, ASCII);
+        int index = declaration.indexOf("encoding");
+        if (index < 0)
+            return "UTF-8";
+        int quote = index + "encoding".length();
+        while (quote < declaration.length() && declaration.charAt(quote) != '"' && declaration.charAt(quote) != '\'')
+            quote++;
+        if (quote >= declaration.length())
+            return null;
+        int closing = declaration.indexOf(declaration.charAt(quote), quote + 1);
+        if (closing < 0)
+            return null;
+        String encoding = declaration.substring(quote + 1, closing).trim();
+        if (encoding.equalsIgnoreCase("UTF-8") || encoding.equalsIgnoreCase("US-ASCII") || encoding.equalsIgnoreCase("ISO-8859-1"))
+            return encoding;
+        return null;
+    }
+
+    /**
+     * Index of the next start tag with the given name, not matching longer names
+     */
+    private static int indexOfTag(byte[] xml, int from, int to, String name) {
+        for (int i = from; i < to - name.length() - 1; i++) {
+            if (xml[i] == '<' && startsWith(xml, i + 1, name)) {
+                byte after = xml[i + 1 + name.length()];
+                if (after == ' ' || after == '>' || after == '/' || after == '\t' || after == '\n' || after == '\r')
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] xml, int from, String value) {
+        if (from + value.length() > xml.length)
+            return false;
+        for (int i = 0; i < value.length(); i++)
+            if (xml[from + i] != value.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static int indexOf(byte[] xml, byte value, int from) {
+        for (int i = from; i < xml.length; i++)
+            if (xml[i] == value)
+                return i;
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] xml, byte[] value, int to) {
+        for (int i = to - value.length; i >= 0; i--) {
+            int j = 0;
+            while (j < value.length && xml[i + j] == value[j])
+                j++;
+            if (j == value.length)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Byte range of the content of the DatasetFileList
+     */
+    static class FileListRange {
+        int contentStart;
+        int contentEnd;
+        String encoding;
+    }
+
+    /**
+     * Read one chunk of DatasetFile elements wrapped in a DatasetFileList
+     */
+    private static class ChunkTask extends RecursiveTask<DatasetFileListType> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PxStaxUnmarshaller unmarshaller;
+
+        private final byte[] xml;
+
+        private final int start;
+
+        private final int end;
+
+        private final String encoding;
+
+        ChunkTask(PxStaxUnmarshaller main, byte[] xml, int start, int end, String encoding) {
+            this.unmarshaller = PXUnmarshallerFactory.getInstance().initializeStaxUnmarshaller();
+            // the cvRef of the files point to the CvList of the rest of the document
+            this.unmarshaller.registerIds(main);
+            this.xml = xml;
+            this.start = start;
+            this.end = end;
+            this.encoding = encoding;
+        }
+
+        @Override
+        protected DatasetFileListType compute() {
+            InputStream in = new SequenceInputStream(new SequenceInputStream(
+                    new ByteArrayInputStream(FILE_LIST_OPEN),
+                    new ByteArrayInputStream(xml, start, end - start)),
+                    new ByteArrayInputStream(FILE_LIST_CLOSE));
+            try {
+                DatasetFileListType files = read(unmarshaller, in, encoding, DatasetFileListType.class);
+                unmarshaller.resolveReferences();
+                return files;
+            } catch (XMLStreamException e) {
+                throw new ChunkException(e);
+            }
+        }
+    }
+
+    /**
+     * Unchecked wrapper, the ForkJoinTask rethrows it wrapped in an ExecutionException
+     */
+    private static class ChunkException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ChunkException(XMLStreamException cause) {
+            super(cause);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package uk.ac.ebi.ddi.px.xml.px.io;
 
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.ddi.px.xml.px.model.*;
@@ -7,8 +8,12 @@ import uk.ac.ebi.ddi.px.xml.px.model.*;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.UnmarshalException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
@@ -38,14 +43,80 @@ public class PxReader {
      * @throws javax.xml.bind.JAXBException
      */
     public PxReader(InputStream xml) throws JAXBException {
+        this(xml, PxUnmarshallerType.JAXB);
+    }
+
+    /**
+     * Read the PX XML file with the given unmarshaller
+     * @param xml PX XML file
+     * @param unmarshallerType JAXB or the generated StAX unmarshaller
+     * @throws javax.xml.bind.JAXBException
+     */
+    public PxReader(InputStream xml, PxUnmarshallerType unmarshallerType) throws JAXBException {
         if (xml == null) {
             throw new IllegalArgumentException("Xml file to be indexed must not be null");
         }
-        // create unmarshaller
-        this.unmarshaller = PXUnmarshallerFactory.getInstance().initializeUnmarshaller();
+        if (unmarshallerType == PxUnmarshallerType.STAX) {
+            dataset = unmarshalStax(xml);
+        } else if (unmarshallerType == PxUnmarshallerType.STAX_PARALLEL) {
+            dataset = unmarshalParallel(xml);
+        } else {
+            // create unmarshaller
+            this.unmarshaller = PXUnmarshallerFactory.getInstance().initializeUnmarshaller();
+
+            dataset = (JAXBElement<ProteomeXchangeDatasetType>) unmarshaller.unmarshal(xml);
+        }
+    }
+
+    /**
+     * Wrap a dataset that has been already unmarshalled, e.g. a fragment of a bulk dump
+     * @param dataset the PX dataset
+     */
+    public PxReader(JAXBElement<ProteomeXchangeDatasetType> dataset) {
+        if (dataset == null) {
+            throw new IllegalArgumentException("Dataset to be indexed must not be null");
+        }
+        this.dataset = dataset;
+    }
 
-        dataset = (JAXBElement<ProteomeXchangeDatasetType>) unmarshaller.unmarshal(xml);
+    /**
+     * Read the dataset with the parallel StAX unmarshaller, it needs the whole document in memory
+     * @param xml PX XML file
+     * @return the dataset
+     * @throws JAXBException if the file can not be read
+     */
+    private static JAXBElement<ProteomeXchangeDatasetType> unmarshalParallel(InputStream xml) throws JAXBException {
+        try {
+            return PXUnmarshallerFactory.getInstance().getParallelUnmarshaller().unmarshal(IOUtils.toByteArray(xml));
+        } catch (XMLStreamException e) {
+            throw new UnmarshalException(e);
+        } catch (IOException e) {
+            throw new UnmarshalException(e);
+        }
+    }
 
+    /**
+     * Read the dataset with the generated StAX unmarshaller
+     * @param xml PX XML file
+     * @return the dataset
+     * @throws JAXBException if the file can not be read
+     */
+    private static JAXBElement<ProteomeXchangeDatasetType> unmarshalStax(InputStream xml) throws JAXBException {
+        XMLStreamReader reader = null;
+        try {
+            reader = PXUnmarshallerFactory.getInstance().getXMLInputFactory().createXMLStreamReader(xml);
+            return PXUnmarshallerFactory.getInstance().initializeStaxUnmarshaller().unmarshal(reader);
+        } catch (XMLStreamException e) {
+            throw new UnmarshalException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    logger.debug("Error closing the XML reader", e);
+                }
+            }
+        }
     }
 
     /**
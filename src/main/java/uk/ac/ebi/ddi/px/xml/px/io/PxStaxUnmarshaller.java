@@ -0,0 +1,854 @@
+package uk.ac.ebi.ddi.px.xml.px.io;
+
+import uk.ac.ebi.ddi.px.xml.px.model.*;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * XMLStreamReader based unmarshaller of the uk.ac.ebi.ddi.px.xml.px.model package.
+ *
+ * THIS FILE IS GENERATED by uk.ac.ebi.ddi.px.xml.px.generator.StaxUnmarshallerGenerator
+ * from proteomeXchange-1.2.0.xsd, do not modify it by hand.
+ *
+ * An instance keeps the ID table of the document being read, so it must not be shared
+ * between threads.
+ */
+public class PxStaxUnmarshaller {
+
+    private static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
+
+    private final DatatypeFactory datatypeFactory;
+
+    private final Map<String, Object> ids = new HashMap<String, Object>();
+
+    private final List<Object> references = new ArrayList<Object>();
+
+    private final List<String> referenceIds = new ArrayList<String>();
+
+    public PxStaxUnmarshaller() {
+        try {
+            datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException("Could not initialize the datatype factory", e);
+        }
+    }
+
+    /**
+     * Read the ProteomeXchangeDataset element the reader is positioned on, or the first
+     * one after the current position.
+     * @param reader stream reader
+     * @return the root element
+     * @throws XMLStreamException if the document is not well formed or has no ProteomeXchangeDataset
+     */
+    public JAXBElement<ProteomeXchangeDatasetType> unmarshal(XMLStreamReader reader) throws XMLStreamException {
+        moveToStartElement(reader);
+        if (!"ProteomeXchangeDataset".equals(reader.getLocalName()))
+            throw new XMLStreamException("Unexpected element " + reader.getLocalName(), reader.getLocation());
+        ids.clear();
+        references.clear();
+        referenceIds.clear();
+        ProteomeXchangeDatasetType value = readProteomeXchangeDatasetType(reader);
+        resolveReferences();
+        return OBJECT_FACTORY.createProteomeXchangeDataset(value);
+    }
+
+    /**
+     * Read the element the reader is positioned on, or the first one after the current
+     * position, as an object of the given type. The IDREF attributes are not resolved until
+     * {@link #resolveReferences()} is called, so the fragments of a document can be read by
+     * different unmarshallers and their IDs merged with {@link #registerIds}.
+     * @param reader stream reader
+     * @param type model class of the element
+     * @return the element
+     * @throws XMLStreamException if the fragment is not well formed
+     */
+    public <T> T unmarshal(XMLStreamReader reader, Class<T> type) throws XMLStreamException {
+        moveToStartElement(reader);
+        if (type == ProteomeXchangeDatasetType.class)
+            return type.cast(readProteomeXchangeDatasetType(reader));
+        else if (type == AdditionalInformationType.class)
+            return type.cast(readAdditionalInformationType(reader));
+        else if (type == ChangeLogType.class)
+            return type.cast(readChangeLogType(reader));
+        else if (type == ChangeLogEntryType.class)
+            return type.cast(readChangeLogEntryType(reader));
+        else if (type == ContactListType.class)
+            return type.cast(readContactListType(reader));
+        else if (type == ContactType.class)
+            return type.cast(readContactType(reader));
+        else if (type == DatasetFileListType.class)
+            return type.cast(readDatasetFileListType(reader));
+        else if (type == DatasetFileType.class)
+            return type.cast(readDatasetFileType(reader));
+        else if (type == DatasetIdentifierListType.class)
+            return type.cast(readDatasetIdentifierListType(reader));
+        else if (type == DatasetIdentifierType.class)
+            return type.cast(readDatasetIdentifierType(reader));
+        else if (type == DatasetOriginListType.class)
+            return type.cast(readDatasetOriginListType(reader));
+        else if (type == DatasetOriginType.class)
+            return type.cast(readDatasetOriginType(reader));
+        else if (type == DatasetSummaryType.class)
+            return type.cast(readDatasetSummaryType(reader));
+        else if (type == ReviewLevelType.class)
+            return type.cast(readReviewLevelType(reader));
+        else if (type == RepositorySupportType.class)
+            return type.cast(readRepositorySupportType(reader));
+        else if (type == FullDatasetLinkListType.class)
+            return type.cast(readFullDatasetLinkListType(reader));
+        else if (type == FullDatasetLinkType.class)
+            return type.cast(readFullDatasetLinkType(reader));
+        else if (type == InstrumentListType.class)
+            return type.cast(readInstrumentListType(reader));
+        else if (type == InstrumentType.class)
+            return type.cast(readInstrumentType(reader));
+        else if (type == KeywordListType.class)
+            return type.cast(readKeywordListType(reader));
+        else if (type == ModificationListType.class)
+            return type.cast(readModificationListType(reader));
+        else if (type == PublicationListType.class)
+            return type.cast(readPublicationListType(reader));
+        else if (type == PublicationType.class)
+            return type.cast(readPublicationType(reader));
+        else if (type == RepositoryRecordListType.class)
+            return type.cast(readRepositoryRecordListType(reader));
+        else if (type == RepositoryRecordType.class)
+            return type.cast(readRepositoryRecordType(reader));
+        else if (type == SampleListType.class)
+            return type.cast(readSampleListType(reader));
+        else if (type == SampleType.class)
+            return type.cast(readSampleType(reader));
+        else if (type == SpeciesListType.class)
+            return type.cast(readSpeciesListType(reader));
+        else if (type == SpeciesType.class)
+            return type.cast(readSpeciesType(reader));
+        else if (type == CvListType.class)
+            return type.cast(readCvListType(reader));
+        else if (type == CvType.class)
+            return type.cast(readCvType(reader));
+        else if (type == UserParamType.class)
+            return type.cast(readUserParamType(reader));
+        else if (type == CvParamType.class)
+            return type.cast(readCvParamType(reader));
+        else if (type == RefType.class)
+            return type.cast(readRefType(reader));
+        throw new IllegalArgumentException("Unsupported type " + type.getName());
+    }
+
+    /**
+     * Add the IDs read by other unmarshaller, so the references of this one can point to them
+     * @param other unmarshaller that read other fragment of the same document
+     */
+    public void registerIds(PxStaxUnmarshaller other) {
+        ids.putAll(other.ids);
+    }
+
+    protected ProteomeXchangeDatasetType readProteomeXchangeDatasetType(XMLStreamReader reader) throws XMLStreamException {
+        ProteomeXchangeDatasetType value = new ProteomeXchangeDatasetType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("id".equals(name)) {
+                value.setId(reader.getAttributeValue(i));
+            } else if ("formatVersion".equals(name)) {
+                value.setFormatVersion(reader.getAttributeValue(i));
+            }
+        }
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("CvList".equals(name))
+                value.setCvList(readCvListType(reader));
+            else if ("ChangeLog".equals(name))
+                value.setChangeLog(readChangeLogType(reader));
+            else if ("DatasetSummary".equals(name))
+                value.setDatasetSummary(readDatasetSummaryType(reader));
+            else if ("DatasetIdentifierList".equals(name))
+                value.setDatasetIdentifierList(readDatasetIdentifierListType(reader));
+            else if ("DatasetOriginList".equals(name))
+                value.setDatasetOriginList(readDatasetOriginListType(reader));
+            else if ("SpeciesList".equals(name))
+                value.setSpeciesList(readSpeciesListType(reader));
+            else if ("InstrumentList".equals(name))
+                value.setInstrumentList(readInstrumentListType(reader));
+            else if ("ModificationList".equals(name))
+                value.setModificationList(readModificationListType(reader));
+            else if ("ContactList".equals(name))
+                value.setContactList(readContactListType(reader));
+            else if ("PublicationList".equals(name))
+                value.setPublicationList(readPublicationListType(reader));
+            else if ("KeywordList".equals(name))
+                value.setKeywordList(readKeywordListType(reader));
+            else if ("FullDatasetLinkList".equals(name))
+                value.setFullDatasetLinkList(readFullDatasetLinkListType(reader));
+            else if ("DatasetFileList".equals(name))
+                value.setDatasetFileList(readDatasetFileListType(reader));
+            else if ("RepositoryRecordList".equals(name))
+                value.setRepositoryRecordList(readRepositoryRecordListType(reader));
+            else if ("AdditionalInformation".equals(name))
+                value.setAdditionalInformation(readAdditionalInformationType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected AdditionalInformationType readAdditionalInformationType(XMLStreamReader reader) throws XMLStreamException {
+        AdditionalInformationType value = new AdditionalInformationType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else if ("userParam".equals(name))
+                value.getUserParam().add(readUserParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected ChangeLogType readChangeLogType(XMLStreamReader reader) throws XMLStreamException {
+        ChangeLogType value = new ChangeLogType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("ChangeLogEntry".equals(name))
+                value.getChangeLogEntry().add(readChangeLogEntryType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected ChangeLogEntryType readChangeLogEntryType(XMLStreamReader reader) throws XMLStreamException {
+        ChangeLogEntryType value = new ChangeLogEntryType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("version".equals(name)) {
+                value.setVersion(reader.getAttributeValue(i));
+            } else if ("date".equals(name)) {
+                value.setDate(parseDate(reader.getAttributeValue(i)));
+            }
+        }
+        value.setValue(reader.getElementText());
+        return value;
+    }
+
+    protected ContactListType readContactListType(XMLStreamReader reader) throws XMLStreamException {
+        ContactListType value = new ContactListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Contact".equals(name))
+                value.getContact().add(readContactType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected ContactType readContactType(XMLStreamReader reader) throws XMLStreamException {
+        ContactType value = new ContactType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("id".equals(name)) {
+                String id = collapse(reader.getAttributeValue(i));
+                value.setId(id);
+                ids.put(id, value);
+            }
+        }
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected DatasetFileListType readDatasetFileListType(XMLStreamReader reader) throws XMLStreamException {
+        DatasetFileListType value = new DatasetFileListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("DatasetFile".equals(name))
+                value.getDatasetFile().add(readDatasetFileType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected DatasetFileType readDatasetFileType(XMLStreamReader reader) throws XMLStreamException {
+        DatasetFileType value = new DatasetFileType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("id".equals(name)) {
+                String id = collapse(reader.getAttributeValue(i));
+                value.setId(id);
+                ids.put(id, value);
+            } else if ("name".equals(name)) {
+                value.setName(reader.getAttributeValue(i));
+            }
+        }
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected DatasetIdentifierListType readDatasetIdentifierListType(XMLStreamReader reader) throws XMLStreamException {
+        DatasetIdentifierListType value = new DatasetIdentifierListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("DatasetIdentifier".equals(name))
+                value.getDatasetIdentifier().add(readDatasetIdentifierType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected DatasetIdentifierType readDatasetIdentifierType(XMLStreamReader reader) throws XMLStreamException {
+        DatasetIdentifierType value = new DatasetIdentifierType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected DatasetOriginListType readDatasetOriginListType(XMLStreamReader reader) throws XMLStreamException {
+        DatasetOriginListType value = new DatasetOriginListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("DatasetOrigin".equals(name))
+                value.setDatasetOrigin(readDatasetOriginType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected DatasetOriginType readDatasetOriginType(XMLStreamReader reader) throws XMLStreamException {
+        DatasetOriginType value = new DatasetOriginType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected DatasetSummaryType readDatasetSummaryType(XMLStreamReader reader) throws XMLStreamException {
+        DatasetSummaryType value = new DatasetSummaryType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("announceDate".equals(name)) {
+                value.setAnnounceDate(parseDate(reader.getAttributeValue(i)));
+            } else if ("hostingRepository".equals(name)) {
+                value.setHostingRepository(parseHostingRepositoryType(reader.getAttributeValue(i)));
+            } else if ("title".equals(name)) {
+                value.setTitle(reader.getAttributeValue(i));
+            }
+        }
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Description".equals(name))
+                value.setDescription(reader.getElementText());
+            else if ("ReviewLevel".equals(name))
+                value.setReviewLevel(readReviewLevelType(reader));
+            else if ("RepositorySupport".equals(name))
+                value.setRepositorySupport(readRepositorySupportType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected ReviewLevelType readReviewLevelType(XMLStreamReader reader) throws XMLStreamException {
+        ReviewLevelType value = new ReviewLevelType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.setCvParam(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected RepositorySupportType readRepositorySupportType(XMLStreamReader reader) throws XMLStreamException {
+        RepositorySupportType value = new RepositorySupportType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.setCvParam(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected FullDatasetLinkListType readFullDatasetLinkListType(XMLStreamReader reader) throws XMLStreamException {
+        FullDatasetLinkListType value = new FullDatasetLinkListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("FullDatasetLink".equals(name))
+                value.getFullDatasetLink().add(readFullDatasetLinkType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected FullDatasetLinkType readFullDatasetLinkType(XMLStreamReader reader) throws XMLStreamException {
+        FullDatasetLinkType value = new FullDatasetLinkType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.setCvParam(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected InstrumentListType readInstrumentListType(XMLStreamReader reader) throws XMLStreamException {
+        InstrumentListType value = new InstrumentListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Instrument".equals(name))
+                value.getInstrument().add(readInstrumentType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected InstrumentType readInstrumentType(XMLStreamReader reader) throws XMLStreamException {
+        InstrumentType value = new InstrumentType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("id".equals(name)) {
+                String id = collapse(reader.getAttributeValue(i));
+                value.setId(id);
+                ids.put(id, value);
+            }
+        }
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected KeywordListType readKeywordListType(XMLStreamReader reader) throws XMLStreamException {
+        KeywordListType value = new KeywordListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected ModificationListType readModificationListType(XMLStreamReader reader) throws XMLStreamException {
+        ModificationListType value = new ModificationListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected PublicationListType readPublicationListType(XMLStreamReader reader) throws XMLStreamException {
+        PublicationListType value = new PublicationListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Publication".equals(name))
+                value.getPublication().add(readPublicationType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected PublicationType readPublicationType(XMLStreamReader reader) throws XMLStreamException {
+        PublicationType value = new PublicationType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("id".equals(name)) {
+                String id = collapse(reader.getAttributeValue(i));
+                value.setId(id);
+                ids.put(id, value);
+            }
+        }
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected RepositoryRecordListType readRepositoryRecordListType(XMLStreamReader reader) throws XMLStreamException {
+        RepositoryRecordListType value = new RepositoryRecordListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("RepositoryRecord".equals(name))
+                value.getRepositoryRecord().add(readRepositoryRecordType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected RepositoryRecordType readRepositoryRecordType(XMLStreamReader reader) throws XMLStreamException {
+        RepositoryRecordType value = new RepositoryRecordType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("name".equals(name)) {
+                value.setName(reader.getAttributeValue(i));
+            } else if ("label".equals(name)) {
+                value.setLabel(reader.getAttributeValue(i));
+            } else if ("recordID".equals(name)) {
+                value.setRecordID(reader.getAttributeValue(i));
+            } else if ("repositoryID".equals(name)) {
+                value.setRepositoryID(parseHostingRepositoryType(reader.getAttributeValue(i)));
+            } else if ("uri".equals(name)) {
+                value.setUri(reader.getAttributeValue(i));
+            }
+        }
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("SourceFileRef".equals(name))
+                value.getSourceFileRef().add(readRefType(reader));
+            else if ("PublicationRef".equals(name))
+                value.getPublicationRef().add(readRefType(reader));
+            else if ("InstrumentRef".equals(name))
+                value.getInstrumentRef().add(readRefType(reader));
+            else if ("SampleList".equals(name))
+                value.setSampleList(readSampleListType(reader));
+            else if ("ModificationList".equals(name))
+                value.setModificationList(readModificationListType(reader));
+            else if ("AnnotationList".equals(name))
+                value.setAnnotationList(readAdditionalInformationType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected SampleListType readSampleListType(XMLStreamReader reader) throws XMLStreamException {
+        SampleListType value = new SampleListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Sample".equals(name))
+                value.getSample().add(readSampleType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected SampleType readSampleType(XMLStreamReader reader) throws XMLStreamException {
+        SampleType value = new SampleType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("name".equals(name)) {
+                value.setName(reader.getAttributeValue(i));
+            }
+        }
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected SpeciesListType readSpeciesListType(XMLStreamReader reader) throws XMLStreamException {
+        SpeciesListType value = new SpeciesListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Species".equals(name))
+                value.getSpecies().add(readSpeciesType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected SpeciesType readSpeciesType(XMLStreamReader reader) throws XMLStreamException {
+        SpeciesType value = new SpeciesType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("cvParam".equals(name))
+                value.getCvParam().add(readCvParamType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected CvListType readCvListType(XMLStreamReader reader) throws XMLStreamException {
+        CvListType value = new CvListType();
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("Cv".equals(name))
+                value.getCv().add(readCvType(reader));
+            else
+                skipContent(reader);
+        }
+        return value;
+    }
+
+    protected CvType readCvType(XMLStreamReader reader) throws XMLStreamException {
+        CvType value = new CvType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("fullName".equals(name)) {
+                value.setFullName(reader.getAttributeValue(i));
+            } else if ("version".equals(name)) {
+                value.setVersion(reader.getAttributeValue(i));
+            } else if ("uri".equals(name)) {
+                value.setUri(reader.getAttributeValue(i));
+            } else if ("id".equals(name)) {
+                String id = collapse(reader.getAttributeValue(i));
+                value.setId(id);
+                ids.put(id, value);
+            }
+        }
+        skipContent(reader);
+        return value;
+    }
+
+    protected UserParamType readUserParamType(XMLStreamReader reader) throws XMLStreamException {
+        UserParamType value = new UserParamType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("name".equals(name)) {
+                value.setName(reader.getAttributeValue(i));
+            } else if ("value".equals(name)) {
+                value.setValue(reader.getAttributeValue(i));
+            } else if ("unitAccession".equals(name)) {
+                value.setUnitAccession(reader.getAttributeValue(i));
+            } else if ("unitName".equals(name)) {
+                value.setUnitName(reader.getAttributeValue(i));
+            } else if ("unitCvRef".equals(name)) {
+                value.setUnitCvRef(reader.getAttributeValue(i));
+            }
+        }
+        skipContent(reader);
+        return value;
+    }
+
+    protected CvParamType readCvParamType(XMLStreamReader reader) throws XMLStreamException {
+        CvParamType value = new CvParamType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("name".equals(name)) {
+                value.setName(reader.getAttributeValue(i));
+            } else if ("value".equals(name)) {
+                value.setValue(reader.getAttributeValue(i));
+            } else if ("unitAccession".equals(name)) {
+                value.setUnitAccession(reader.getAttributeValue(i));
+            } else if ("unitName".equals(name)) {
+                value.setUnitName(reader.getAttributeValue(i));
+            } else if ("unitCvRef".equals(name)) {
+                value.setUnitCvRef(reader.getAttributeValue(i));
+            } else if ("cvRef".equals(name)) {
+                references.add(value);
+                referenceIds.add(collapse(reader.getAttributeValue(i)));
+            } else if ("accession".equals(name)) {
+                value.setAccession(reader.getAttributeValue(i));
+            }
+        }
+        skipContent(reader);
+        return value;
+    }
+
+    protected RefType readRefType(XMLStreamReader reader) throws XMLStreamException {
+        RefType value = new RefType();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isEmpty(reader.getAttributeNamespace(i)))
+                continue;
+            String name = reader.getAttributeLocalName(i);
+            if ("ref".equals(name)) {
+                references.add(value);
+                referenceIds.add(collapse(reader.getAttributeValue(i)));
+            }
+        }
+        skipContent(reader);
+        return value;
+    }
+
+    /**
+     * Set the IDREF attributes read so far to the objects with those IDs
+     */
+    public void resolveReferences() {
+        for (int i = 0; i < references.size(); i++) {
+            Object owner = references.get(i);
+            Object target = ids.get(referenceIds.get(i));
+            if (owner instanceof CvParamType)
+                ((CvParamType) owner).setCvRef(target);
+            else if (owner instanceof RefType)
+                ((RefType) owner).setRef(target);
+        }
+        references.clear();
+        referenceIds.clear();
+    }
+
+    private static HostingRepositoryType parseHostingRepositoryType(String value) {
+        try {
+            return HostingRepositoryType.fromValue(collapse(value));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void moveToStartElement(XMLStreamReader reader) throws XMLStreamException {
+        while (!reader.isStartElement()) {
+            if (!reader.hasNext())
+                throw new XMLStreamException("The document does not contain any element");
+            reader.next();
+        }
+    }
+
+    /**
+     * @return the date, null if it is not a valid xs:date, as JAXB does
+     */
+    private XMLGregorianCalendar parseDate(String value) {
+        try {
+            return datatypeFactory.newXMLGregorianCalendar(collapse(value));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Move to the next child element of the current element
+     * @return true on the start of a child, false on the end of the current element
+     */
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (isEmpty(reader.getNamespaceURI()))
+                    return true;
+                skipContent(reader);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Skip the current element and its content, leaving the reader on its end
+     */
+    private static void skipContent(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.length() == 0;
+    }
+
+    /**
+     * Same whitespace handling than javax.xml.bind.annotation.adapters.CollapsedStringAdapter
+     */
+    private static String collapse(String value) {
+        if (value == null)
+            return null;
+        int length = value.length();
+        int start = 0;
+        while (start < length && isWhiteSpace(value.charAt(start)))
+            start++;
+        int end = length;
+        while (end > start && isWhiteSpace(value.charAt(end - 1)))
+            end--;
+        boolean collapsed = true;
+        for (int i = start; i < end && collapsed; i++)
+            collapsed = !isWhiteSpace(value.charAt(i)) || (value.charAt(i) == ' ' && !isWhiteSpace(value.charAt(i + 1)));
+        if (collapsed)
+            return (start == 0 && end == length) ? value : value.substring(start, end);
+        StringBuilder result = new StringBuilder(end - start);
+        boolean inWhiteSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (isWhiteSpace(c)) {
+                if (!inWhiteSpace)
+                    result.append(' ');
+                inWhiteSpace = true;
+            } else {
+                result.append(c);
+                inWhiteSpace = false;
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean isWhiteSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+}
@@ -0,0 +1,25 @@
+package uk.ac.ebi.ddi.px.xml.px.io;
+
+/**
+ * Unmarshallers that can be used by the {@link PxReader} to read a PX XML file. All of
+ * them create the same objects of the uk.ac.ebi.ddi.px.xml.px.model package.
+ */
+public enum PxUnmarshallerType {
+
+    /**
+     * JAXB RI unmarshaller, reflection based.
+     */
+    JAXB,
+
+    /**
+     * Generated XMLStreamReader unmarshaller ({@link PxStaxUnmarshaller}), it does not need
+     * the JAXB runtime model so it starts faster and it is faster reading.
+     */
+    STAX,
+
+    /**
+     * Generated StAX unmarshaller that reads the chunks of huge DatasetFileList sections in
+     * parallel ({@link PxParallelUnmarshaller}).
+     */
+    STAX_PARALLEL
+}
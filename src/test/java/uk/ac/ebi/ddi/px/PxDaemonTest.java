@@ -0,0 +1,175 @@
+package uk.ac.ebi.ddi.px;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.utils.EBeyeCompression;
+import uk.ac.ebi.ddi.px.utils.EBeyeSink;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxStubServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Requests and job reports of the reindex service, crawling the synthetic datasets of a {@link PxStubServer}.
+ */
+public class PxDaemonTest {
+
+    private File folder;
+
+    private PxStubServer server;
+
+    private PxDaemon daemon;
+
+    @After
+    public void tearDown() throws Exception {
+        if (daemon != null)
+            daemon.close();
+        if (server != null)
+            server.close();
+        if (folder != null)
+            FileUtils.deleteDirectory(folder);
+    }
+
+    @Test(timeout = 30000)
+    public void testRequests() throws Exception {
+        start(new PxCorpusGenerator(), 20);
+
+        assertEquals("400 {\"error\":\"Give one of accession, from and to, or repository\"}", call("POST", "/reindex"));
+        assertEquals("400 {\"error\":\"Give one of accession, from and to, or repository\"}", call("POST", "/reindex?accession=1&repository=PRIDE"));
+        assertEquals("400 {\"error\":\"Invalid accession PXDabc\"}", call("POST", "/reindex?accession=PXDabc"));
+        assertEquals("400 {\"error\":\"Invalid accession 1234567\"}", call("POST", "/reindex?accession=1234567"));
+        assertEquals("400 {\"error\":\"No accession given\"}", call("POST", "/reindex?accession=,"));
+        assertEquals("400 {\"error\":\"Give one from and one to accession\"}", call("POST", "/reindex?from=PXD000001"));
+        assertEquals("400 {\"error\":\"The range PXD000002 to PXD000001 is empty\"}", call("POST", "/reindex?from=PXD000002&to=PXD000001"));
+        assertEquals("400 {\"error\":\"Unknown repository Nope, use one of [PRIDE, MassIVE, PeptideAtlas]\"}", call("POST", "/reindex?repository=Nope"));
+        assertEquals("405 {\"error\":\"Use POST to request a reindex\"}", call("GET", "/reindex?accession=1"));
+        assertEquals("404 {\"error\":\"Unknown job 1\"}", call("GET", "/jobs/1"));
+
+        String accepted = call("POST", "/reindex?accession=PXD000005,7&accession=pxd000009");
+        assertTrue(accepted, accepted.startsWith("202 {\"id\":1,\"request\":\"accession=PXD000005,7,pxd000009\""));
+        assertTrue(accepted, accepted.contains("\"accessions\":3"));
+        String repository = call("POST", "/reindex?repository=massive");
+        assertTrue(repository, repository.startsWith("202 {\"id\":2,\"request\":\"repository=MassIVE\""));
+        assertEquals("405 {\"error\":\"Cancel the jobs one by one\"}", call("DELETE", "/jobs"));
+    }
+
+    @Test(timeout = 30000)
+    public void testJobReport() throws Exception {
+        start(new PxCorpusGenerator(), 40);
+
+        call("POST", "/reindex?from=PXD000010&to=PXD000019");
+        String report = awaitEnd(1);
+        assertTrue(report, report.contains("\"status\":\"finished\""));
+        assertTrue(report, report.contains("\"accessions\":10,\"completed\":10,\"current\":\"PXD000019\",\"written\":10,\"failed\":0"));
+        assertEquals(10, folder.list().length);
+
+        // the accessions missing in ProteomeCentral are completed, not written
+        call("POST", "/reindex?accession=PXD000039,PXD000040,PXD000041");
+        report = awaitEnd(2);
+        assertTrue(report, report.contains("\"accessions\":3,\"completed\":3,\"current\":\"PXD000041\",\"written\":2,\"failed\":0"));
+
+        String jobs = call("GET", "/jobs");
+        assertTrue(jobs, jobs.startsWith("200 {\"jobs\":[{\"id\":1,"));
+        assertTrue(jobs, jobs.contains("},{\"id\":2,"));
+    }
+
+    @Test(timeout = 30000)
+    public void testCancel() throws Exception {
+        start(new SlowGenerator(), 1000);
+
+        call("POST", "/reindex?repository=PRIDE");
+        awaitProgress(1);
+        String cancelled = call("DELETE", "/jobs/1");
+        assertTrue(cancelled, cancelled.startsWith("202 {\"id\":1,"));
+        String report = awaitEnd(1);
+        assertTrue(report, report.contains("\"status\":\"cancelled\""));
+        assertTrue(report, !report.contains("\"current\":\"PXD001000\""));
+        assertEquals("409 {\"error\":\"The job 1 has already ended\"}", call("DELETE", "/jobs/1"));
+    }
+
+    @Test(timeout = 30000)
+    public void testCloseCancelsJobs() throws Exception {
+        start(new SlowGenerator(), 1000);
+
+        call("POST", "/reindex?repository=PRIDE");
+        call("POST", "/reindex?repository=MassIVE");
+        call("POST", "/reindex?repository=PeptideAtlas");
+        awaitProgress(1);
+        long start = System.currentTimeMillis();
+        daemon.close();
+        assertTrue("closed in " + (System.currentTimeMillis() - start) + " ms", System.currentTimeMillis() - start < 10000);
+        for (int id = 1; id <= 3; id++)
+            assertEquals(ReindexJob.Status.CANCELLED, daemon.getJob(id).getStatus());
+        daemon = null;
+    }
+
+    private void start(PxCorpusGenerator generator, int datasets) throws IOException {
+        folder = Files.createTempDirectory("px-daemon").toFile();
+        server = new PxStubServer(generator, 1, datasets, 0, 4);
+        daemon = new PxDaemon(new EBeyeSink(folder, EBeyeCompression.NONE), server.getUrlTemplate(), "000000",
+                999999, 5, 0, 2);
+    }
+
+    /**
+     * Wait until the job has ended
+     * @return its report
+     */
+    private String awaitEnd(int id) throws Exception {
+        while (true) {
+            String report = call("GET", "/jobs/" + id);
+            if (!report.contains("\"status\":\"queued\"") && !report.contains("\"status\":\"running\""))
+                return report;
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Wait until the job has completed an accession
+     */
+    private void awaitProgress(int id) throws Exception {
+        while (call("GET", "/jobs/" + id).contains("\"completed\":0"))
+            Thread.sleep(20);
+    }
+
+    /**
+     * @return the status code and the body of the response
+     */
+    private String call(String method, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + daemon.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        int code = connection.getResponseCode();
+        InputStream in = (code >= 400)? connection.getErrorStream(): connection.getInputStream();
+        try {
+            return code + " " + IOUtils.toString(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Generator taking 20 ms per dataset, so a repository crawl runs for seconds
+     */
+    private static class SlowGenerator extends PxCorpusGenerator {
+
+        @Override
+        public void write(String accession, OutputStream out) throws IOException {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted while generating " + accession);
+            }
+            super.write(accession, out);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uk.ac.ebi.ddi.px;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.tck.PublisherVerification;
+import org.reactivestreams.tck.TestEnvironment;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxStubServer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reactive Streams TCK verification of the {@link PxProjectPublisher}, crawling the synthetic
+ * datasets of a {@link PxStubServer}. A publisher of n projects crawls the accessions 0 to n, the
+ * first one is missing.
+ */
+public class PxProjectPublisherTest extends PublisherVerification<Project> {
+
+    private static final List<String> DATABASES = Arrays.asList("PRIDE", "PeptideAtlas", "MassIVE");
+
+    private static final int DATASETS = 1000;
+
+    private PxStubServer server;
+
+    public PxProjectPublisherTest() {
+        super(new TestEnvironment(2000));
+    }
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        generator.setDatasetFiles(2);
+        server = new PxStubServer(generator, 1, DATASETS, 0, 8);
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.close();
+    }
+
+    @Override
+    public Publisher<Project> createPublisher(long elements) {
+        return new PxProjectPublisher(server.getUrlTemplate(), "000000", (int) elements + 1, 5, DATABASES);
+    }
+
+    /**
+     * A crawl with no loop gap can not start
+     */
+    @Override
+    public Publisher<Project> createFailedPublisher() {
+        return new PxProjectPublisher(server.getUrlTemplate(), "000000", DATASETS, 0, DATABASES);
+    }
+
+    @Override
+    public long maxElementsFromPublisher() {
+        return DATASETS;
+    }
+}
@@ -0,0 +1,127 @@
+package uk.ac.ebi.ddi.px;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxStubServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Crawl of the synthetic datasets of a {@link PxStubServer}: the projects come back in the order
+ * of the accessions, the error of a stage is thrown for its accession and the crawl stops after
+ * loopGap missing accessions.
+ */
+public class PxWebCrawlTest {
+
+    private static final List<String> DATABASES = Arrays.asList("PRIDE", "PeptideAtlas", "MassIVE", "jPOST", "iProX");
+
+    private PxStubServer server;
+
+    private PxWebCrawl crawl;
+
+    @After
+    public void tearDown() throws Exception {
+        if (crawl != null)
+            crawl.close();
+        if (server != null)
+            server.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testOrderAndLoopGap() throws Exception {
+        server = new PxStubServer(generator(), 1, 40, 0, 4);
+        crawl = crawl(5, 1000);
+
+        for (int i = 1; i <= 40; i++)
+            assertEquals(PxCorpusGenerator.accession(i), next().getAccession());
+        assertNull(crawl.next(16));
+        // PXD000000 is missing too, the crawl starts at 0
+        assertEquals(1 + 40 + 5, crawl.getCompleted());
+    }
+
+    @Test(timeout = 30000)
+    public void testGapBetweenDatasets() throws Exception {
+        server = new PxStubServer(generator(), 4, 10, 0, 4);
+        crawl = crawl(5, 1000);
+
+        // 4 missing accessions before the first dataset do not stop the crawl
+        assertEquals(PxCorpusGenerator.accession(4), next().getAccession());
+        assertEquals(1, crawl.getFoundGap());
+    }
+
+    @Test(timeout = 30000)
+    public void testStageError() throws Exception {
+        server = new PxStubServer(new BrokenGenerator(PxCorpusGenerator.accession(7)), 1, 20, 0, 4);
+        crawl = crawl(5, 1000);
+
+        for (int i = 1; i < 7; i++)
+            assertEquals(PxCorpusGenerator.accession(i), next().getAccession());
+        try {
+            crawl.next(16);
+            fail("The transformation of " + PxCorpusGenerator.accession(7) + " has not failed");
+        } catch (NullPointerException e) {
+            // the summary of the dataset is missing
+        }
+        assertEquals(8, crawl.getCompleted());
+    }
+
+    @Test(timeout = 30000)
+    public void testEndPoint() throws Exception {
+        server = new PxStubServer(generator(), 1, 40, 0, 4);
+        crawl = crawl(5, 11);
+
+        for (int i = 1; i <= 10; i++)
+            assertEquals(PxCorpusGenerator.accession(i), next().getAccession());
+        assertNull(crawl.next(16));
+        assertEquals(11, crawl.getCompleted());
+    }
+
+    private PxWebCrawl crawl(int loopGap, int endPoint) {
+        return new PxWebCrawl(loopGap, endPoint, "000000", server.getUrlTemplate(), DATABASES, 4, 2, 2, 4, 16);
+    }
+
+    private Project next() throws Exception {
+        Project project = crawl.next(16);
+        if (project == null)
+            fail("The crawl stopped at " + crawl.getCurrentAccession());
+        return project;
+    }
+
+    private static PxCorpusGenerator generator() {
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        generator.setDatasetFiles(5);
+        return generator;
+    }
+
+    /**
+     * Generator of a dataset without summary, whose transformation fails
+     */
+    private static class BrokenGenerator extends PxCorpusGenerator {
+
+        private final String broken;
+
+        private BrokenGenerator(String broken) {
+            this.broken = broken;
+            setDatasetFiles(5);
+        }
+
+        @Override
+        public void write(String accession, OutputStream out) throws IOException {
+            if (!accession.equals(broken)) {
+                super.write(accession, out);
+                return;
+            }
+            out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<ProteomeXchangeDataset id=\"" + accession + "\"/>\n").getBytes("UTF-8"));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Check that close() drains the queue of the writer threads and always returns.
+ */
+public class AsyncProjectHandlerTest {
+
+    @Test(timeout = 10000)
+    public void testDrain() throws Exception {
+        final Set<String> written = Collections.synchronizedSet(new HashSet<String>());
+        AsyncProjectHandler writer = new AsyncProjectHandler(new ProjectHandler() {
+            @Override
+            public void handle(Project project) throws Exception {
+                Thread.sleep(1);
+                written.add(project.getAccession());
+            }
+        }, 4, 3, 2);
+        for (int i = 0; i < 200; i++)
+            writer.handle(project(i));
+        writer.close();
+
+        assertEquals(200, written.size());
+        assertEquals(200, writer.getHandled());
+        assertEquals(0, writer.getFailed());
+        assertEquals(0, writer.getQueueSize());
+    }
+
+    /**
+     * An Error of the handler fails its project, the writer threads go on
+     */
+    @Test(timeout = 10000)
+    public void testHandlerError() throws Exception {
+        AsyncProjectHandler writer = new AsyncProjectHandler(new ProjectHandler() {
+            @Override
+            public void handle(Project project) throws Exception {
+                if (project.getAccession().endsWith("0"))
+                    throw new StackOverflowError("writing " + project.getAccession());
+            }
+        }, 2, 2, 1);
+        for (int i = 0; i < 100; i++)
+            writer.handle(project(i));
+        writer.close();
+
+        assertEquals(90, writer.getHandled());
+        assertEquals(10, writer.getFailed());
+    }
+
+    /**
+     * Projects queued while the writer is closed are either handled or refused
+     */
+    @Test(timeout = 10000)
+    public void testCloseWhileQueueing() throws Exception {
+        final AsyncProjectHandler writer = new AsyncProjectHandler(new ProjectHandler() {
+            @Override
+            public void handle(Project project) throws Exception {
+                Thread.sleep(1);
+            }
+        }, 1, 2, 1);
+        final AtomicInteger queued = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(4);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        for (int i = 0; ; i++) {
+                            writer.handle(project(i));
+                            queued.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // closed
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        started.await();
+        Thread.sleep(50);
+        writer.close();
+        for (Thread producer : producers)
+            producer.join();
+
+        assertEquals(queued.get(), writer.getHandled());
+        assertEquals(0, writer.getQueueSize());
+    }
+
+    private static Project project(int i) {
+        Project project = new Project();
+        project.setAccession("PXD" + String.format("%06d", i));
+        return project;
+    }
+}
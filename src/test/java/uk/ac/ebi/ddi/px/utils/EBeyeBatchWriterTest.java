@@ -0,0 +1,113 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check the files of the releases written by the EBeyeBatchWriter in the same folder.
+ */
+public class EBeyeBatchWriterTest {
+
+    private File folder;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("ebeye-batch").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Test
+    public void testSmallerRelease() throws Exception {
+        write(10);
+        assertArrayEquals(names("PRIDE_EBEYE_00001.xml", "PRIDE_EBEYE_00002.xml", "PRIDE_EBEYE_00003.xml",
+                "PRIDE_EBEYE_00004.xml", "PRIDE_EBEYE_00005.xml"), list());
+
+        // a crash of a previous run can leave a temporary file
+        assertTrue(new File(folder, "PRIDE_EBEYE_00009.xml123.tmp").createNewFile());
+        assertTrue(new File(folder, "PRIDE_EBEYE_PXD000001.xml").createNewFile());
+
+        write(5);
+        assertArrayEquals(names("PRIDE_EBEYE_00001.xml", "PRIDE_EBEYE_00002.xml", "PRIDE_EBEYE_00003.xml",
+                "PRIDE_EBEYE_PXD000001.xml"), list());
+        assertEquals(1, countEntries(new File(folder, "PRIDE_EBEYE_00003.xml")));
+    }
+
+    @Test
+    public void testOtherFoldersKept() throws Exception {
+        File backup = new File(folder, "backup");
+        assertTrue(backup.mkdir());
+        assertTrue(new File(backup, "PRIDE_EBEYE_00009.xml").createNewFile());
+        File massive = new File(folder, "MassIVE");
+        assertTrue(massive.mkdir());
+        assertTrue(new File(massive, "MassIVE_EBEYE_00001.xml").createNewFile());
+
+        write(3);
+        assertArrayEquals(names("MassIVE", "PRIDE_EBEYE_00001.xml", "PRIDE_EBEYE_00002.xml", "backup"), list());
+        assertTrue(new File(backup, "PRIDE_EBEYE_00009.xml").isFile());
+
+        // the REPOSITORY layout only cleans the folders of the repositories written
+        assertTrue(new File(folder, "PRIDE").mkdir());
+        assertTrue(new File(folder, "PRIDE/PRIDE_EBEYE_00009.xml").createNewFile());
+        write(3, EBeyeLayout.REPOSITORY);
+        assertArrayEquals(names("PRIDE_EBEYE_00001.xml", "PRIDE_EBEYE_00002.xml"), sorted(new File(folder, "PRIDE").list()));
+        assertTrue(new File(massive, "MassIVE_EBEYE_00001.xml").isFile());
+        assertTrue(new File(folder, "PRIDE_EBEYE_00001.xml").isFile());
+    }
+
+    private void write(int projects) throws Exception {
+        write(projects, EBeyeLayout.FLAT);
+    }
+
+    private void write(int projects, EBeyeLayout layout) throws Exception {
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        generator.setDatasetFiles(2);
+        EBeyeBatchWriter writer = new EBeyeBatchWriter(folder, 2, Long.MAX_VALUE);
+        writer.setLayout(layout);
+        for (int i = 1; i <= projects; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            generator.write(PxCorpusGenerator.accession(i), out);
+            Project project = ReaderPxXML.readProject(out.toString("UTF-8"));
+            project.setRepositoryName("PRIDE");
+            writer.add(project, null);
+        }
+        writer.close();
+    }
+
+    private String[] list() {
+        return sorted(folder.list());
+    }
+
+    private static String[] sorted(String[] names) {
+        Arrays.sort(names);
+        return names;
+    }
+
+    private static String[] names(String... names) {
+        return names;
+    }
+
+    private static int countEntries(File file) throws Exception {
+        String xml = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+        int count = 0;
+        for (int i = xml.indexOf("<entry "); i >= 0; i = xml.indexOf("<entry ", i + 1))
+            count++;
+        return count;
+    }
+}
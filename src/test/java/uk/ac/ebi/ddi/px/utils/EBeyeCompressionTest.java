@@ -0,0 +1,131 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Round trip of the compressed EB-eye files, made of one gzip member or zstd frame per block of 1 MB,
+ * for contents ending just before, on and after the block boundaries.
+ */
+public class EBeyeCompressionTest {
+
+    private static final int BLOCK = 1024 * 1024;
+
+    private static final int[] SIZES = {0, 1, BLOCK - 1, BLOCK, BLOCK + 1, 3 * BLOCK + 12345};
+
+    private File folder;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("ebeye-compression").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        for (int size : SIZES) {
+            byte[] content = content(size);
+            File file = write(EBeyeCompression.GZIP, content);
+            assertArrayEquals("GZIP " + size, content, read(EBeyeCompression.GZIP.openInput(file)));
+            // the JDK reads the concatenated members as one stream
+            assertArrayEquals("GZIPInputStream " + size, content, read(new GZIPInputStream(new FileInputStream(file))));
+        }
+    }
+
+    @Test
+    public void testZstdRoundTrip() throws Exception {
+        for (int size : SIZES) {
+            byte[] content = content(size);
+            File file = write(EBeyeCompression.ZSTD, content);
+            assertArrayEquals("ZSTD " + size, content, read(EBeyeCompression.ZSTD.openInput(file)));
+        }
+    }
+
+    /**
+     * The buffers written at once across the boundaries give the same content, and the digest is the one of the file
+     */
+    @Test
+    public void testBuffersAndDigest() throws Exception {
+        byte[] content = content(2 * BLOCK + 100);
+        for (EBeyeCompression compression : EBeyeCompression.values()) {
+            EBeyeOutputBuffer first = new EBeyeOutputBuffer();
+            EBeyeOutputBuffer second = new EBeyeOutputBuffer();
+            first.write(content, 0, BLOCK - 50);
+            second.write(content, BLOCK - 50, content.length - (BLOCK - 50));
+            File file = new File(folder, "buffers" + compression.getSuffix());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size = compression.write(file, digest, first, second);
+            first.release();
+            second.release();
+
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            assertEquals(compression.name(), bytes.length, size);
+            assertArrayEquals(compression.name(), MessageDigest.getInstance("SHA-256").digest(bytes), digest.digest());
+            assertArrayEquals(compression.name(), content, read(compression.openInput(file)));
+        }
+    }
+
+    /**
+     * Write the content in pieces of varying sizes, some of them single bytes, so the writes cross the block boundaries
+     */
+    private File write(EBeyeCompression compression, byte[] content) throws Exception {
+        File file = new File(folder, "content-" + content.length + ".xml" + compression.getSuffix());
+        OutputStream out = compression.open(file);
+        try {
+            Random random = new Random(content.length);
+            int offset = 0;
+            while (offset < content.length) {
+                int length = Math.min(content.length - offset, random.nextInt(100000));
+                if (length <= 1) {
+                    out.write(content[offset]);
+                    length = 1;
+                } else {
+                    out.write(content, offset, length);
+                }
+                offset += length;
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] read(InputStream in) throws Exception {
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return XML like text, compressible but not the same in every block
+     */
+    private static byte[] content(int size) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(size + 100);
+        while (text.length() < size)
+            text.append("<field name=\"keyword\">").append(Long.toString(random.nextLong(), 36)).append("</field>\n");
+        text.setLength(size);
+        return text.toString().getBytes(EBeyeWriterContext.UTF8);
+    }
+}
@@ -0,0 +1,58 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ebi.ddi.px.model.DataFileSummary;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the classification of the data files of a project, file by file and for
+ * the whole project. Run with -prof gc to get the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTypeRegistryBenchmark {
+
+    @Param({"SMALL", "MEDIAN", "PATHOLOGICAL"})
+    private PxBenchmarkDocument document;
+
+    private FileTypeRegistry registry;
+
+    private Project project;
+
+    private List<String> files;
+
+    @Setup
+    public void setup() throws Exception {
+        registry = FileTypeRegistry.getDefault();
+        project = ReaderPxXML.parseDocument(document.getXml());
+        files = project.getDataFiles();
+    }
+
+    @Benchmark
+    public int classify() {
+        int classified = 0;
+        for (int i = 0; i < files.size(); i++)
+            if (registry.classify(files.get(i)) != null)
+                classified++;
+        return classified;
+    }
+
+    @Benchmark
+    public DataFileSummary summarize() {
+        return registry.summarize(files);
+    }
+
+    @Benchmark
+    public String projectSummary() {
+        project.setDataFileSummary(null);
+        return ProjectSummary.getType(project) + ProjectSummary.getFileType(project)
+                + ProjectSummary.getNumberFiles(project) + ProjectSummary.getNumberPeakFiles(project);
+    }
+}
@@ -0,0 +1,74 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.model.DataFileSummary;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Classification of the data files of PRIDE and MassIVE datasets, given as the FTP URLs of the PX files.
+ */
+public class FileTypeRegistryTest {
+
+    private static final String PRIDE = "ftp://ftp.pride.ebi.ac.uk/pride/data/archive/2012/03/PXD000001/";
+
+    private static final String MASSIVE = "ftp://massive.ucsd.edu/MSV000079514/";
+
+    private final FileTypeRegistry registry = FileTypeRegistry.getDefault();
+
+    @Test
+    public void testPrideXml() {
+        assertEquals("PRIDE XML", type(PRIDE + "PRIDE_Exp_Complete_Ac_22134.xml.gz"));
+        assertEquals("PRIDE XML", type(PRIDE + "PRIDE_Exp_Complete_Ac_22134.xml"));
+        // the folders of the URL do not make a PRIDE XML file
+        assertNull(type(PRIDE + "README.xml"));
+        assertNull(type(PRIDE + "TMT_Erwinia_1uLSike_Top10HCD_isol2_45stepped_60min_01.xml.gz"));
+        assertNull(type(MASSIVE + "pride/search_results.xml"));
+    }
+
+    @Test
+    public void testPeakLists() {
+        assertEquals("MZXML", type(MASSIVE + "peak/sample_01.mzXML"));
+        assertEquals("MZDATA", type(PRIDE + "PRIDE_Exp_mzData_Ac_22134.mzData.zip"));
+        assertEquals("MGF", type(MASSIVE + "ccms_peak/spectra.MGF.bz2"));
+        assertEquals("MZML", type(MASSIVE + "peak/sample_02.mzML.gz"));
+        // the suffixes need their dot
+        assertNull(type(MASSIVE + "other/file_mgf"));
+    }
+
+    @Test
+    public void testOtherTypes() {
+        assertEquals("MZIDENTML", type(MASSIVE + "result/search.mzid.zip"));
+        assertEquals("PEPXML", type(MASSIVE + "result/search.pep.xml"));
+        assertEquals("THERMO RAW", type(PRIDE + "TMT_Erwinia_1uLSike_Top10HCD_isol2_45stepped_60min_01.raw"));
+        assertEquals("MASCOT DAT", type(PRIDE + "F063721.dat"));
+        assertNull(type(PRIDE + "F063721.dat-mztab.txt"));
+    }
+
+    @Test
+    public void testSummary() {
+        DataFileSummary summary = registry.summarize(Arrays.asList(
+                PRIDE + "PRIDE_Exp_Complete_Ac_22134.xml.gz",
+                PRIDE + "README.xml",
+                PRIDE + "PRIDE_Exp_mzData_Ac_22134.mzData.zip",
+                MASSIVE + "peak/sample_01.mzXML",
+                MASSIVE + "other/file_mgf",
+                PRIDE + "TMT_Erwinia_1uLSike_Top10HCD_isol2_45stepped_60min_01.raw",
+                PRIDE + "F063721.dat",
+                null));
+        assertEquals(7, summary.getFiles());
+        assertEquals(2, summary.getPeakFiles());
+        assertEquals(1, summary.getResultFiles());
+        assertEquals(1, summary.getRawFiles());
+        assertEquals(1, summary.getSearchEngineFiles());
+        assertEquals("PRIDE XML", summary.getResultFileType());
+    }
+
+    private String type(String fileName) {
+        FileType type = registry.classify(fileName);
+        return (type == null) ? null : type.getName();
+    }
+}
@@ -0,0 +1,85 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Check that every item reaches the end of a pipeline in order, with its value or the error,
+ * even an Error, of the stage that failed to process it.
+ */
+public class PipelineStageTest {
+
+    @Test(timeout = 10000)
+    public void testOrderAndErrors() throws Exception {
+        OrderedCompletion<String> completion = new OrderedCompletion<String>(64);
+        PipelineStage<Integer, String> format = new PipelineStage<Integer, String>("format", 4, 2,
+                new PipelineStage.Task<Integer, String>() {
+            @Override
+            public String process(Integer input) throws Exception {
+                if (input % 10 == 3)
+                    throw new StackOverflowError("formatting " + input);
+                return (input % 10 == 5)? null: String.valueOf(input);
+            }
+        }, completion);
+        PipelineStage<Integer, Integer> parse = new PipelineStage<Integer, Integer>("parse", 3, 2,
+                new PipelineStage.Task<Integer, Integer>() {
+            @Override
+            public Integer process(Integer input) throws Exception {
+                Thread.sleep(input % 3);
+                if (input % 10 == 7)
+                    throw new ExecutionException("parsing " + input, null);
+                return input;
+            }
+        }, format);
+
+        for (int i = 0; i < 64; i++)
+            parse.accept(new PipelineItem<Integer>(completion.reserve(), i));
+        assertEquals(-1, completion.reserve());
+
+        for (int i = 0; i < 64; i++) {
+            PipelineItem<String> item = completion.take();
+            assertEquals(i, item.getSequence());
+            try {
+                String value = item.get();
+                if (i % 10 == 5)
+                    assertNull(value);
+                else
+                    assertEquals(String.valueOf(i), value);
+            } catch (StackOverflowError e) {
+                assertEquals(3, i % 10);
+                assertSame(e, item.getError());
+            } catch (ExecutionException e) {
+                assertEquals(7, i % 10);
+                assertTrue(e.getMessage().endsWith(String.valueOf(i)));
+            }
+        }
+        parse.close();
+        format.close();
+        assertEquals(0, completion.getPending());
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        PipelineStage<Integer, Integer> stage = new PipelineStage<Integer, Integer>("closed", 1, 1,
+                new PipelineStage.Task<Integer, Integer>() {
+            @Override
+            public Integer process(Integer input) {
+                return input;
+            }
+        }, new OrderedCompletion<Integer>(1));
+        stage.close();
+        try {
+            stage.accept(new PipelineItem<Integer>(0, 0));
+            fail("An item has been accepted after close()");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
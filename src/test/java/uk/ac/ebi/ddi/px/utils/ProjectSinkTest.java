@@ -0,0 +1,164 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Check the escaping of the JSON Lines and CSV sinks, and that the FanOutSink reaches every sink
+ * and reports all their errors.
+ */
+public class ProjectSinkTest {
+
+    private File folder;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("sinks").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Test
+    public void testJsonEscaping() throws Exception {
+        Project project = project();
+        project.setTitle("\"Quoted\" back\\slash\ttab\r\nline");
+        project.setProjectDescription("Control \u0000\u0001\u001f, DEL \u007f, separators \u2028\u2029, \u00e9 \u86cb \ud83e\uddec");
+
+        JsonLinesSink sink = new JsonLinesSink(new File(folder, "px_projects.jsonl"), EBeyeCompression.NONE);
+        sink.write(project);
+        sink.close();
+
+        String[] lines = read(sink.getFile()).split("\n", -1);
+        assertEquals(2, lines.length);
+        assertEquals("", lines[1]);
+        assertTrue(lines[0], lines[0].startsWith("{\"accession\":\"PXD000001\",\"repository\":\"PRIDE\","));
+        assertTrue(lines[0], lines[0].contains("\"title\":\"\\\"Quoted\\\" back\\\\slash\\ttab\\r\\nline\","));
+        // the other characters, supplementary ones included, are written as they are in UTF-8
+        assertTrue(lines[0], lines[0].contains("\"description\":\"Control \\u0000\\u0001\\u001f, DEL \u007f, separators \\u2028\\u2029, \u00e9 \u86cb \ud83e\uddec\","));
+        assertTrue(lines[0], lines[0].endsWith("}"));
+    }
+
+    @Test
+    public void testCsvQuoting() throws Exception {
+        assertEquals("", cell(null));
+        assertEquals("PRIDE", cell("PRIDE"));
+        assertEquals("\"a,b\"", cell("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", cell("say \"hi\""));
+        assertEquals("\"two\nlines\"", cell("two\nlines"));
+        assertEquals("\"carriage\rreturn\"", cell("carriage\rreturn"));
+        assertEquals("semi;colon 'single' \u00e9", cell("semi;colon 'single' \u00e9"));
+
+        Project project = project();
+        project.setRepositoryName("PRIDE, \"EBI\"");
+        SummaryCsvSink sink = new SummaryCsvSink(new File(folder, "px_summary.csv"), EBeyeCompression.NONE);
+        sink.write(project);
+        sink.close();
+
+        String[] lines = read(sink.getFile()).split("\n");
+        assertEquals("accession,repository,publication_date,type,file_type,files,peak_files", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("PXD000001,\"PRIDE, \"\"EBI\"\"\",2012-03-07,"));
+    }
+
+    @Test
+    public void testFanOutErrors() throws Exception {
+        RecordingSink first = new RecordingSink("disk full", null);
+        RecordingSink second = new RecordingSink(null, null);
+        RecordingSink third = new RecordingSink(null, "bug");
+        RecordingSink fourth = new RecordingSink("no space", null);
+        FanOutSink sink = new FanOutSink(Arrays.<ProjectSink>asList(first, second, third, fourth));
+
+        Project project = project();
+        try {
+            sink.write(project);
+            fail("The errors of the sinks have been lost");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+            assertEquals(2, e.getSuppressed().length);
+            assertEquals("Error writing PXD000001 in RecordingSink", e.getSuppressed()[0].getMessage());
+            assertEquals("bug", e.getSuppressed()[0].getCause().getMessage());
+            assertEquals("no space", e.getSuppressed()[1].getMessage());
+        }
+        for (RecordingSink recording : Arrays.asList(first, second, third, fourth))
+            assertEquals(Arrays.asList(project), recording.projects);
+
+        try {
+            sink.close();
+            fail("The errors of the sinks have been lost");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+            assertEquals("no space", e.getSuppressed()[0].getMessage());
+        }
+        for (RecordingSink recording : Arrays.asList(first, second, third, fourth))
+            assertTrue(recording.closed);
+    }
+
+    private static String cell(String value) throws IOException {
+        StringWriter out = new StringWriter();
+        SummaryCsvSink.cell(out, value);
+        return out.toString();
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), EBeyeWriterContext.UTF8);
+    }
+
+    private static Project project() throws Exception {
+        return ReaderPxXML.readProject(IOUtils.toString(ProjectSinkTest.class.getResourceAsStream("/PXD000001.xml"), "UTF-8"));
+    }
+
+    /**
+     * Sink keeping the projects it gets, failing with an IOException on every write and close, or
+     * with a RuntimeException on every write
+     */
+    private static class RecordingSink implements ProjectSink {
+
+        private final String ioError;
+
+        private final String runtimeError;
+
+        private final List<Project> projects = new ArrayList<Project>();
+
+        private boolean closed = false;
+
+        private RecordingSink(String ioError, String runtimeError) {
+            this.ioError = ioError;
+            this.runtimeError = runtimeError;
+        }
+
+        @Override
+        public void write(Project project) throws IOException {
+            projects.add(project);
+            if (ioError != null)
+                throw new IOException(ioError);
+            if (runtimeError != null)
+                throw new IllegalStateException(runtimeError);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            if (ioError != null)
+                throw new IOException(ioError);
+        }
+    }
+}
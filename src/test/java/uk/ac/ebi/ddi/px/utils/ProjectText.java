@@ -0,0 +1,87 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import uk.ac.ebi.ddi.px.model.CvParam;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.model.Reference;
+import uk.ac.ebi.ddi.px.model.Submitter;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Text of all the fields of a Project, one per line, used to compare the projects mapped by the
+ * readers with the golden files of src/test/resources (*.project.txt).
+ */
+final class ProjectText {
+
+    private ProjectText() {
+    }
+
+    static String describe(Project project) {
+        StringBuilder text = new StringBuilder();
+        line(text, "accession", project.getAccession());
+        line(text, "repositoryName", project.getRepositoryName());
+        line(text, "title", project.getTitle());
+        line(text, "projectDescription", project.getProjectDescription());
+        cvParams(text, "species", project.getSpecies());
+        strings(text, "taxonomies", project.getTaxonomies());
+        if (project.getReferences() != null)
+            for (Reference reference : project.getReferences())
+                line(text, "reference", reference.getPubmedId() + "|" + reference.getReferenceLine());
+        line(text, "submissionDate", time(project.getSubmissionDate()));
+        line(text, "publicationDate", time(project.getPublicationDate()));
+        line(text, "sampleProcessingProtocol", project.getSampleProcessingProtocol());
+        line(text, "dataProcessingProtocol", project.getDataProcessingProtocol());
+        cvParams(text, "instruments", project.getInstruments());
+        cvParams(text, "cellTypes", project.getCellTypes());
+        cvParams(text, "diseases", project.getDiseases());
+        cvParams(text, "tissues", project.getTissues());
+        cvParams(text, "ptms", project.getPtms());
+        cvParams(text, "experimentTypes", project.getExperimentTypes());
+        strings(text, "projectTags", project.getProjectTags());
+        strings(text, "keywords", project.getKeywords());
+        cvParams(text, "quantificationMethods", project.getQuantificationMethods());
+        cvParams(text, "software", project.getSoftware());
+        line(text, "doi", project.getDoi());
+        submitter(text, "submitter", project.getSubmitter());
+        if (project.getLabHeads() != null)
+            for (Submitter labHead : project.getLabHeads())
+                submitter(text, "labHead", labHead);
+        strings(text, "dataFiles", project.getDataFiles());
+        line(text, "datasetLink", project.getDatasetLink());
+        return text.toString();
+    }
+
+    private static void cvParams(StringBuilder text, String name, List<CvParam> params) {
+        if (params == null) {
+            line(text, name, null);
+            return;
+        }
+        for (CvParam param : params)
+            line(text, name, param.getAccession() + "|" + param.getName() + "|" + param.getCvLabel() + "|" + param.getValue());
+    }
+
+    private static void strings(StringBuilder text, String name, List<String> values) {
+        if (values == null) {
+            line(text, name, null);
+            return;
+        }
+        for (String value : values)
+            line(text, name, value);
+    }
+
+    private static void submitter(StringBuilder text, String name, Submitter submitter) {
+        line(text, name, (submitter == null) ? null : submitter.getFirstName() + "|" + submitter.getLastName()
+                + "|" + submitter.getEmail() + "|" + submitter.getAffiliation());
+    }
+
+    private static String time(Date date) {
+        // the PX dates have no time zone, they are read in the default one
+        return (date == null) ? null : new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(date);
+    }
+
+    private static void line(StringBuilder text, String name, String value) {
+        text.append(name).append('=').append(value).append('\n');
+    }
+}
@@ -0,0 +1,74 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.regex.Matcher;
+
+/**
+ * PX XML documents used as input of the benchmarks, all of them derived from PXD000001.xml:
+ * the file itself, a dataset of the median size found in ProteomeCentral and a pathological
+ * one with tens of thousands of files, thousands of keywords and a long description full
+ * of characters to escape.
+ */
+public enum PxBenchmarkDocument {
+
+    SMALL(0, 0, 0),
+
+    MEDIAN(250, 20, 4 * 1024),
+
+    PATHOLOGICAL(50000, 2000, 256 * 1024);
+
+    private static final String[] FILE_SUFFIXES = {".raw", ".mgf", ".mzid.gz", ".xml.gz", ".msf", ".txt"};
+
+    private final int files;
+
+    private final int keywords;
+
+    private final int descriptionLength;
+
+    private String xml;
+
+    PxBenchmarkDocument(int files, int keywords, int descriptionLength) {
+        this.files = files;
+        this.keywords = keywords;
+        this.descriptionLength = descriptionLength;
+    }
+
+    /**
+     * @return the PX XML document
+     */
+    public synchronized String getXml() throws IOException {
+        if (xml == null)
+            xml = build();
+        return xml;
+    }
+
+    private String build() throws IOException {
+        InputStream in = PxBenchmarkDocument.class.getResourceAsStream("/PXD000001.xml");
+        try {
+            String base = IOUtils.toString(in, "UTF-8");
+            if (this == SMALL)
+                return base;
+            StringBuilder dataFiles = new StringBuilder();
+            for (int i = 0; i < files; i++) {
+                String name = "PXD000001_file_" + i + FILE_SUFFIXES[i % FILE_SUFFIXES.length];
+                dataFiles.append("    <DatasetFile id=\"EXTRA_").append(i).append("\" name=\"").append(name)
+                        .append("\"><cvParam cvRef=\"PRIDE\" accession=\"PRIDE:0000404\" name=\"Associated file URI\" value=\"ftp://ftp.pride.ebi.ac.uk/pride/data/archive/2012/03/PXD000001/")
+                        .append(name).append("\"/></DatasetFile>\n");
+            }
+            StringBuilder keywordList = new StringBuilder();
+            for (int i = 0; i < keywords; i++)
+                keywordList.append("    <cvParam cvRef=\"MS\" accession=\"MS:1001925\" name=\"submitter keyword\" value=\"keyword ").append(i).append("\"/>\n");
+            StringBuilder description = new StringBuilder(descriptionLength + 64);
+            while (description.length() < descriptionLength)
+                description.append("Reporter ions &amp; &lt;TMT&gt; ratios 1:1:1 éè α-helix, \"quoted\" text.\n");
+            return base.replace("  </DatasetFileList>", dataFiles + "  </DatasetFileList>")
+                    .replace("  </KeywordList>", keywordList + "  </KeywordList>")
+                    .replaceFirst("<Description>[^<]*</Description>", Matcher.quoteReplacement("<Description>" + description + "</Description>"));
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.xml.px.io.PxReader;
+import uk.ac.ebi.ddi.px.xml.px.io.PxUnmarshallerType;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the unmarshal of a PX XML document (PxReader construction) and of the whole
+ * parse of a page into a Project (ReaderPxXML.parseDocument), with every unmarshaller.
+ * Run with -prof gc to get the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PxReaderBenchmark {
+
+    @Param({"SMALL", "MEDIAN", "PATHOLOGICAL"})
+    private PxBenchmarkDocument document;
+
+    @Param({"JAXB", "STAX"})
+    private PxUnmarshallerType unmarshaller;
+
+    private String page;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws Exception {
+        page = document.getXml();
+        bytes = page.getBytes("UTF-8");
+        ReaderPxXML.setUnmarshallerType(unmarshaller);
+    }
+
+    @Benchmark
+    public PxReader unmarshal() throws Exception {
+        return new PxReader(new ByteArrayInputStream(bytes), unmarshaller);
+    }
+
+    @Benchmark
+    public Project parseDocument() throws Exception {
+        return ReaderPxXML.parseDocument(page, TransformContext.get());
+    }
+}
@@ -0,0 +1,33 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.xml.px.io.PxReader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the mapping of an unmarshalled PX dataset into a Project.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReaderPxXMLBenchmark {
+
+    private PxReader reader;
+
+    private TransformContext context;
+
+    @Setup
+    public void setup() throws Exception {
+        reader = new PxReader(IOUtils.toInputStream(
+                IOUtils.toString(ReaderPxXMLBenchmark.class.getResourceAsStream("/PXD000001.xml"), "UTF-8"), "UTF-8"));
+        context = new TransformContext();
+    }
+
+    @Benchmark
+    public Project transform() {
+        return ReaderPxXML.transform(reader, context);
+    }
+}
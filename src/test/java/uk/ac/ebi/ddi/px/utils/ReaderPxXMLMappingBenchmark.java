@@ -0,0 +1,89 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ebi.ddi.px.model.CvParam;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.model.Reference;
+import uk.ac.ebi.ddi.px.xml.px.io.PxReader;
+import uk.ac.ebi.ddi.px.xml.px.io.PxUnmarshallerType;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the mapping of an unmarshalled PX dataset into a Project, as a whole and
+ * one transform or map method at a time. Run with -prof gc to get the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderPxXMLMappingBenchmark {
+
+    @Param({"SMALL", "MEDIAN", "PATHOLOGICAL"})
+    private PxBenchmarkDocument document;
+
+    private PxReader reader;
+
+    private TransformContext context;
+
+    @Setup
+    public void setup() throws Exception {
+        reader = new PxReader(IOUtils.toInputStream(document.getXml(), "UTF-8"), PxUnmarshallerType.STAX);
+        context = new TransformContext();
+    }
+
+    @Benchmark
+    public Project transform() {
+        return ReaderPxXML.transform(reader, context);
+    }
+
+    @Benchmark
+    public List<String> transformDataFiles() {
+        return ReaderPxXML.transformDataFiles(reader.getDataFiles());
+    }
+
+    @Benchmark
+    public List<Reference> transformReferences() {
+        return ReaderPxXML.transformReferences(reader.getReferences(), context);
+    }
+
+    @Benchmark
+    public List<CvParam> transformInstruments() {
+        return ReaderPxXML.transformInstruments(reader.getInstruments());
+    }
+
+    @Benchmark
+    public List<CvParam> transformCVParamTypeList() {
+        return ReaderPxXML.transformCVParamTypeList(reader.getPtms());
+    }
+
+    @Benchmark
+    public String transformGetDatasetLink() {
+        return ReaderPxXML.transformGetDatasetLink(reader.getFullDatasetLink());
+    }
+
+    @Benchmark
+    public Project mapKeywords() {
+        Project project = new Project();
+        ReaderPxXML.mapKeywords(reader.getSubmitterKeywords(), project, context);
+        return project;
+    }
+
+    @Benchmark
+    public Project mapContacts() {
+        Project project = new Project();
+        ReaderPxXML.mapContacts(reader.getContactList(), project, context);
+        return project;
+    }
+
+    @Benchmark
+    public Project mapSpecies() {
+        Project project = new Project();
+        ReaderPxXML.mapSpecies(reader.getSpecies(), project, context);
+        return project;
+    }
+}
@@ -0,0 +1,53 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.model.Project;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+import uk.ac.ebi.ddi.px.xml.px.io.PxReader;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Check the mapping of the PX datasets into Projects. The golden files (*.project.txt) were written
+ * by the mapping of ReaderPxXML before the one-pass mapping and the transform contexts.
+ */
+public class ReaderPxXMLTest {
+
+    @Test
+    public void testGoldenProjects() throws Exception {
+        for (String name : new String[]{"PXD000001", "PXD000002-synthetic"}) {
+            String page = resource("/" + name + ".xml");
+            String golden = resource("/" + name + ".project.txt");
+            assertEquals(name, golden, ProjectText.describe(ReaderPxXML.readProject(page)));
+        }
+    }
+
+    /**
+     * A context reused for datasets of different sizes maps them as a new context does
+     */
+    @Test
+    public void testReusedContext() throws Exception {
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        TransformContext reused = new TransformContext();
+        int[] sizes = {1, 40, 3, 120, 2, 7};
+        for (int i = 0; i < sizes.length; i++) {
+            generator.setKeywords(sizes[i]);
+            generator.setModifications(sizes[i]);
+            generator.setInstruments(sizes[i] + 1);
+            generator.setDatasetFiles(sizes[i]);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            generator.write(PxCorpusGenerator.accession(i + 1), out);
+            PxReader reader = new PxReader(IOUtils.toInputStream(out.toString("UTF-8"), "UTF-8"));
+
+            Project expected = ReaderPxXML.transform(reader, new TransformContext());
+            assertEquals(ProjectText.describe(expected), ProjectText.describe(ReaderPxXML.transform(reader, reused)));
+        }
+    }
+
+    private static String resource(String name) throws Exception {
+        return IOUtils.toString(ReaderPxXMLTest.class.getResourceAsStream(name), "UTF-8");
+    }
+}
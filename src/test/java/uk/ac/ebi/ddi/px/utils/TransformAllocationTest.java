@@ -0,0 +1,55 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check with JMH and the GC profiler the bytes allocated to map one dataset. It runs a JMH session
+ * and its budget depends on the JIT and the GC, so it is left out of the default test run:
+ * mvn test -Pbenchmark
+ */
+public class TransformAllocationTest {
+
+    /**
+     * The final Project contents of PXD000001.xml take about 1.5KB, the budget leaves some
+     * room for JIT and JVM differences.
+     */
+    private static final double MAX_BYTES_PER_PROJECT = 3072;
+
+    @Test
+    public void testTransformAllocation() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ReaderPxXMLBenchmark.class.getSimpleName() + ".transform")
+                .addProfiler(GCProfiler.class)
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        Double bytesPerOperation = null;
+        for (RunResult result : results)
+            for (String name : result.getSecondaryResults().keySet())
+                if (name.endsWith("gc.alloc.rate.norm")) {
+                    Result<?> secondary = result.getSecondaryResults().get(name);
+                    bytesPerOperation = secondary.getScore();
+                }
+
+        assertNotNull(bytesPerOperation);
+        assertTrue("Allocated " + bytesPerOperation + " bytes per project", bytesPerOperation <= MAX_BYTES_PER_PROJECT);
+    }
+}
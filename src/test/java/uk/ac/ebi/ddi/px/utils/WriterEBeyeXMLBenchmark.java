@@ -0,0 +1,59 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the EB-eye XML of a project: rendered in memory, and generated to its file
+ * (written every time, the check of the unchanged files is disabled). Run with -prof gc to get
+ * the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterEBeyeXMLBenchmark {
+
+    @Param({"SMALL", "MEDIAN", "PATHOLOGICAL"})
+    private PxBenchmarkDocument document;
+
+    private File directory;
+
+    private WriterEBeyeXML writer;
+
+    @Setup
+    public void setup() throws Exception {
+        Project project = ReaderPxXML.parseDocument(document.getXml());
+        directory = Files.createTempDirectory("ebeye-benchmark").toFile();
+        writer = new WriterEBeyeXML(project, directory, null);
+        writer.setSkipUnchanged(false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public long render() throws Exception {
+        EBeyeWriterContext context = EBeyeWriterContext.get();
+        EBeyeOutputBuffer buffer = context.renderBuffer();
+        writer.render(buffer, context, null);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public void generate() throws Exception {
+        writer.generate();
+    }
+}
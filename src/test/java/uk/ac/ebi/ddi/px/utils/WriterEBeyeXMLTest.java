@@ -0,0 +1,141 @@
+package uk.ac.ebi.ddi.px.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.model.Project;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Check the content of an EB-eye file against the one written by the DOM writer, that the files
+ * that only change by their release date are kept, and that the others are replaced without
+ * leaving temporary files.
+ */
+public class WriterEBeyeXMLTest {
+
+    private File folder;
+
+    private File output;
+
+    @Before
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("ebeye").toFile();
+        output = new File(folder, "PRIDE_EBEYE_PXD000001.xml");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    /**
+     * PRIDE_EBEYE_PXD000001.xml has been written by the DOM and Transformer writer, only its release date differs
+     */
+    @Test
+    public void testSameAsDomWriter() throws Exception {
+        Project project = project();
+        project.setTitle("Spikes & <tags> \"quoted\" 'single' ]]> \u00e9t\u00e9");
+        project.setProjectDescription("Control \u0001\u0008\u001f chars, tab\there, CR\r\nnew line, DEL \u007f, C1 \u0085\u0099, NBSP\u00a0, \u2028 separator");
+        project.setDataProcessingProtocol("Prot\u00e9omique \u86cb\u767d\u8d28\u7ec4 \ud83e\uddec \ud83d\ude00 \u00df\u00f8\u00e5 \u0394\u03b1");
+        List<String> keywords = new ArrayList<String>(project.getKeywords());
+        keywords.add("m/z > 400 & < 2000");
+        keywords.add("\u00c5ngstr\u00f6m");
+        project.setKeywords(keywords);
+        new WriterEBeyeXML(project, folder, null).generate();
+
+        String xml = readOutput();
+        Matcher releaseDate = Pattern.compile("<release_date>[^<]*</release_date>").matcher(xml);
+        assertTrue(releaseDate.find());
+        String expected = IOUtils.toString(WriterEBeyeXMLTest.class.getResourceAsStream("/PRIDE_EBEYE_PXD000001.xml"), "UTF-8")
+                .replace("<release_date>2026-10-19</release_date>", releaseDate.group())
+                .replace("\n", System.getProperty("line.separator"));
+        assertArrayEquals(expected.getBytes(EBeyeWriterContext.UTF8), Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    public void testReleaseDateOnlyChangeIsSkipped() throws Exception {
+        new WriterEBeyeXML(project(), folder, null).generate();
+        byte[] previous = setReleaseDate(readOutput(), "1999-01-01");
+
+        new WriterEBeyeXML(project(), folder, null).generate();
+        assertArrayEquals(previous, Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    public void testChangeIsReplaced() throws Exception {
+        new WriterEBeyeXML(project(), folder, null).generate();
+        setReleaseDate(readOutput(), "1999-01-01");
+
+        Project project = project();
+        project.setTitle("A new title");
+        new WriterEBeyeXML(project, folder, null).generate();
+        String xml = readOutput();
+        assertTrue(xml.contains("A new title"));
+        assertFalse(xml.contains("1999-01-01"));
+    }
+
+    @Test
+    public void testNoTemporaryFileAfterFailure() throws Exception {
+        // a folder with the name of the file can not be replaced
+        assertTrue(new File(output, "child").mkdirs());
+        try {
+            new WriterEBeyeXML(project(), folder, null).generate();
+            fail("The file has replaced a folder");
+        } catch (IOException e) {
+            // expected
+        }
+        assertArrayEquals(new String[]{output.getName()}, folder.list());
+    }
+
+    @Test
+    public void testManifestListsKeptFiles() throws Exception {
+        new WriterEBeyeXML(project(), folder, null).generate();
+        byte[] kept = Files.readAllBytes(output.toPath());
+
+        EBeyeManifest manifest = new EBeyeManifest(folder);
+        WriterEBeyeXML writer = new WriterEBeyeXML(project(), folder, null);
+        writer.setManifest(manifest);
+        writer.generate();
+        assertArrayEquals(kept, Files.readAllBytes(output.toPath()));
+
+        List<String> lines = Files.readAllLines(manifest.write().toPath(), EBeyeWriterContext.UTF8);
+        assertEquals(2, lines.size());
+        assertEquals(output.getName() + "\t" + kept.length + "\t1\t"
+                + EBeyeManifest.hex(EBeyeWriterContext.get().digest().digest(kept)), lines.get(1));
+    }
+
+    private String readOutput() throws IOException {
+        return new String(Files.readAllBytes(output.toPath()), EBeyeWriterContext.UTF8);
+    }
+
+    /**
+     * Give the release date of an earlier run to the output file
+     * @return the new content of the file
+     */
+    private byte[] setReleaseDate(String xml, String date) throws IOException {
+        String changed = xml.replaceFirst("<release_date>[^<]*</release_date>", "<release_date>" + date + "</release_date>");
+        assertFalse(changed.equals(xml));
+        byte[] bytes = changed.getBytes(EBeyeWriterContext.UTF8);
+        Files.write(output.toPath(), bytes);
+        return bytes;
+    }
+
+    private static Project project() throws Exception {
+        return ReaderPxXML.readProject(IOUtils.toString(WriterEBeyeXMLTest.class.getResourceAsStream("/PXD000001.xml"), "UTF-8"));
+    }
+}
@@ -0,0 +1,139 @@
+package uk.ac.ebi.ddi.px.xml.px.io;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Read the datasets of bulk dumps: concatenated PX files, each one with its XML declaration, and
+ * wrapped dumps. The declarations are dropped wherever they fall in the buffer of the
+ * {@link BulkXmlReader}, the other processing instructions are kept.
+ */
+public class PxBulkReaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    private static final String STYLESHEET = "<?xml-stylesheet type=\"text/xsl\" href=\"px.xsl\"?>";
+
+    @Test
+    public void testConcatenatedDocuments() throws Exception {
+        // the byte order mark of the first file is dropped too
+        String dump = "\uFEFF" + document(1) + document(2) + "\n" + document(3);
+        for (PxUnmarshallerType type : PxUnmarshallerType.values())
+            assertEquals(type.name(), accessions(1, 2, 3), readAccessions(dump, type));
+    }
+
+    @Test
+    public void testWrappedDump() throws Exception {
+        String dump = DECLARATION + "\n<ProteomeXchangeDatasets>\n" + body(1) + body(2) + body(3) + "</ProteomeXchangeDatasets>\n";
+        for (PxUnmarshallerType type : PxUnmarshallerType.values())
+            assertEquals(type.name(), accessions(1, 2, 3), readAccessions(dump, type));
+    }
+
+    @Test
+    public void testStylesheetKept() throws Exception {
+        String dump = DECLARATION + "\n" + STYLESHEET + "\n" + body(1) + document(2);
+        String wrapped = IOUtils.toString(new BulkXmlReader(new StringReader(dump)));
+        assertTrue(wrapped, wrapped.startsWith("<" + BulkXmlReader.ROOT_TAG + ">\n" + STYLESHEET + "\n"));
+        assertFalse(wrapped, wrapped.contains("<?xml "));
+        assertEquals(accessions(1, 2), readAccessions(dump, PxUnmarshallerType.STAX));
+    }
+
+    /**
+     * The second declaration starts, and ends, on each side of the 64K chars read at once by the BulkXmlReader
+     */
+    @Test
+    public void testDeclarationAcrossBuffer() throws Exception {
+        String first = document(1);
+        String second = document(2);
+        int boundary = 64 * 1024;
+        for (int start = boundary - DECLARATION.length() - 1; start <= boundary + 1; start++) {
+            String dump = first + padding(start - first.length()) + second;
+            String expected = "<" + BulkXmlReader.ROOT_TAG + ">" + dump.replace(DECLARATION, "") + "</" + BulkXmlReader.ROOT_TAG + ">";
+            assertEquals("declaration at " + start, expected, IOUtils.toString(new BulkXmlReader(new StringReader(dump))));
+            assertEquals("declaration at " + start, expected, IOUtils.toString(new BulkXmlReader(new ChunkReader(dump, 7))));
+        }
+        String dump = first + padding(boundary - 3 - first.length()) + second;
+        assertEquals(accessions(1, 2), readAccessions(dump, PxUnmarshallerType.STAX));
+    }
+
+    private static List<String> readAccessions(String dump, PxUnmarshallerType type) throws Exception {
+        PxBulkReader bulkReader = new PxBulkReader(new ByteArrayInputStream(dump.getBytes(UTF8)), UTF8, type);
+        try {
+            List<String> accessions = new ArrayList<String>();
+            PxReader reader;
+            while ((reader = bulkReader.next()) != null)
+                accessions.add(reader.getAccession());
+            return accessions;
+        } finally {
+            bulkReader.close();
+        }
+    }
+
+    private static List<String> accessions(int... numbers) {
+        String[] accessions = new String[numbers.length];
+        for (int i = 0; i < numbers.length; i++)
+            accessions[i] = PxCorpusGenerator.accession(numbers[i]);
+        return Arrays.asList(accessions);
+    }
+
+    /**
+     * @return the PX file of a synthetic dataset, starting with its XML declaration
+     */
+    private static String document(int number) throws IOException {
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        generator.setDatasetFiles(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(PxCorpusGenerator.accession(number), out);
+        String document = out.toString("UTF-8");
+        assertTrue(document.startsWith(DECLARATION));
+        return document;
+    }
+
+    /**
+     * @return the PX file of a synthetic dataset without its XML declaration
+     */
+    private static String body(int number) throws IOException {
+        return document(number).substring(DECLARATION.length());
+    }
+
+    private static String padding(int length) {
+        char[] spaces = new char[length];
+        Arrays.fill(spaces, ' ');
+        return new String(spaces);
+    }
+
+    /**
+     * Reader returning at most chunk chars at a time, as a network stream may
+     */
+    private static class ChunkReader extends FilterReader {
+
+        private final int chunk;
+
+        private ChunkReader(String content, int chunk) {
+            super(new StringReader(content));
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(len, chunk));
+        }
+    }
+}
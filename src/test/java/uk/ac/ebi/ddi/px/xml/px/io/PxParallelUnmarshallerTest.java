@@ -0,0 +1,121 @@
+package uk.ac.ebi.ddi.px.xml.px.io;
+
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+import uk.ac.ebi.ddi.px.xml.px.model.DatasetFileType;
+import uk.ac.ebi.ddi.px.xml.px.model.ProteomeXchangeDatasetType;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check the split of a DatasetFileList above the default threshold (1 MB), the merge of the chunks
+ * in the order of the document and the sequential read of the documents that can not be split.
+ */
+public class PxParallelUnmarshallerTest {
+
+    private static final int FILES = 6000;
+
+    @Test
+    public void testParallelRead() throws Exception {
+        byte[] xml = generate();
+        assertTrue(xml.length > PxParallelUnmarshaller.DEFAULT_MIN_SPLIT_BYTES);
+
+        CountingPool pool = new CountingPool();
+        JAXBElement<ProteomeXchangeDatasetType> dataset = unmarshaller(pool).unmarshal(xml);
+        assertTrue("chunks read in parallel: " + pool.tasks.get(), pool.tasks.get() > 1);
+
+        List<DatasetFileType> files = dataset.getValue().getDatasetFileList().getDatasetFile();
+        assertEquals(FILES, files.size());
+        for (int i = 0; i < FILES; i++)
+            assertEquals("FILE_" + i, files.get(i).getId());
+        assertEquals(marshal(jaxb(xml)), marshal(dataset));
+    }
+
+    @Test
+    public void testComment() throws Exception {
+        assertSequential(insertInFileList(generate(), "<!-- files of the first run -->"));
+    }
+
+    @Test
+    public void testCData() throws Exception {
+        assertSequential(insertInFileList(generate(), "<![CDATA[\n]]>"));
+    }
+
+    @Test
+    public void testEncoding() throws Exception {
+        String document = new String(generate(), "UTF-8");
+        assertTrue(document.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
+        assertSequential(document.replaceFirst("UTF-8", "UTF-16").getBytes("UTF-16"));
+    }
+
+    /**
+     * The document is read sequentially and it gives the same model as JAXB
+     */
+    private static void assertSequential(byte[] xml) throws Exception {
+        CountingPool pool = new CountingPool();
+        JAXBElement<ProteomeXchangeDatasetType> dataset = unmarshaller(pool).unmarshal(xml);
+        assertEquals(0, pool.tasks.get());
+        assertEquals(FILES, dataset.getValue().getDatasetFileList().getDatasetFile().size());
+        assertEquals(marshal(jaxb(xml)), marshal(dataset));
+    }
+
+    private static PxParallelUnmarshaller unmarshaller(ForkJoinPool pool) {
+        return new PxParallelUnmarshaller(pool, PxParallelUnmarshaller.DEFAULT_MIN_SPLIT_BYTES, PxParallelUnmarshaller.DEFAULT_CHUNK_BYTES);
+    }
+
+    private static byte[] generate() throws Exception {
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        generator.setDatasetFiles(FILES);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.write(PxCorpusGenerator.accession(1), out);
+        return out.toByteArray();
+    }
+
+    private static byte[] insertInFileList(byte[] xml, String text) throws Exception {
+        String document = new String(xml, "UTF-8");
+        int index = document.indexOf("<DatasetFile id=\"FILE_" + (FILES / 2) + "\"");
+        assertTrue(index > 0);
+        return (document.substring(0, index) + text + document.substring(index)).getBytes("UTF-8");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JAXBElement<ProteomeXchangeDatasetType> jaxb(byte[] xml) throws Exception {
+        return (JAXBElement<ProteomeXchangeDatasetType>) PXUnmarshallerFactory.getInstance().initializeUnmarshaller().unmarshal(new ByteArrayInputStream(xml));
+    }
+
+    private static String marshal(JAXBElement<ProteomeXchangeDatasetType> dataset) throws Exception {
+        Marshaller marshaller = PXUnmarshallerFactory.getInstance().initializeMarshaller();
+        StringWriter out = new StringWriter();
+        marshaller.marshal(dataset, out);
+        return out.toString();
+    }
+
+    /**
+     * Pool counting the chunks given to it
+     */
+    private static class CountingPool extends ForkJoinPool {
+
+        private final AtomicInteger tasks = new AtomicInteger();
+
+        private CountingPool() {
+            super(4);
+        }
+
+        @Override
+        public void execute(ForkJoinTask<?> task) {
+            tasks.incrementAndGet();
+            super.execute(task);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package uk.ac.ebi.ddi.px.xml.px.io;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import uk.ac.ebi.ddi.px.xml.px.generator.PxCorpusGenerator;
+import uk.ac.ebi.ddi.px.xml.px.model.ProteomeXchangeDatasetType;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Check that the generated StAX unmarshallers, sequential and parallel, read the PX files into
+ * the same objects as JAXB. The objects are compared by writing them back with the JAXB marshaller.
+ */
+public class PxUnmarshallerTest {
+
+    private static final PXUnmarshallerFactory FACTORY = PXUnmarshallerFactory.getInstance();
+
+    /**
+     * Parallel unmarshaller splitting the DatasetFileList sections of the small test files
+     */
+    private static final PxParallelUnmarshaller SMALL_CHUNKS = new PxParallelUnmarshaller(new ForkJoinPool(4), 1024, 512);
+
+    @Test
+    public void testResources() throws Exception {
+        for (String name : new String[]{"/PXD000001.xml", "/PXD000002-synthetic.xml"})
+            assertSameModel(name, IOUtils.toByteArray(PxUnmarshallerTest.class.getResourceAsStream(name)));
+    }
+
+    @Test
+    public void testGeneratedCorpus() throws Exception {
+        PxCorpusGenerator generator = new PxCorpusGenerator();
+        for (int i = 1; i <= 12; i++) {
+            generator.setSeed(i);
+            generator.setContacts(1 + i % 3);
+            generator.setSpecies(1 + i % 2);
+            generator.setKeywords(1 + i);
+            generator.setPublications(i % 3);
+            generator.setModifications(1 + i % 4);
+            generator.setDatasetFiles(i * 25);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            generator.write(PxCorpusGenerator.accession(i), out);
+            assertSameModel(PxCorpusGenerator.accession(i), out.toByteArray());
+        }
+    }
+
+    /**
+     * Invalid dates and repositories are dropped by JAXB, the StAX unmarshallers must not fail on them
+     */
+    @Test
+    public void testMalformedValues() throws Exception {
+        String xml = IOUtils.toString(PxUnmarshallerTest.class.getResourceAsStream("/PXD000001.xml"), "UTF-8");
+        for (String date : new String[]{"2012-3-7", "07/03/2012", "", " ", "2012-13-45"})
+            assertSameModel("announceDate " + date, xml.replace("announceDate=\"2012-03-07\"",
+                    "announceDate=\"" + date + "\"").getBytes("UTF-8"));
+        for (String repository : new String[]{"Pride", "", "unknown"})
+            assertSameModel("hostingRepository " + repository, xml.replace("hostingRepository=\"PRIDE\"",
+                    "hostingRepository=\"" + repository + "\"").getBytes("UTF-8"));
+    }
+
+    private static void assertSameModel(String name, byte[] xml) throws Exception {
+        String expected = marshal(jaxb(xml));
+        assertEquals(name + " STAX", expected, marshal(stax(xml)));
+        assertEquals(name + " STAX_PARALLEL", expected, marshal(FACTORY.getParallelUnmarshaller().unmarshal(xml)));
+        assertEquals(name + " STAX_PARALLEL chunks", expected, marshal(SMALL_CHUNKS.unmarshal(xml)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JAXBElement<ProteomeXchangeDatasetType> jaxb(byte[] xml) throws Exception {
+        return (JAXBElement<ProteomeXchangeDatasetType>) FACTORY.initializeUnmarshaller().unmarshal(new ByteArrayInputStream(xml));
+    }
+
+    private static JAXBElement<ProteomeXchangeDatasetType> stax(byte[] xml) throws Exception {
+        XMLStreamReader reader = FACTORY.getXMLInputFactory().createXMLStreamReader(new ByteArrayInputStream(xml));
+        try {
+            return FACTORY.initializeStaxUnmarshaller().unmarshal(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String marshal(JAXBElement<ProteomeXchangeDatasetType> dataset) throws Exception {
+        Marshaller marshaller = FACTORY.initializeMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        StringWriter out = new StringWriter();
+        marshaller.marshal(dataset, out);
+        return out.toString();
+    }
+}